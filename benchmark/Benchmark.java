@@ -0,0 +1,558 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class Benchmark
+{
+	private static final List<String> BENCHMARKS = Arrays.asList("encode", "decode", "clone", "save-png", "save-bmp", "roundtrip");
+	
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: java Benchmark [options]",
+		"",
+		"Options:",
+		"  --benchmarks <list>  Benchmarks to run (" + String.join(", ", BENCHMARKS) + ")",
+		"  --sizes <list>       Image sizes in megapixels (default 1,4,16)",
+		"  --types <list>       Image types (int_rgb, int_argb, 3byte_bgr, 4byte_abgr)",
+		"  --fills <list>       Payload sizes as a fraction of the capacity (default 0.1,1.0)",
+		"  --payloads <list>    Payload sizes in bytes, used instead of --fills",
+		"  --warmup <count>     Warmup iterations per benchmark (default 3)",
+		"  --iterations <count> Measured iterations per benchmark (default 5)",
+		"",
+		"Lists are separated by commas. Large images need a big heap, e.g. -Xmx8g for 100 megapixels.");
+	
+	private static final long SEED = 0x5EED;
+	
+	private List<String> benchmarks;
+	
+	private List<Double> sizes;
+	
+	private List<Integer> types;
+	
+	private List<Double> fills;
+	
+	private List<Long> payloads;
+	
+	private int warmup;
+	
+	private int iterations;
+	
+	public static void main(String[] args) throws Exception
+	{
+		Benchmark benchmark = new Benchmark();
+		
+		if (!benchmark.parse(args))
+		{
+			System.err.println(USAGE);
+			
+			System.exit(2);
+		}
+		
+		benchmark.run();
+	}
+	
+	public Benchmark()
+	{
+		this.benchmarks = BENCHMARKS;
+		
+		this.sizes = Arrays.asList(1.0, 4.0, 16.0);
+		
+		this.types = Arrays.asList(BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR);
+		
+		this.fills = Arrays.asList(0.1, 1.0);
+		
+		this.payloads = null;
+		
+		this.warmup = 3;
+		
+		this.iterations = 5;
+	}
+	
+	private boolean parse(String[] args)
+	{
+		Map<String, String> options = new HashMap<>();
+		
+		for (int i = 0; i < args.length; i = i + 2)
+		{
+			if (!args[i].startsWith("--") || i + 1 >= args.length)
+			{
+				return false;
+			}
+			
+			options.put(args[i], args[i + 1]);
+		}
+		
+		try
+		{
+			for (Map.Entry<String, String> option : options.entrySet())
+			{
+				List<String> values = Arrays.asList(option.getValue().split(","));
+				
+				switch (option.getKey())
+				{
+					case "--benchmarks":
+						if (!BENCHMARKS.containsAll(values))
+						{
+							return false;
+						}
+						
+						this.benchmarks = values;
+						break;
+					
+					case "--sizes":
+						this.sizes = new ArrayList<>();
+						
+						for (String value : values)
+						{
+							this.sizes.add(Double.parseDouble(value));
+						}
+						break;
+					
+					case "--types":
+						this.types = new ArrayList<>();
+						
+						for (String value : values)
+						{
+							int type = parseType(value);
+							
+							if (type == BufferedImage.TYPE_CUSTOM)
+							{
+								return false;
+							}
+							
+							this.types.add(type);
+						}
+						break;
+					
+					case "--fills":
+						this.fills = new ArrayList<>();
+						
+						for (String value : values)
+						{
+							this.fills.add(Double.parseDouble(value));
+						}
+						break;
+					
+					case "--payloads":
+						this.payloads = new ArrayList<>();
+						
+						for (String value : values)
+						{
+							this.payloads.add(Long.parseLong(value));
+						}
+						break;
+					
+					case "--warmup":
+						this.warmup = Integer.parseInt(option.getValue());
+						break;
+					
+					case "--iterations":
+						this.iterations = Math.max(Integer.parseInt(option.getValue()), 1);
+						break;
+					
+					default:
+						return false;
+				}
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			return false;
+		}
+		
+		return true;
+	}
+	
+	private void run() throws Exception
+	{
+		System.out.printf("%-10s %7s %-10s %11s %10s %10s %10s %12s %12s %6s%n", "benchmark", "MP", "type", "payload", "ms/op", "min ms", "MB/s", "alloc MB/op", "alloc MB/s", "gc");
+		
+		for (double size : this.sizes)
+		{
+			for (int type : this.types)
+			{
+				BufferedImage bufferedImage = createImage(size, type);
+				
+				for (String benchmark : this.benchmarks)
+				{
+					if (benchmark.equals("clone") || benchmark.startsWith("save"))
+					{
+						this.run(benchmark, size, type, bufferedImage, -1);
+					}
+					else
+					{
+						for (long payloadSize : this.getPayloadSizes(bufferedImage))
+						{
+							this.run(benchmark, size, type, bufferedImage, payloadSize);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private List<Long> getPayloadSizes(BufferedImage bufferedImage) throws IOException
+	{
+		long capacity = new ByteEncoder(bufferedImage).getCapacity();
+		
+		List<Long> payloadSizes = new ArrayList<>();
+		
+		if (this.payloads != null)
+		{
+			for (long payload : this.payloads)
+			{
+				if (payload <= capacity - 64)
+				{
+					payloadSizes.add(payload);
+				}
+			}
+		}
+		else
+		{
+			for (double fill : this.fills)
+			{
+				payloadSizes.add(Math.max((long)(fill * (capacity - 64)), 1));
+			}
+		}
+		
+		return payloadSizes;
+	}
+	
+	private void run(String benchmark, double size, int type, BufferedImage bufferedImage, long payloadSize) throws Exception
+	{
+		byte[] payload = null;
+		
+		if (payloadSize >= 0)
+		{
+			payload = new byte[(int)Math.min(payloadSize, Integer.MAX_VALUE - 8)];
+			
+			new Random(SEED).nextBytes(payload);
+		}
+		
+		Operation operation;
+		
+		long processedBytes;
+		
+		switch (benchmark)
+		{
+			case "encode":
+			{
+				ByteEncoder byteEncoder = new ByteEncoder(bufferedImage);
+				
+				byte[] bytes = payload;
+				
+				operation = () -> byteEncoder.encode(bytes);
+				
+				processedBytes = payload.length;
+				break;
+			}
+			
+			case "decode":
+			{
+				ByteEncoder byteEncoder = new ByteEncoder(bufferedImage);
+				
+				byteEncoder.encode(payload);
+				
+				operation = () -> byteEncoder.decode();
+				
+				processedBytes = payload.length;
+				break;
+			}
+			
+			case "clone":
+			{
+				operation = () -> RawByteEncoder.cloneBufferedImage(bufferedImage);
+				
+				processedBytes = getPixelBytes(bufferedImage);
+				break;
+			}
+			
+			case "save-png":
+			case "save-bmp":
+			{
+				ByteEncoder byteEncoder = new ByteEncoder(bufferedImage);
+				
+				String fileExtension = benchmark.substring(benchmark.indexOf('-') + 1);
+				
+				operation = () -> byteEncoder.save(new NullOutputStream(), fileExtension);
+				
+				processedBytes = getPixelBytes(bufferedImage);
+				break;
+			}
+			
+			default:
+			{
+				BinaryFile binaryFile = new BinaryFile(payload, "payload.bin");
+				
+				operation = () ->
+				{
+					FileEncoder fileEncoder = new FileEncoder(bufferedImage);
+					
+					if (!fileEncoder.encode(binaryFile))
+					{
+						throw new IOException("The payload does not fit into the image.");
+					}
+					
+					try (InputStream inputStream = fileEncoder.decode().openInputStream())
+					{
+						byte[] buffer = new byte[64 * 1024];
+						
+						while (inputStream.read(buffer) >= 0)
+						{
+						}
+					}
+				};
+				
+				processedBytes = payload.length;
+				break;
+			}
+		}
+		
+		Result result = this.measure(operation);
+		
+		System.out.printf("%-10s %7.1f %-10s %11s %10.2f %10.2f %10.1f %12.2f %12.1f %6d%n",
+			benchmark,
+			size,
+			formatType(type),
+			payloadSize >= 0 ? String.valueOf(payloadSize) : "-",
+			result.averageNanos / 1e6,
+			result.minimumNanos / 1e6,
+			processedBytes / 1e6 / (result.averageNanos / 1e9),
+			result.allocatedBytes >= 0 ? result.allocatedBytes / 1e6 : Double.NaN,
+			result.allocatedBytes >= 0 ? result.allocatedBytes / 1e6 / (result.averageNanos / 1e9) : Double.NaN,
+			result.collections);
+	}
+	
+	private Result measure(Operation operation) throws Exception
+	{
+		for (int i = 0; i < this.warmup; i++)
+		{
+			operation.run();
+		}
+		
+		System.gc();
+		
+		long totalNanos = 0;
+		
+		long minimumNanos = Long.MAX_VALUE;
+		
+		Map<Long, Long> allocatedBytes = getAllocatedBytes();
+		
+		long collections = getCollections();
+		
+		for (int i = 0; i < this.iterations; i++)
+		{
+			long start = System.nanoTime();
+			
+			operation.run();
+			
+			long nanos = System.nanoTime() - start;
+			
+			totalNanos = totalNanos + nanos;
+			
+			minimumNanos = Math.min(minimumNanos, nanos);
+		}
+		
+		Result result = new Result();
+		
+		result.averageNanos = (double)totalNanos / this.iterations;
+		
+		result.minimumNanos = minimumNanos;
+		
+		result.allocatedBytes = -1;
+		
+		if (allocatedBytes != null)
+		{
+			long allocated = 0;
+			
+			for (Map.Entry<Long, Long> thread : getAllocatedBytes().entrySet())
+			{
+				allocated = allocated + thread.getValue() - allocatedBytes.getOrDefault(thread.getKey(), 0L);
+			}
+			
+			result.allocatedBytes = allocated / this.iterations;
+		}
+		
+		result.collections = getCollections() - collections;
+		
+		return result;
+	}
+	
+	private static BufferedImage createImage(double megapixels, int type)
+	{
+		int width = (int)Math.round(Math.sqrt(megapixels * 1e6 * 4 / 3));
+		
+		int height = (int)Math.round(megapixels * 1e6 / width);
+		
+		BufferedImage bufferedImage = new BufferedImage(width, height, type);
+		
+		Random random = new Random(SEED);
+		
+		int[] row = new int[width];
+		
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				row[x] = (0xFF << 24) | ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | (((x + y) & 0xFF) ^ random.nextInt(2));
+			}
+			
+			bufferedImage.setRGB(0, y, width, 1, row, 0, width);
+		}
+		
+		return bufferedImage;
+	}
+	
+	private static long getPixelBytes(BufferedImage bufferedImage)
+	{
+		return (long)bufferedImage.getWidth() * bufferedImage.getHeight() * (bufferedImage.getColorModel().hasAlpha() ? 4 : 3);
+	}
+	
+	private static int parseType(String name)
+	{
+		switch (name.toLowerCase())
+		{
+			case "int_rgb":
+				return BufferedImage.TYPE_INT_RGB;
+			
+			case "int_argb":
+				return BufferedImage.TYPE_INT_ARGB;
+			
+			case "3byte_bgr":
+				return BufferedImage.TYPE_3BYTE_BGR;
+			
+			case "4byte_abgr":
+				return BufferedImage.TYPE_4BYTE_ABGR;
+			
+			default:
+				return BufferedImage.TYPE_CUSTOM;
+		}
+	}
+	
+	private static String formatType(int type)
+	{
+		switch (type)
+		{
+			case BufferedImage.TYPE_INT_RGB:
+				return "int_rgb";
+			
+			case BufferedImage.TYPE_INT_ARGB:
+				return "int_argb";
+			
+			case BufferedImage.TYPE_3BYTE_BGR:
+				return "3byte_bgr";
+			
+			default:
+				return "4byte_abgr";
+		}
+	}
+	
+	private static Map<Long, Long> getAllocatedBytes()
+	{
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		
+		if (!(threadMXBean instanceof com.sun.management.ThreadMXBean))
+		{
+			return null;
+		}
+		
+		com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+		
+		if (!allocationMXBean.isThreadAllocatedMemorySupported() || !allocationMXBean.isThreadAllocatedMemoryEnabled())
+		{
+			return null;
+		}
+		
+		long[] threadIds = threadMXBean.getAllThreadIds();
+		
+		long[] allocated = allocationMXBean.getThreadAllocatedBytes(threadIds);
+		
+		Map<Long, Long> allocatedBytes = new HashMap<>();
+		
+		for (int i = 0; i < threadIds.length; i++)
+		{
+			if (allocated[i] >= 0)
+			{
+				allocatedBytes.put(threadIds[i], allocated[i]);
+			}
+		}
+		
+		return allocatedBytes;
+	}
+	
+	private static long getCollections()
+	{
+		long collections = 0;
+		
+		for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans())
+		{
+			collections = collections + Math.max(garbageCollectorMXBean.getCollectionCount(), 0);
+		}
+		
+		return collections;
+	}
+	
+	private interface Operation
+	{
+		public void run() throws Exception;
+	}
+	
+	private static class Result
+	{
+		private double averageNanos;
+		
+		private long minimumNanos;
+		
+		private long allocatedBytes;
+		
+		private long collections;
+	}
+	
+	private static class NullOutputStream extends OutputStream
+	{
+		@Override
+		public void write(int b)
+		{
+		}
+		
+		@Override
+		public void write(byte[] bytes, int offset, int length)
+		{
+		}
+	}
+}
@@ -0,0 +1,477 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+public class ArchiveEncoder
+{
+	private static final byte[] ARCHIVE_MAGIC = { (byte)0x89, 'A', 'R', 'C', 'H', '\r', '\n', 0x1A };
+	
+	private static final int ARCHIVE_HEADER_SIZE = ARCHIVE_MAGIC.length + 4 + 4;
+	
+	private static final int ENTRY_SIZE = 2 + 1 + 8 + 8 + 8 + 4;
+	
+	private static final int CHECKSUM_SIZE = 4;
+	
+	private static final int MAX_NAME_LENGTH = 0xFFFF;
+	
+	private FileEncoder fileEncoder;
+	
+	private PayloadCodec payloadCodec;
+	
+	public ArchiveEncoder(FileEncoder fileEncoder)
+	{
+		this.fileEncoder = fileEncoder;
+		
+		this.payloadCodec = fileEncoder.getPayloadCodec();
+	}
+	
+	public FileEncoder getFileEncoder()
+	{
+		return this.fileEncoder;
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public void setPayloadCodec(PayloadCodec payloadCodec)
+	{
+		this.payloadCodec = payloadCodec;
+	}
+	
+	public boolean encode(List<BinaryFile> binaryFiles) throws IOException
+	{
+		Set<String> names = new HashSet<>();
+		
+		long dataStart = ARCHIVE_HEADER_SIZE + CHECKSUM_SIZE;
+		
+		for (BinaryFile binaryFile : binaryFiles)
+		{
+			if (!names.add(binaryFile.getName()))
+			{
+				throw new IOException("The archive can not contain two files named \"" + binaryFile.getName() + "\".");
+			}
+			
+			int nameLength = binaryFile.getNullTerminatedName().length - 1;
+			
+			if (nameLength > MAX_NAME_LENGTH)
+			{
+				throw new IOException("The name of the file \"" + binaryFile.getName() + "\" is too long.");
+			}
+			
+			dataStart = dataStart + ENTRY_SIZE + nameLength;
+		}
+		
+		List<ArchiveEntry> archiveEntries = new ArrayList<>();
+		
+		long offset = dataStart;
+		
+		for (BinaryFile binaryFile : binaryFiles)
+		{
+			PayloadCodec payloadCodec = this.payloadCodec;
+			
+			if (payloadCodec != PayloadCodec.NONE)
+			{
+				try (InputStream inputStream = openInputStream(binaryFile))
+				{
+					byte[] sample = PayloadCodec.readSample(inputStream);
+					
+					if (!payloadCodec.isWorthwhile(sample, 0, sample.length))
+					{
+						payloadCodec = PayloadCodec.NONE;
+					}
+				}
+			}
+			
+			Crc32c checksum = new Crc32c();
+			
+			long storedSize = 0;
+			
+			try (InputStream inputStream = payloadCodec.compress(openInputStream(binaryFile)))
+			{
+				byte[] buffer = new byte[64 * 1024];
+				
+				int count = inputStream.read(buffer);
+				
+				while (count >= 0)
+				{
+					checksum.update(buffer, 0, count);
+					
+					storedSize = storedSize + count;
+					
+					count = inputStream.read(buffer);
+				}
+			}
+			
+			long size = binaryFile.isEmpty() ? 0 : binaryFile.getSize();
+			
+			archiveEntries.add(new ArchiveEntry(binaryFile.getName(), payloadCodec, offset, storedSize, size, checksum.getValue()));
+			
+			offset = offset + storedSize;
+		}
+		
+		byte[] index = encodeIndex(archiveEntries);
+		
+		PayloadSource payloadSource = () -> 
+		{
+			Vector<InputStream> inputStreams = new Vector<>();
+			
+			inputStreams.add(new ByteArrayInputStream(index));
+			
+			for (int i = 0; i < archiveEntries.size(); i++)
+			{
+				inputStreams.add(archiveEntries.get(i).getPayloadCodec().compress(openInputStream(binaryFiles.get(i))));
+			}
+			
+			return new SequenceInputStream(inputStreams.elements());
+		};
+		
+		return this.fileEncoder.encode(new BinaryFile(payloadSource, offset, ""), PayloadCodec.NONE);
+	}
+	
+	public List<ArchiveEntry> list() throws IOException
+	{
+		return list(this.fileEncoder.decode());
+	}
+	
+	public BinaryFile extract(String name) throws IOException
+	{
+		BinaryFile binaryFile = this.fileEncoder.decode();
+		
+		List<ArchiveEntry> archiveEntries = list(binaryFile);
+		
+		if (archiveEntries != null)
+		{
+			for (ArchiveEntry archiveEntry : archiveEntries)
+			{
+				if (archiveEntry.getName().equals(name))
+				{
+					return extract(binaryFile, archiveEntry);
+				}
+			}
+		}
+		
+		return new BinaryFile((byte[])null);
+	}
+	
+	public static boolean isArchive(BinaryFile binaryFile) throws IOException
+	{
+		if (binaryFile.isEmpty() || binaryFile.getSize() < ARCHIVE_HEADER_SIZE + CHECKSUM_SIZE)
+		{
+			return false;
+		}
+		
+		byte[] magic = new byte[ARCHIVE_MAGIC.length];
+		
+		try (InputStream inputStream = binaryFile.openInputStream())
+		{
+			if (!readFully(inputStream, magic, magic.length))
+			{
+				return false;
+			}
+		}
+		
+		for (int i = 0; i < ARCHIVE_MAGIC.length; i++)
+		{
+			if (magic[i] != ARCHIVE_MAGIC[i])
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	public static List<ArchiveEntry> list(BinaryFile binaryFile) throws IOException
+	{
+		if (!isArchive(binaryFile))
+		{
+			return null;
+		}
+		
+		try (InputStream inputStream = binaryFile.openInputStream())
+		{
+			byte[] header = new byte[ARCHIVE_HEADER_SIZE];
+			
+			if (!readFully(inputStream, header, header.length))
+			{
+				return null;
+			}
+			
+			ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+			
+			headerBuffer.position(ARCHIVE_MAGIC.length);
+			
+			long count = headerBuffer.getInt() & 0xFFFFFFFFL;
+			
+			long indexSize = headerBuffer.getInt() & 0xFFFFFFFFL;
+			
+			long dataStart = ARCHIVE_HEADER_SIZE + indexSize + CHECKSUM_SIZE;
+			
+			if (dataStart > binaryFile.getSize() || count * ENTRY_SIZE > indexSize)
+			{
+				throw new IOException("The index of the archive is corrupted.");
+			}
+			
+			byte[] index = new byte[(int)indexSize + CHECKSUM_SIZE];
+			
+			if (!readFully(inputStream, index, index.length))
+			{
+				throw new IOException("The index of the archive is corrupted.");
+			}
+			
+			Crc32c checksum = new Crc32c();
+			
+			checksum.update(header, 0, header.length);
+			
+			checksum.update(index, 0, (int)indexSize);
+			
+			if (checksum.getValue() != ByteEncoder.decodeChecksum(index, (int)indexSize))
+			{
+				throw new IOException("The index of the archive is corrupted.");
+			}
+			
+			ByteBuffer indexBuffer = ByteBuffer.wrap(index, 0, (int)indexSize).order(ByteOrder.LITTLE_ENDIAN);
+			
+			List<ArchiveEntry> archiveEntries = new ArrayList<>();
+			
+			for (long i = 0; i < count; i++)
+			{
+				if (indexBuffer.remaining() < ENTRY_SIZE)
+				{
+					throw new IOException("The index of the archive is corrupted.");
+				}
+				
+				int nameLength = indexBuffer.getShort() & 0xFFFF;
+				
+				PayloadCodec payloadCodec = PayloadCodec.fromId(indexBuffer.get());
+				
+				long offset = indexBuffer.getLong();
+				
+				long storedSize = indexBuffer.getLong();
+				
+				long size = indexBuffer.getLong();
+				
+				long entryChecksum = indexBuffer.getInt() & 0xFFFFFFFFL;
+				
+				if (payloadCodec == null || nameLength > indexBuffer.remaining() || offset < dataStart || storedSize < 0 || storedSize > binaryFile.getSize() - offset || size < 0)
+				{
+					throw new IOException("The index of the archive is corrupted.");
+				}
+				
+				byte[] name = new byte[nameLength];
+				
+				indexBuffer.get(name);
+				
+				archiveEntries.add(new ArchiveEntry(new String(name, StandardCharsets.UTF_8), payloadCodec, offset, storedSize, size, entryChecksum));
+			}
+			
+			return archiveEntries;
+		}
+	}
+	
+	public static BinaryFile extract(BinaryFile binaryFile, ArchiveEntry archiveEntry)
+	{
+		PayloadSource payloadSource = () -> archiveEntry.getPayloadCodec().decompress(new ChecksumInputStream(ShardEncoder.openSlice(binaryFile, archiveEntry.getOffset(), archiveEntry.getStoredSize()), archiveEntry));
+		
+		return new BinaryFile(payloadSource, archiveEntry.getSize(), archiveEntry.getName());
+	}
+	
+	static int getHeaderSize()
+	{
+		return ARCHIVE_HEADER_SIZE + CHECKSUM_SIZE;
+	}
+	
+	static long getRequiredSpace(BinaryFile binaryFile)
+	{
+		return ENTRY_SIZE + binaryFile.getNullTerminatedName().length - 1 + (binaryFile.isEmpty() ? 0 : binaryFile.getSize());
+	}
+	
+	private static byte[] encodeIndex(List<ArchiveEntry> archiveEntries)
+	{
+		int indexSize = 0;
+		
+		for (ArchiveEntry archiveEntry : archiveEntries)
+		{
+			indexSize = indexSize + ENTRY_SIZE + archiveEntry.getName().getBytes(StandardCharsets.UTF_8).length;
+		}
+		
+		ByteBuffer index = ByteBuffer.allocate(ARCHIVE_HEADER_SIZE + indexSize + CHECKSUM_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		
+		index.put(ARCHIVE_MAGIC);
+		index.putInt(archiveEntries.size());
+		index.putInt(indexSize);
+		
+		for (ArchiveEntry archiveEntry : archiveEntries)
+		{
+			byte[] name = archiveEntry.getName().getBytes(StandardCharsets.UTF_8);
+			
+			index.putShort((short)name.length);
+			index.put((byte)archiveEntry.getPayloadCodec().getId());
+			index.putLong(archiveEntry.getOffset());
+			index.putLong(archiveEntry.getStoredSize());
+			index.putLong(archiveEntry.getSize());
+			index.putInt((int)archiveEntry.getChecksum());
+			index.put(name);
+		}
+		
+		Crc32c checksum = new Crc32c();
+		
+		checksum.update(index.array(), 0, index.position());
+		
+		index.putInt((int)checksum.getValue());
+		
+		return index.array();
+	}
+	
+	private static InputStream openInputStream(BinaryFile binaryFile) throws IOException
+	{
+		InputStream inputStream = binaryFile.openInputStream();
+		
+		if (inputStream == null)
+		{
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		
+		return inputStream;
+	}
+	
+	private static boolean readFully(InputStream inputStream, byte[] bytes, int length) throws IOException
+	{
+		int offset = 0;
+		
+		while (offset < length)
+		{
+			int count = inputStream.read(bytes, offset, length - offset);
+			
+			if (count < 0)
+			{
+				return false;
+			}
+			
+			offset = offset + count;
+		}
+		
+		return true;
+	}
+	
+	private static class ChecksumInputStream extends FilterInputStream
+	{
+		private ArchiveEntry archiveEntry;
+		
+		private Crc32c checksum;
+		
+		private long position;
+		
+		public ChecksumInputStream(InputStream inputStream, ArchiveEntry archiveEntry)
+		{
+			super(inputStream);
+			
+			this.archiveEntry = archiveEntry;
+			
+			this.checksum = new Crc32c();
+			
+			this.position = 0;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			int count = this.in.read(bytes, offset, length);
+			
+			if (count > 0)
+			{
+				this.checksum.update(bytes, offset, count);
+				
+				this.position = this.position + count;
+			}
+			
+			if ((count < 0 || this.position == this.archiveEntry.getStoredSize()) && length > 0)
+			{
+				if (this.position != this.archiveEntry.getStoredSize() || this.checksum.getValue() != this.archiveEntry.getChecksum())
+				{
+					throw new IOException("The file \"" + this.archiveEntry.getName() + "\" in the archive is corrupted.");
+				}
+			}
+			
+			return count;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException
+		{
+			byte[] buffer = new byte[(int)Math.max(Math.min(n, 64 * 1024), 1)];
+			
+			long skipped = 0;
+			
+			while (skipped < n)
+			{
+				int count = this.read(buffer, 0, (int)Math.min(buffer.length, n - skipped));
+				
+				if (count < 0)
+				{
+					break;
+				}
+				
+				skipped = skipped + count;
+			}
+			
+			return skipped;
+		}
+		
+		@Override
+		public boolean markSupported()
+		{
+			return false;
+		}
+	}
+}
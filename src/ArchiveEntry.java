@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+public class ArchiveEntry
+{
+	private String name;
+	
+	private PayloadCodec payloadCodec;
+	
+	private long offset;
+	
+	private long storedSize;
+	
+	private long size;
+	
+	private long checksum;
+	
+	public ArchiveEntry(String name, PayloadCodec payloadCodec, long offset, long storedSize, long size, long checksum)
+	{
+		this.name = name;
+		
+		this.payloadCodec = payloadCodec;
+		
+		this.offset = offset;
+		
+		this.storedSize = storedSize;
+		
+		this.size = size;
+		
+		this.checksum = checksum;
+	}
+	
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public long getOffset()
+	{
+		return this.offset;
+	}
+	
+	public long getStoredSize()
+	{
+		return this.storedSize;
+	}
+	
+	public long getSize()
+	{
+		return this.size;
+	}
+	
+	public long getChecksum()
+	{
+		return this.checksum;
+	}
+}
@@ -0,0 +1,808 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+public class BandFileEncoder
+{
+	private static final long BAND_MEMORY = 64L * 1024 * 1024;
+	
+	private File file;
+	
+	private int width;
+	
+	private int height;
+	
+	private boolean alpha;
+	
+	private int bandHeight;
+	
+	private EmbeddingProfile embeddingProfile;
+	
+	private PayloadCodec payloadCodec;
+	
+	private ForkJoinPool forkJoinPool;
+	
+	private int compressionLevel;
+	
+	private PngFilter pngFilter;
+	
+	private int chunkSize;
+	
+	public BandFileEncoder(File file) throws IOException
+	{
+		this.file = file;
+		
+		try (ImageBandReader imageBandReader = new ImageBandReader(file))
+		{
+			this.width = imageBandReader.getWidth();
+			
+			this.height = imageBandReader.getHeight();
+			
+			this.alpha = imageBandReader.hasAlpha();
+		}
+		
+		this.setBandHeight((int)Math.min(BAND_MEMORY / 4 / this.width, Integer.MAX_VALUE));
+		
+		this.embeddingProfile = EmbeddingProfile.DEFAULT;
+		
+		this.payloadCodec = PayloadCodec.NONE;
+		
+		this.forkJoinPool = ForkJoinPool.commonPool();
+		
+		this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+		
+		this.pngFilter = PngFilter.ADAPTIVE;
+		
+		this.chunkSize = 0;
+	}
+	
+	public int getWidth()
+	{
+		return this.width;
+	}
+	
+	public int getHeight()
+	{
+		return this.height;
+	}
+	
+	public int getBandHeight()
+	{
+		return this.bandHeight;
+	}
+	
+	public void setBandHeight(int bandHeight)
+	{
+		this.bandHeight = Math.max((bandHeight + 7) / 8 * 8, 8);
+	}
+	
+	public EmbeddingProfile getEmbeddingProfile()
+	{
+		return this.embeddingProfile;
+	}
+	
+	public void setEmbeddingProfile(EmbeddingProfile embeddingProfile)
+	{
+		this.embeddingProfile = embeddingProfile;
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public void setPayloadCodec(PayloadCodec payloadCodec)
+	{
+		this.payloadCodec = payloadCodec;
+	}
+	
+	public ForkJoinPool getForkJoinPool()
+	{
+		return this.forkJoinPool;
+	}
+	
+	public void setForkJoinPool(ForkJoinPool forkJoinPool)
+	{
+		this.forkJoinPool = forkJoinPool;
+	}
+	
+	public int getCompressionLevel()
+	{
+		return this.compressionLevel;
+	}
+	
+	public void setCompressionLevel(int compressionLevel)
+	{
+		this.compressionLevel = compressionLevel;
+	}
+	
+	public PngFilter getPngFilter()
+	{
+		return this.pngFilter;
+	}
+	
+	public void setPngFilter(PngFilter pngFilter)
+	{
+		this.pngFilter = pngFilter;
+	}
+	
+	public int getChunkSize()
+	{
+		return this.chunkSize;
+	}
+	
+	public void setChunkSize(int chunkSize)
+	{
+		if (chunkSize != 0 && (chunkSize < ByteEncoder.MIN_CHUNK_SIZE || chunkSize > ByteEncoder.MAX_CHUNK_SIZE))
+		{
+			throw new IllegalArgumentException("The chunk size must be 0 or between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		this.chunkSize = chunkSize;
+	}
+	
+	private long getRawCapacity(PayloadCodec payloadCodec)
+	{
+		return this.getRawCapacity(this.embeddingProfile, payloadCodec);
+	}
+	
+	private long getRawCapacity(EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec)
+	{
+		long pixels = (long)this.width * this.height - RawByteEncoder.getFirstPixel(embeddingProfile, payloadCodec);
+		
+		long size = Math.max(pixels, 0) * embeddingProfile.getBitsPerPixel();
+		
+		return size / 8;
+	}
+	
+	public long getCapacity()
+	{
+		return this.getCapacity(this.payloadCodec);
+	}
+	
+	private long getCapacity(PayloadCodec payloadCodec)
+	{
+		long capacity = Math.min(Math.max(this.getRawCapacity(payloadCodec) - ByteEncoder.getHeaderSize(), 0), ByteEncoder.getMaxPayloadLength());
+		
+		if (this.chunkSize > 0)
+		{
+			capacity = ByteEncoder.getChunkedCapacity(this.getRawCapacity(payloadCodec), this.chunkSize);
+		}
+		
+		BinaryFile binaryFile = new BinaryFile((byte[])null, "");
+		
+		return Math.max(capacity - binaryFile.getRequiredSpace(), 0);
+	}
+	
+	public long getEstimatedCapacity(BinaryFile binaryFile) throws IOException
+	{
+		return this.payloadCodec.getEstimatedCapacity(this.getCapacity(), binaryFile);
+	}
+	
+	public boolean encode(BinaryFile binaryFile, File file) throws IOException
+	{
+		if (this.embeddingProfile.isScattered())
+		{
+			throw new IOException("Scattered hidden data needs the whole image and can not be written in bands.");
+		}
+		
+		PayloadCodec payloadCodec = this.payloadCodec;
+		
+		long payloadSize = binaryFile.isEmpty() ? 0 : binaryFile.getSize();
+		
+		if (payloadCodec != PayloadCodec.NONE)
+		{
+			try (InputStream inputStream = this.openInputStream(binaryFile))
+			{
+				byte[] sample = PayloadCodec.readSample(inputStream);
+				
+				if (!payloadCodec.isWorthwhile(sample, 0, sample.length))
+				{
+					payloadCodec = PayloadCodec.NONE;
+				}
+			}
+		}
+		
+		if (payloadCodec != PayloadCodec.NONE)
+		{
+			payloadSize = PayloadCodec.getHeaderSize();
+			
+			try (InputStream inputStream = payloadCodec.compress(this.openInputStream(binaryFile)))
+			{
+				byte[] buffer = new byte[64 * 1024];
+				
+				int count = inputStream.read(buffer);
+				
+				while (count >= 0)
+				{
+					payloadSize = payloadSize + count;
+					
+					count = inputStream.read(buffer);
+				}
+			}
+		}
+		
+		byte[] nullTerminatedName = binaryFile.getNullTerminatedName();
+		
+		if (nullTerminatedName.length + payloadSize > this.getCapacity(payloadCodec) + 1)
+		{
+			return false;
+		}
+		
+		String fileExtension = "";
+		
+		String fileName = file.getName();
+		
+		if (fileName.contains(".") && fileName.lastIndexOf(".") != 0)
+		{
+			fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+		}
+		else
+		{
+			fileExtension = "png";
+			
+			file = new File(file.getPath() + ".png");
+		}
+		
+		long contentSize = nullTerminatedName.length + payloadSize;
+		
+		byte[] header = this.chunkSize > 0 ? ByteEncoder.encodeChunkedHeader(this.chunkSize, contentSize) : ByteEncoder.encodeHeader(contentSize);
+		
+		byte[] codecHeader = new byte[0];
+		
+		if (payloadCodec != PayloadCodec.NONE)
+		{
+			codecHeader = PayloadCodec.encodeHeader(binaryFile.getSize());
+		}
+		
+		byte[] prefix = new byte[nullTerminatedName.length + codecHeader.length];
+		
+		System.arraycopy(nullTerminatedName, 0, prefix, 0, nullTerminatedName.length);
+		
+		System.arraycopy(codecHeader, 0, prefix, nullTerminatedName.length, codecHeader.length);
+		
+		InputStream contentInputStream = new SequenceInputStream(new ByteArrayInputStream(prefix), payloadCodec.compress(this.openInputStream(binaryFile)));
+		
+		long size = header.length + contentSize;
+		
+		if (this.chunkSize > 0)
+		{
+			contentInputStream = new ChunkFramingInputStream(contentInputStream, this.chunkSize);
+			
+			size = ByteEncoder.getFramedSize(contentSize, this.chunkSize);
+		}
+		
+		int firstPixel = RawByteEncoder.getFirstPixel(this.embeddingProfile, payloadCodec);
+		
+		try (InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(header), contentInputStream); BandReader bandReader = this.openBandReader(); BandWriter bandWriter = this.createBandWriter(file, fileExtension))
+		{
+			byte[] buffer = new byte[(int)Math.min((long)this.width * this.bandHeight * this.embeddingProfile.getBitsPerPixel() / 8, size)];
+			
+			long position = 0;
+			
+			for (int y = 0; y < this.height; y = y + this.bandHeight)
+			{
+				BufferedImage band = this.readBand(bandReader, y, this.bandHeight, this.embeddingProfile.isAlpha());
+				
+				if (y == 0 && RawByteEncoder.isProfileHeaderRequired(this.embeddingProfile, payloadCodec))
+				{
+					byte[] profileHeader = RawByteEncoder.encodeProfileHeader(this.embeddingProfile, payloadCodec);
+					
+					new LsbRaster(band).write(0, profileHeader, 0, profileHeader.length);
+				}
+				
+				if (position < size)
+				{
+					LsbRaster lsbRaster = new LsbRaster(band, this.embeddingProfile, y == 0 ? firstPixel : 0);
+					
+					int length = (int)Math.min(lsbRaster.getBitCapacity() / 8, size - position);
+					
+					readFully(inputStream, buffer, length);
+					
+					lsbRaster.write(0, buffer, 0, length, this.forkJoinPool);
+					
+					position = position + length;
+				}
+				
+				bandWriter.write(band);
+			}
+		}
+		
+		return true;
+	}
+	
+	public BinaryFile decode() throws IOException
+	{
+		int headerSize = ByteEncoder.getHeaderSize();
+		
+		byte[] profileHeader = this.readProfileHeader();
+		
+		EmbeddingProfile embeddingProfile = this.decodeEmbeddingProfile(profileHeader);
+		
+		PayloadCodec payloadCodec = this.decodePayloadCodec(profileHeader);
+		
+		if (embeddingProfile.isScattered())
+		{
+			throw new IOException("Scattered hidden data needs the whole image and can not be read in bands.");
+		}
+		
+		long rawCapacity = this.getRawCapacity(embeddingProfile, payloadCodec);
+		
+		int chunkedHeaderSize = ByteEncoder.getChunkedHeaderSize();
+		
+		byte[] header = new byte[(int)Math.min(chunkedHeaderSize, Math.max(rawCapacity, headerSize))];
+		
+		try (BandInputStream bandInputStream = new BandInputStream(embeddingProfile, payloadCodec, 0, rawCapacity))
+		{
+			readFully(bandInputStream, header, header.length);
+		}
+		
+		long[] values = new long[2];
+		
+		long size;
+		
+		PayloadSource contentSource;
+		
+		if (ByteEncoder.decodeChunkedHeader(header, values) && ByteEncoder.getFramedSize(values[1], (int)values[0]) <= rawCapacity)
+		{
+			int chunkSize = (int)values[0];
+			
+			long chunkedSize = values[1];
+			
+			long end = ByteEncoder.getFramedSize(chunkedSize, chunkSize);
+			
+			size = chunkedSize;
+			
+			contentSource = () -> new ChunkInputStream(new BandInputStream(embeddingProfile, payloadCodec, chunkedHeaderSize, end), chunkSize, chunkedSize);
+		}
+		else
+		{
+			long end = headerSize + ByteEncoder.decodeHeader(header);
+			
+			size = end <= rawCapacity ? end - headerSize : 0;
+			
+			contentSource = () -> new BandInputStream(embeddingProfile, payloadCodec, headerSize, end);
+		}
+		
+		if (size > 0)
+		{
+			try (InputStream contentInputStream = contentSource.openInputStream())
+			{
+				ByteArrayOutputStream fileName = new ByteArrayOutputStream();
+				
+				int b = contentInputStream.read();
+				
+				while (b > 0 && fileName.size() < size)
+				{
+					fileName.write(b);
+					
+					b = contentInputStream.read();
+				}
+				
+				if (b == 0)
+				{
+					long start = fileName.size() + 1;
+					
+					long payloadSize = size - start;
+					
+					if (payloadCodec != PayloadCodec.NONE)
+					{
+						byte[] codecHeader = new byte[PayloadCodec.getHeaderSize()];
+						
+						if (size - start < codecHeader.length)
+						{
+							return new BinaryFile((byte[])null);
+						}
+						
+						readFully(contentInputStream, codecHeader, codecHeader.length);
+						
+						start = start + codecHeader.length;
+						
+						payloadSize = PayloadCodec.decodeHeader(codecHeader);
+					}
+					
+					long payloadStart = start;
+					
+					PayloadSource payloadSource = () -> 
+					{
+						InputStream inputStream = contentSource.openInputStream();
+						
+						if (inputStream.skip(payloadStart) != payloadStart)
+						{
+							throw new IOException("The hidden data has changed.");
+						}
+						
+						return payloadCodec.decompress(inputStream);
+					};
+					
+					return new BinaryFile(payloadSource, payloadSize, new String(fileName.toByteArray(), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		
+		return new BinaryFile((byte[])null);
+	}
+	
+	public EmbeddingProfile decodeEmbeddingProfile() throws IOException
+	{
+		return this.decodeEmbeddingProfile(this.readProfileHeader());
+	}
+	
+	public PayloadCodec decodePayloadCodec() throws IOException
+	{
+		return this.decodePayloadCodec(this.readProfileHeader());
+	}
+	
+	private EmbeddingProfile decodeEmbeddingProfile(byte[] profileHeader)
+	{
+		EmbeddingProfile embeddingProfile = profileHeader != null ? RawByteEncoder.decodeProfileHeader(profileHeader) : null;
+		
+		return embeddingProfile != null ? embeddingProfile : EmbeddingProfile.DEFAULT;
+	}
+	
+	private PayloadCodec decodePayloadCodec(byte[] profileHeader)
+	{
+		if (profileHeader == null || RawByteEncoder.decodeProfileHeader(profileHeader) == null)
+		{
+			return PayloadCodec.NONE;
+		}
+		
+		return RawByteEncoder.decodePayloadCodec(profileHeader);
+	}
+	
+	private byte[] readProfileHeader() throws IOException
+	{
+		int profileHeaderSize = RawByteEncoder.getProfileHeaderSize();
+		
+		LsbRaster profileRaster;
+		
+		try (BandReader bandReader = this.openBandReader())
+		{
+			profileRaster = new LsbRaster(this.readBand(bandReader, 0, (profileHeaderSize * 8 / 3 + this.width - 1) / this.width, false));
+		}
+		
+		if (profileRaster.getBitCapacity() < profileHeaderSize * 8)
+		{
+			return null;
+		}
+		
+		byte[] profileHeader = new byte[profileHeaderSize];
+		
+		profileRaster.read(0, profileHeader, 0, profileHeader.length);
+		
+		return profileHeader;
+	}
+	
+	private InputStream openInputStream(BinaryFile binaryFile) throws IOException
+	{
+		InputStream inputStream = binaryFile.openInputStream();
+		
+		if (inputStream == null)
+		{
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		
+		return inputStream;
+	}
+	
+	private BandWriter createBandWriter(File file, String fileExtension) throws IOException
+	{
+		if (fileExtension.equals("bmp"))
+		{
+			if (this.embeddingProfile.isAlpha())
+			{
+				throw new IOException("The alpha channel can not be stored in a bitmap.");
+			}
+			
+			return new BmpBandWriter(file, this.width, this.height, this.embeddingProfile.getBitsPerChannel());
+		}
+		
+		if (fileExtension.equals("png"))
+		{
+			return new PngBandWriter(file, this.width, this.height, this.alpha || this.embeddingProfile.isAlpha(), this.compressionLevel, this.pngFilter);
+		}
+		
+		throw new IOException("The image format \"" + fileExtension + "\" can not be written in bands.");
+	}
+	
+	private BandReader openBandReader() throws IOException
+	{
+		try
+		{
+			return new PngBandReader(this.file);
+		}
+		catch (IOException e)
+		{
+			return new ImageBandReader(this.file);
+		}
+	}
+	
+	private BufferedImage readBand(BandReader bandReader, int y, int bandHeight, boolean alpha) throws IOException
+	{
+		return RawByteEncoder.toSupportedBufferedImage(bandReader.read(y, Math.min(bandHeight, this.height - y)), alpha);
+	}
+	
+	private static void readFully(InputStream inputStream, byte[] bytes, int length) throws IOException
+	{
+		int offset = 0;
+		
+		while (offset < length)
+		{
+			int count = inputStream.read(bytes, offset, length - offset);
+			
+			if (count < 0)
+			{
+				throw new IOException("Unexpected end of the data.");
+			}
+			
+			offset = offset + count;
+		}
+	}
+	
+	private static class ChunkFramingInputStream extends FilterInputStream
+	{
+		private int chunkSize;
+		
+		private Crc32c checksum;
+		
+		private int chunkPosition;
+		
+		private byte[] trailer;
+		
+		private int trailerPosition;
+		
+		public ChunkFramingInputStream(InputStream inputStream, int chunkSize)
+		{
+			super(inputStream);
+			
+			this.chunkSize = chunkSize;
+			
+			this.checksum = new Crc32c();
+			
+			this.chunkPosition = 0;
+			
+			this.trailer = null;
+			
+			this.trailerPosition = 0;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+			
+			if (this.trailer == null)
+			{
+				int count = this.in.read(bytes, offset, Math.min(length, this.chunkSize - this.chunkPosition));
+				
+				if (count >= 0)
+				{
+					this.checksum.update(bytes, offset, count);
+					
+					this.chunkPosition = this.chunkPosition + count;
+					
+					if (this.chunkPosition == this.chunkSize)
+					{
+						this.finishChunk();
+					}
+					
+					return count;
+				}
+				
+				if (this.chunkPosition == 0)
+				{
+					return -1;
+				}
+				
+				this.finishChunk();
+			}
+			
+			int count = Math.min(length, this.trailer.length - this.trailerPosition);
+			
+			System.arraycopy(this.trailer, this.trailerPosition, bytes, offset, count);
+			
+			this.trailerPosition = this.trailerPosition + count;
+			
+			if (this.trailerPosition == this.trailer.length)
+			{
+				this.trailer = null;
+			}
+			
+			return count;
+		}
+		
+		private void finishChunk()
+		{
+			this.trailer = ByteEncoder.encodeChecksum(this.checksum.getValue());
+			
+			this.trailerPosition = 0;
+			
+			this.checksum.reset();
+			
+			this.chunkPosition = 0;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException
+		{
+			throw new IOException("The framed data can not be skipped.");
+		}
+		
+		@Override
+		public boolean markSupported()
+		{
+			return false;
+		}
+	}
+	
+	private class BandInputStream extends InputStream
+	{
+		private EmbeddingProfile embeddingProfile;
+		
+		private PayloadCodec payloadCodec;
+		
+		private BandReader bandReader;
+		
+		private long position;
+		
+		private long end;
+		
+		private LsbRaster lsbRaster;
+		
+		private long bandStart;
+		
+		private long bandEnd;
+		
+		public BandInputStream(EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec, long start, long end)
+		{
+			this.embeddingProfile = embeddingProfile;
+			
+			this.payloadCodec = payloadCodec;
+			
+			this.bandReader = null;
+			
+			this.position = start;
+			
+			this.end = end;
+			
+			this.lsbRaster = null;
+			
+			this.bandStart = 0;
+			
+			this.bandEnd = 0;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+			
+			if (this.position >= this.end)
+			{
+				return -1;
+			}
+			
+			if (this.lsbRaster == null || this.position < this.bandStart || this.position >= this.bandEnd)
+			{
+				EmbeddingProfile embeddingProfile = this.embeddingProfile;
+				
+				int firstPixel = RawByteEncoder.getFirstPixel(embeddingProfile, this.payloadCodec);
+				
+				int bandHeight = BandFileEncoder.this.bandHeight;
+				
+				long origin = (long)firstPixel * embeddingProfile.getBitsPerPixel() / 8;
+				
+				long bandSize = (long)BandFileEncoder.this.width * bandHeight * embeddingProfile.getBitsPerPixel() / 8;
+				
+				long band = (this.position + origin) / bandSize;
+				
+				if (this.bandReader == null)
+				{
+					this.bandReader = BandFileEncoder.this.openBandReader();
+				}
+				
+				BufferedImage bufferedImage = BandFileEncoder.this.readBand(this.bandReader, (int)(band * bandHeight), bandHeight, embeddingProfile.isAlpha());
+				
+				this.lsbRaster = new LsbRaster(bufferedImage, embeddingProfile, band == 0 ? firstPixel : 0);
+				
+				this.bandStart = Math.max(band * bandSize - origin, 0);
+				
+				this.bandEnd = this.bandStart + this.lsbRaster.getBitCapacity() / 8;
+			}
+			
+			int count = (int)Math.min(length, Math.min(this.bandEnd, this.end) - this.position);
+			
+			this.lsbRaster.read((this.position - this.bandStart) * 8, bytes, offset, count, BandFileEncoder.this.forkJoinPool);
+			
+			this.position = this.position + count;
+			
+			return count;
+		}
+		
+		@Override
+		public long skip(long n)
+		{
+			long count = Math.max(Math.min(n, this.end - this.position), 0);
+			
+			this.position = this.position + count;
+			
+			return count;
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			if (this.bandReader != null)
+			{
+				this.bandReader.close();
+				
+				this.bandReader = null;
+			}
+		}
+	}
+}
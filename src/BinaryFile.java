@@ -22,24 +22,61 @@
  * SOFTWARE.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 public class BinaryFile
 {
+	private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+	
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	
 	private byte[] bytes;
 	
+	private PayloadSource payloadSource;
+	
+	private long size;
+	
 	private String name;
 	
 	private byte[] nullTerminatedName;
 	
 	public BinaryFile(File file) throws IOException
 	{
-		this.bytes = Files.readAllBytes(file.toPath());
+		this(file, file.getName());
+	}
+	
+	public BinaryFile(File file, String name) throws IOException
+	{
+		this.bytes = null;
+		
+		this.payloadSource = () -> Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ));
 		
-		this.name = file.getName();
+		this.size = Files.size(file.toPath());
+		
+		this.name = name;
+		
+		this.nullTerminatedName = (this.name + "\0").getBytes(StandardCharsets.UTF_8);
+	}
+	
+	public BinaryFile(PayloadSource payloadSource, long size, String name)
+	{
+		this.bytes = null;
+		
+		this.payloadSource = payloadSource;
+		
+		this.size = size;
+		
+		this.name = name;
 		
 		this.nullTerminatedName = (this.name + "\0").getBytes(StandardCharsets.UTF_8);
 	}
@@ -48,6 +85,10 @@ public class BinaryFile
 	{
 		this.bytes = bytes;
 		
+		this.payloadSource = null;
+		
+		this.size = bytes != null ? bytes.length : 0;
+		
 		this.name = name;
 		
 		this.nullTerminatedName = (this.name + "\0").getBytes(StandardCharsets.UTF_8);
@@ -57,6 +98,10 @@ public class BinaryFile
 	{
 		this.bytes = null;
 		
+		this.payloadSource = null;
+		
+		this.size = 0;
+		
 		this.name = "";
 		
 		if (data != null)
@@ -85,7 +130,9 @@ public class BinaryFile
 
 					System.arraycopy(data, fileName.length + 1, this.bytes, 0, this.bytes.length);
 					
-					this.name = new String(fileName);
+					this.size = this.bytes.length;
+					
+					this.name = new String(fileName, StandardCharsets.UTF_8);
 				}
 			}
 		}
@@ -95,22 +142,133 @@ public class BinaryFile
 	
 	public void save(File file) throws IOException
 	{
+		this.save(file, 0, this.size);
+	}
+	
+	public void save(File file, long offset, long length) throws IOException
+	{
+		if (!this.isEmpty())
+		{
+			try (OutputStream outputStream = Channels.newOutputStream(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)))
+			{
+				this.writeTo(outputStream, offset, length);
+			}
+		}
+	}
+	
+	public void writeTo(OutputStream outputStream) throws IOException
+	{
+		this.writeTo(outputStream, 0, this.size);
+	}
+	
+	public void writeTo(OutputStream outputStream, long offset, long length) throws IOException
+	{
+		if (offset < 0 || length < 0 || offset + length > this.size)
+		{
+			throw new IOException("The range exceeds the file \"" + this.name + "\".");
+		}
+		
 		if (this.bytes != null)
 		{
-			Files.write(file.toPath(), this.bytes);
+			outputStream.write(this.bytes, (int)offset, (int)length);
+		}
+		else if (this.payloadSource != null)
+		{
+			try (InputStream inputStream = this.payloadSource.openInputStream())
+			{
+				long skipped = 0;
+				
+				while (skipped < offset)
+				{
+					long count = inputStream.skip(offset - skipped);
+					
+					if (count <= 0)
+					{
+						if (inputStream.read() < 0)
+						{
+							throw new IOException("Unexpected end of the data.");
+						}
+						
+						count = 1;
+					}
+					
+					skipped = skipped + count;
+				}
+				
+				BufferPool bufferPool = BufferPool.getDefault();
+				
+				byte[] buffer = bufferPool.acquire((int)Math.max(Math.min(length, BUFFER_SIZE), 1));
+				
+				try
+				{
+					long remaining = length;
+					
+					while (remaining > 0)
+					{
+						int count = inputStream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+						
+						if (count < 0)
+						{
+							throw new IOException("Unexpected end of the data.");
+						}
+						
+						outputStream.write(buffer, 0, count);
+						
+						remaining = remaining - count;
+					}
+				}
+				finally
+				{
+					bufferPool.release(buffer);
+				}
+			}
 		}
 	}
 	
+	public InputStream openInputStream() throws IOException
+	{
+		if (this.bytes != null)
+		{
+			return new ByteArrayInputStream(this.bytes);
+		}
+		
+		if (this.payloadSource != null)
+		{
+			return this.payloadSource.openInputStream();
+		}
+		
+		return null;
+	}
+	
 	public boolean isEmpty()
 	{
-		return this.bytes == null;
+		return this.bytes == null && this.payloadSource == null;
 	}
 	
-	public byte[] getBytes()
+	public byte[] getBytes() throws IOException
 	{
+		if (this.bytes == null && this.payloadSource != null)
+		{
+			if (this.size > MAX_ARRAY_SIZE)
+			{
+				throw new IOException("The file \"" + this.name + "\" is too big to be held in memory.");
+			}
+			
+			ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream((int)this.size);
+			
+			this.writeTo(byteArrayOutputStream);
+			
+			return byteArrayOutputStream.toByteArray();
+		}
+		
 		return this.bytes;
 	}
 	
+	public long getSize()
+	{
+		return this.size;
+	}
+	
 	public String getName()
 	{
 		return this.name;
@@ -121,29 +279,36 @@ public class BinaryFile
 		return this.nullTerminatedName;
 	}
 	
-	public int getRequiredSpace()
+	public long getRequiredSpace()
 	{
-		int requiredSpace = this.nullTerminatedName.length;
+		long requiredSpace = this.nullTerminatedName.length;
 	
-		if (this.bytes != null)
+		if (!this.isEmpty())
 		{
-			requiredSpace = requiredSpace + this.bytes.length;
+			requiredSpace = requiredSpace + this.size;
 		}
 		
 		return requiredSpace;
 	}
 	
-	public byte[] getCombinedBytes()
+	public byte[] getCombinedBytes() throws IOException
 	{
-		int size = this.getRequiredSpace();
+		long size = this.getRequiredSpace();
 		
-		byte[] data = new byte[size];
+		if (size > MAX_ARRAY_SIZE)
+		{
+			throw new IOException("The file \"" + this.name + "\" is too big to be held in memory.");
+		}
+		
+		byte[] data = new byte[(int)size];
 		
 		System.arraycopy(this.nullTerminatedName, 0, data, 0, this.nullTerminatedName.length);
 
-		if (this.bytes != null)
+		byte[] bytes = this.getBytes();
+		
+		if (bytes != null)
 		{
-			System.arraycopy(this.bytes, 0, data, this.nullTerminatedName.length, this.bytes.length);
+			System.arraycopy(bytes, 0, data, this.nullTerminatedName.length, bytes.length);
 		}
 		
 		return data;
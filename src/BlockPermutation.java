@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class BlockPermutation
+{
+	private static final int ROUNDS = 4;
+	
+	private long blocks;
+	
+	private int halfBits;
+	
+	private long halfMask;
+	
+	private long[] roundKeys;
+	
+	public BlockPermutation(String key, long blocks)
+	{
+		if (blocks < 0)
+		{
+			throw new IllegalArgumentException("The number of blocks must not be negative.");
+		}
+		
+		this.blocks = blocks;
+		
+		int bits = 64 - Long.numberOfLeadingZeros(Math.max(blocks - 1, 1));
+		
+		this.halfBits = (bits + 1) / 2;
+		
+		this.halfMask = (1L << this.halfBits) - 1;
+		
+		ByteBuffer digest;
+		
+		try
+		{
+			digest = ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		
+		this.roundKeys = new long[ROUNDS];
+		
+		for (int round = 0; round < ROUNDS; round++)
+		{
+			this.roundKeys[round] = digest.getLong();
+		}
+	}
+	
+	public long getBlocks()
+	{
+		return this.blocks;
+	}
+	
+	public long permute(long block)
+	{
+		if (block < 0 || block >= this.blocks)
+		{
+			throw new IndexOutOfBoundsException("The block " + block + " is not one of the " + this.blocks + " blocks.");
+		}
+		
+		long value = this.encrypt(block);
+		
+		while (value >= this.blocks)
+		{
+			value = this.encrypt(value);
+		}
+		
+		return value;
+	}
+	
+	private long encrypt(long value)
+	{
+		long left = value >>> this.halfBits;
+		
+		long right = value & this.halfMask;
+		
+		for (long roundKey : this.roundKeys)
+		{
+			long next = left ^ (mix(right ^ roundKey) & this.halfMask);
+			
+			left = right;
+			
+			right = next;
+		}
+		
+		return (left << this.halfBits) | right;
+	}
+	
+	private static long mix(long value)
+	{
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class BmpBandWriter implements BandWriter
+{
+	private static final int HEADER_SIZE = 14 + 40;
+	
+	private OutputStream outputStream;
+	
+	private int width;
+	
+	private int height;
+	
+	private int rows;
+	
+	private int[] pixels;
+	
+	private byte[] row;
+	
+	private int preservedMask;
+	
+	public BmpBandWriter(File file, int width, int height, int preservedBits) throws IOException
+	{
+		this.outputStream = new BufferedOutputStream(new FileOutputStream(file), 256 * 1024);
+		
+		this.width = width;
+		
+		this.height = height;
+		
+		this.rows = 0;
+		
+		this.pixels = new int[width];
+		
+		this.row = new byte[(width * 3 + 3) / 4 * 4];
+		
+		this.preservedMask = (1 << preservedBits) - 1;
+		
+		long imageSize = (long)this.row.length * height;
+		
+		long fileSize = HEADER_SIZE + imageSize;
+		
+		byte[] header = new byte[HEADER_SIZE];
+		
+		header[0] = 'B';
+		header[1] = 'M';
+		
+		writeInt(header, 2, fileSize > 0xFFFFFFFFL ? 0 : (int)fileSize);
+		writeInt(header, 10, HEADER_SIZE);
+		writeInt(header, 14, 40);
+		writeInt(header, 18, width);
+		writeInt(header, 22, -height);
+		writeShort(header, 26, 1);
+		writeShort(header, 28, 24);
+		writeInt(header, 30, 0);
+		writeInt(header, 34, imageSize > 0xFFFFFFFFL ? 0 : (int)imageSize);
+		writeInt(header, 38, 2835);
+		writeInt(header, 42, 2835);
+		
+		this.outputStream.write(header);
+	}
+	
+	@Override
+	public void write(BufferedImage band) throws IOException
+	{
+		if (band.getWidth() != this.width || this.rows + band.getHeight() > this.height)
+		{
+			throw new IOException("The band does not fit into the image.");
+		}
+		
+		int preservedMask = this.preservedMask;
+		
+		for (int y = 0; y < band.getHeight(); y++)
+		{
+			band.getRGB(0, y, this.width, 1, this.pixels, 0, this.width);
+			
+			int index = 0;
+			
+			for (int x = 0; x < this.width; x++)
+			{
+				int argb = this.pixels[x];
+				
+				int b = (argb >> 0) & 0x000000FF;
+				int g = (argb >> 8) & 0x000000FF;
+				int r = (argb >> 16) & 0x000000FF;
+				int a = (argb >> 24) & 0x000000FF;
+				
+				r = (~preservedMask & (r * a / 0xFF) & 0x000000FF) | (preservedMask & r);
+				g = (~preservedMask & (g * a / 0xFF) & 0x000000FF) | (preservedMask & g);
+				b = (~preservedMask & (b * a / 0xFF) & 0x000000FF) | (preservedMask & b);
+				
+				this.row[index++] = (byte)b;
+				this.row[index++] = (byte)g;
+				this.row[index++] = (byte)r;
+			}
+			
+			this.outputStream.write(this.row);
+			
+			this.rows++;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		this.outputStream.close();
+		
+		if (this.rows != this.height)
+		{
+			throw new IOException("Only " + this.rows + " of " + this.height + " rows were written.");
+		}
+	}
+	
+	private static void writeInt(byte[] bytes, int offset, int value)
+	{
+		bytes[offset + 0] = (byte)(value >> 0);
+		bytes[offset + 1] = (byte)(value >> 8);
+		bytes[offset + 2] = (byte)(value >> 16);
+		bytes[offset + 3] = (byte)(value >> 24);
+	}
+	
+	private static void writeShort(byte[] bytes, int offset, int value)
+	{
+		bytes[offset + 0] = (byte)(value >> 0);
+		bytes[offset + 1] = (byte)(value >> 8);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BufferPool
+{
+	public static final int MIN_BUFFER_SIZE = 1024;
+	
+	public static final int MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+	
+	public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+	
+	private static final BufferPool DEFAULT = new BufferPool(DEFAULT_MAX_MEMORY);
+	
+	private long maxMemory;
+	
+	private AtomicLong memory;
+	
+	private List<Deque<byte[]>> buffers;
+	
+	public BufferPool(long maxMemory)
+	{
+		if (maxMemory < 0)
+		{
+			throw new IllegalArgumentException("The maximum memory of the buffer pool must not be negative.");
+		}
+		
+		this.maxMemory = maxMemory;
+		
+		this.memory = new AtomicLong();
+		
+		this.buffers = new ArrayList<>();
+		
+		for (int i = 0; i <= getSizeClass(MAX_BUFFER_SIZE); i++)
+		{
+			this.buffers.add(new ConcurrentLinkedDeque<>());
+		}
+	}
+	
+	public static BufferPool getDefault()
+	{
+		return DEFAULT;
+	}
+	
+	public long getMaxMemory()
+	{
+		return this.maxMemory;
+	}
+	
+	public long getMemory()
+	{
+		return this.memory.get();
+	}
+	
+	public byte[] acquire(int size)
+	{
+		if (size > MAX_BUFFER_SIZE)
+		{
+			return new byte[size];
+		}
+		
+		int sizeClass = getSizeClass(size);
+		
+		byte[] buffer = this.buffers.get(sizeClass).pollFirst();
+		
+		if (buffer == null)
+		{
+			return new byte[MIN_BUFFER_SIZE << sizeClass];
+		}
+		
+		this.memory.addAndGet(-buffer.length);
+		
+		return buffer;
+	}
+	
+	public void release(byte[] buffer)
+	{
+		if (buffer == null || buffer.length < MIN_BUFFER_SIZE || buffer.length > MAX_BUFFER_SIZE || Integer.bitCount(buffer.length) != 1)
+		{
+			return;
+		}
+		
+		if (this.memory.addAndGet(buffer.length) > this.maxMemory)
+		{
+			this.memory.addAndGet(-buffer.length);
+			
+			return;
+		}
+		
+		this.buffers.get(getSizeClass(buffer.length)).offerFirst(buffer);
+	}
+	
+	public void clear()
+	{
+		for (Deque<byte[]> deque : this.buffers)
+		{
+			byte[] buffer = deque.pollFirst();
+			
+			while (buffer != null)
+			{
+				this.memory.addAndGet(-buffer.length);
+				
+				buffer = deque.pollFirst();
+			}
+		}
+	}
+	
+	private static int getSizeClass(int size)
+	{
+		if (size <= MIN_BUFFER_SIZE)
+		{
+			return 0;
+		}
+		
+		return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+	}
+}
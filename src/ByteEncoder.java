@@ -22,22 +22,95 @@
  * SOFTWARE.
  */
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class ByteEncoder extends RawByteEncoder
 {
+	private static final int HEADER_SIZE = 4;
+	
+	private static final long MAX_PAYLOAD_LENGTH = 0xFFFFFFFFL;
+	
+	private static final byte[] CHUNKED_MAGIC = { (byte)0x89, 'L', 'S', 'B', 'C', '\r', '\n', 0x1A };
+	
+	private static final int CHUNKED_VERSION = 1;
+	
+	private static final int CHUNKED_HEADER_SIZE = CHUNKED_MAGIC.length + 1 + 1 + 4 + 8 + 4;
+	
+	private static final int CHECKSUM_SIZE = 4;
+	
+	public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+	
+	public static final int MIN_CHUNK_SIZE = 256;
+	
+	public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+	
+	private int chunkSize;
+	
 	public ByteEncoder(File file) throws IOException
 	{
 		super(file);
 	}
+	
+	public ByteEncoder(InputStream inputStream) throws IOException
+	{
+		super(inputStream);
+	}
+	
+	public ByteEncoder(BufferedImage bufferedImage) throws IOException
+	{
+		super(bufferedImage);
+	}
+	
+	public ByteEncoder(File file, CarrierCache carrierCache) throws IOException
+	{
+		super(file, carrierCache);
+	}
+	
+	public ByteEncoder(MappedBitmap mappedBitmap)
+	{
+		super(mappedBitmap);
+	}
+	
+	public ByteEncoder(ByteEncoder byteEncoder)
+	{
+		super(byteEncoder);
+		
+		this.chunkSize = byteEncoder.chunkSize;
+	}
+	
+	public int getChunkSize()
+	{
+		return this.chunkSize;
+	}
+	
+	public void setChunkSize(int chunkSize)
+	{
+		if (chunkSize != 0 && (chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE))
+		{
+			throw new IllegalArgumentException("The chunk size must be 0 or between " + MIN_CHUNK_SIZE + " and " + MAX_CHUNK_SIZE + ".");
+		}
+		
+		this.chunkSize = chunkSize;
+	}
 
 	@Override
-	public int getCapacity()
+	public long getCapacity()
 	{
-		int capacity = super.getCapacity();
+		long capacity = super.getCapacity();
+		
+		if (this.chunkSize > 0)
+		{
+			return getChunkedCapacity(capacity, this.chunkSize);
+		}
 		
-		return Math.max(capacity - 4, 0);
+		return Math.min(Math.max(capacity - HEADER_SIZE, 0), MAX_PAYLOAD_LENGTH);
 	}
 	
 	@Override
@@ -52,57 +125,550 @@ public class ByteEncoder extends RawByteEncoder
 				return false;
 			}
 			
-			byte b0 = (byte)((size >> 0) & 0xFF);
-			byte b1 = (byte)((size >> 8) & 0xFF);
-			byte b2 = (byte)((size >> 16) & 0xFF);
-			byte b3 = (byte)((size >> 24) & 0xFF);
+			if (this.chunkSize > 0)
+			{
+				try (OutputStream outputStream = this.openOutputStream())
+				{
+					outputStream.write(bytes);
+				}
+				catch (IOException e)
+				{
+					return false;
+				}
+				
+				return true;
+			}
+			
+			byte[] header = encodeHeader(size);
+			
+			super.encode(HEADER_SIZE, bytes, 0, size);
+			
+			super.encode(0, header, 0, header.length);
+		}
+		
+		return true;
+	}
+	
+	public boolean encodePayload(long position, byte[] bytes, int offset, int length)
+	{
+		long size = this.getPayloadLength();
+		
+		if (position < 0 || length < 0 || position + length > size)
+		{
+			return false;
+		}
+		
+		long[] values = this.decodeChunkedHeader();
+		
+		if (values == null)
+		{
+			return super.encode(HEADER_SIZE + position, bytes, offset, length);
+		}
+		
+		int chunkSize = (int)values[0];
+		
+		Crc32c checksum = new Crc32c();
+		
+		long end = position + length;
+		
+		while (position < end)
+		{
+			long chunkIndex = position / chunkSize;
+			
+			long chunkStart = chunkIndex * chunkSize;
+			
+			int chunkLength = (int)Math.min(chunkSize, size - chunkStart);
+			
+			long rawStart = CHUNKED_HEADER_SIZE + chunkIndex * (chunkSize + CHECKSUM_SIZE);
+			
+			byte[] chunk = super.decode(rawStart, chunkLength);
+			
+			int count = (int)Math.min(end - position, chunkStart + chunkLength - position);
 			
-			byte[] header = { b0, b1, b2, b3 };
+			System.arraycopy(bytes, offset, chunk, (int)(position - chunkStart), count);
 			
-			byte[] data = new byte[header.length + size];
+			checksum.reset();
 			
-			System.arraycopy(header, 0, data, 0, header.length);
+			checksum.update(chunk, 0, chunkLength);
 			
-			System.arraycopy(bytes, 0, data, header.length, size);
+			super.encode(rawStart, chunk, 0, chunkLength);
 			
-			return super.encode(data);
+			super.encode(rawStart + chunkLength, encodeChecksum(checksum.getValue()), 0, CHECKSUM_SIZE);
+			
+			position = position + count;
+			
+			offset = offset + count;
 		}
 		
 		return true;
 	}
 	
+	public long getPayloadLength()
+	{
+		long[] values = this.decodeChunkedHeader();
+		
+		if (values != null)
+		{
+			return values[1];
+		}
+		
+		byte[] header = super.decode(0, HEADER_SIZE);
+		
+		if (header != null)
+		{
+			long size = decodeHeader(header);
+			
+			if (size > 0 && size <= Math.min(Math.max(super.getCapacity() - HEADER_SIZE, 0), MAX_PAYLOAD_LENGTH))
+			{
+				return size;
+			}
+		}
+		
+		return 0;
+	}
+	
+	public boolean isChunked()
+	{
+		return this.decodeChunkedHeader() != null;
+	}
+	
+	private long[] decodeChunkedHeader()
+	{
+		byte[] header = super.decode(0, CHUNKED_HEADER_SIZE);
+		
+		long[] values = new long[2];
+		
+		if (header != null && decodeChunkedHeader(header, values) && values[1] > 0 && getFramedSize(values[1], (int)values[0]) <= super.getCapacity())
+		{
+			return values;
+		}
+		
+		return null;
+	}
+	
 	@Override
 	public byte[] decode()
 	{
-		byte[] data = super.decode();
+		long size = this.getPayloadLength();
+		
+		if (size > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("The hidden data of " + size + " bytes does not fit into an array and has to be read with openInputStream().");
+		}
+		
+		if (size > 0)
+		{
+			if (this.isChunked())
+			{
+				try
+				{
+					return this.extract(0, (int)size);
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			}
+			
+			return super.decode(HEADER_SIZE, (int)size);
+		}
+		
+		return null;
+	}
+	
+	public byte[] extract(long offset, int length) throws IOException
+	{
+		long size = this.getPayloadLength();
+		
+		if (size == 0)
+		{
+			return null;
+		}
+		
+		if (offset < 0 || length < 0 || offset + length > size)
+		{
+			throw new IllegalArgumentException("The range exceeds the hidden data.");
+		}
 		
-		byte[] bytes = null;
+		byte[] bytes = new byte[length];
 		
-		if (data != null)
+		try (InputStream inputStream = this.openInputStream())
 		{
-			if (data.length >= 4)
+			if (inputStream.skip(offset) != offset)
 			{
-				byte[] header = new byte[4];
+				throw new IOException("Unexpected end of the data.");
+			}
+			
+			int position = 0;
+			
+			while (position < length)
+			{
+				int count = inputStream.read(bytes, position, length - position);
+				
+				if (count < 0)
+				{
+					throw new IOException("Unexpected end of the data.");
+				}
 				
-				System.arraycopy(data, 0, header, 0, header.length);
+				position = position + count;
+			}
+		}
+		
+		return bytes;
+	}
+	
+	public OutputStream openOutputStream()
+	{
+		if (this.chunkSize > 0)
+		{
+			return new ChunkedPayloadOutputStream(this.chunkSize);
+		}
+		
+		return new PayloadOutputStream();
+	}
+	
+	public InputStream openInputStream()
+	{
+		long[] values = this.decodeChunkedHeader();
+		
+		if (values != null)
+		{
+			int chunkSize = (int)values[0];
+			
+			long size = values[1];
+			
+			return new ChunkInputStream(new PayloadInputStream(CHUNKED_HEADER_SIZE, getFramedSize(size, chunkSize) - CHUNKED_HEADER_SIZE), chunkSize, size);
+		}
+		
+		long size = this.getPayloadLength();
+		
+		if (size > 0)
+		{
+			return new PayloadInputStream(HEADER_SIZE, size);
+		}
+		
+		return null;
+	}
+	
+	static byte[] encodeHeader(long size)
+	{
+		byte b0 = (byte)((size >> 0) & 0xFF);
+		byte b1 = (byte)((size >> 8) & 0xFF);
+		byte b2 = (byte)((size >> 16) & 0xFF);
+		byte b3 = (byte)((size >> 24) & 0xFF);
+		
+		byte[] header = { b0, b1, b2, b3 };
+		
+		return header;
+	}
+	
+	static long decodeHeader(byte[] header)
+	{
+		long b0 = (((int)(header[0]) + 256) % 256) << 0;
+		long b1 = (((int)(header[1]) + 256) % 256) << 8;
+		long b2 = (((int)(header[2]) + 256) % 256) << 16;
+		long b3 = (long)(((int)(header[3]) + 256) % 256) << 24;
+		
+		return b0 | b1 | b2 | b3;
+	}
+	
+	static byte[] encodeChunkedHeader(int chunkSize, long size)
+	{
+		ByteBuffer header = ByteBuffer.allocate(CHUNKED_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		
+		header.put(CHUNKED_MAGIC);
+		header.put((byte)CHUNKED_VERSION);
+		header.put((byte)0);
+		header.putInt(chunkSize);
+		header.putLong(size);
+		
+		Crc32c checksum = new Crc32c();
+		
+		checksum.update(header.array(), 0, header.position());
+		
+		header.putInt((int)checksum.getValue());
+		
+		return header.array();
+	}
+	
+	static boolean decodeChunkedHeader(byte[] bytes, long[] values)
+	{
+		if (bytes.length < CHUNKED_HEADER_SIZE)
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < CHUNKED_MAGIC.length; i++)
+		{
+			if (bytes[i] != CHUNKED_MAGIC[i])
+			{
+				return false;
+			}
+		}
+		
+		ByteBuffer header = ByteBuffer.wrap(bytes, 0, CHUNKED_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		
+		header.position(CHUNKED_MAGIC.length);
+		
+		int version = header.get();
+		
+		int flags = header.get();
+		
+		int chunkSize = header.getInt();
+		
+		long size = header.getLong();
+		
+		Crc32c checksum = new Crc32c();
+		
+		checksum.update(bytes, 0, header.position());
+		
+		if ((header.getInt() & 0xFFFFFFFFL) != checksum.getValue())
+		{
+			return false;
+		}
+		
+		if (version != CHUNKED_VERSION || flags != 0 || chunkSize < MIN_CHUNK_SIZE || chunkSize > MAX_CHUNK_SIZE || size < 0)
+		{
+			return false;
+		}
+		
+		values[0] = chunkSize;
+		values[1] = size;
+		
+		return true;
+	}
+	
+	static byte[] encodeChecksum(long checksum)
+	{
+		return encodeHeader(checksum);
+	}
+	
+	static long decodeChecksum(byte[] bytes, int offset)
+	{
+		return ByteBuffer.wrap(bytes, offset, CHECKSUM_SIZE).order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xFFFFFFFFL;
+	}
+	
+	static long getFramedSize(long size, int chunkSize)
+	{
+		return CHUNKED_HEADER_SIZE + size + (size + chunkSize - 1) / chunkSize * CHECKSUM_SIZE;
+	}
+	
+	static long getChunkedCapacity(long rawCapacity, int chunkSize)
+	{
+		long available = rawCapacity - CHUNKED_HEADER_SIZE;
+		
+		if (available <= 0)
+		{
+			return 0;
+		}
+		
+		long chunks = available / (chunkSize + CHECKSUM_SIZE);
+		
+		long rest = available % (chunkSize + CHECKSUM_SIZE);
+		
+		return chunks * chunkSize + Math.max(rest - CHECKSUM_SIZE, 0);
+	}
+	
+	static int getHeaderSize()
+	{
+		return HEADER_SIZE;
+	}
+	
+	static int getChunkedHeaderSize()
+	{
+		return CHUNKED_HEADER_SIZE;
+	}
+	
+	static int getChecksumSize()
+	{
+		return CHECKSUM_SIZE;
+	}
+	
+	static long getMaxPayloadLength()
+	{
+		return MAX_PAYLOAD_LENGTH;
+	}
+	
+	private class PayloadOutputStream extends OutputStream
+	{
+		private long size;
+		
+		private boolean closed;
+		
+		public PayloadOutputStream()
+		{
+			this.size = 0;
+			
+			this.closed = false;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			byte[] bytes = { (byte)b };
+			
+			this.write(bytes, 0, bytes.length);
+		}
+		
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (this.closed)
+			{
+				throw new IOException("The stream is closed.");
+			}
+			
+			if (length > ByteEncoder.this.getCapacity() - this.size)
+			{
+				throw new IOException("The data exceeds the capacity of the image.");
+			}
+			
+			ByteEncoder.super.encode(HEADER_SIZE + this.size, bytes, offset, length);
+			
+			this.size = this.size + length;
+		}
+		
+		@Override
+		public void close()
+		{
+			if (!this.closed)
+			{
+				byte[] header = encodeHeader(this.size);
 				
-				int b0 = (((int)(header[0]) + 256) % 256) << 0;
-				int b1 = (((int)(header[1]) + 256) % 256) << 8;
-				int b2 = (((int)(header[2]) + 256) % 256) << 16;
-				int b3 = (((int)(header[3]) + 256) % 256) << 24;
+				ByteEncoder.super.encode(0, header, 0, header.length);
 				
+				this.closed = true;
+			}
+		}
+	}
+	
+	private class ChunkedPayloadOutputStream extends ChunkOutputStream
+	{
+		public ChunkedPayloadOutputStream(int chunkSize)
+		{
+			super(new RawOutputStream(CHUNKED_HEADER_SIZE), chunkSize);
+		}
+		
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length > getChunkedCapacity(ByteEncoder.super.getCapacity(), this.getChunkSize()) - this.getLength())
+			{
+				throw new IOException("The data exceeds the capacity of the image.");
+			}
+			
+			super.write(bytes, offset, length);
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			if (!this.isClosed())
+			{
+				super.close();
 				
-				int size = b0 | b1 | b2 | b3;
+				byte[] header = encodeChunkedHeader(this.getChunkSize(), this.getLength());
 				
-				if (size > 0 && size <= (data.length - header.length))
-				{
-					bytes = new byte[size];
-					
-					System.arraycopy(data, header.length, bytes, 0, bytes.length);
-				}
+				ByteEncoder.super.encode(0, header, 0, header.length);
 			}
 		}
+	}
+	
+	private class RawOutputStream extends OutputStream
+	{
+		private long position;
+		
+		public RawOutputStream(long position)
+		{
+			this.position = position;
+		}
 		
-		return bytes;
+		@Override
+		public void write(int b) throws IOException
+		{
+			byte[] bytes = { (byte)b };
+			
+			this.write(bytes, 0, bytes.length);
+		}
+		
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (!ByteEncoder.super.encode(this.position, bytes, offset, length))
+			{
+				throw new IOException("The data exceeds the capacity of the image.");
+			}
+			
+			this.position = this.position + length;
+		}
+	}
+	
+	private class PayloadInputStream extends InputStream
+	{
+		private long start;
+		
+		private long size;
+		
+		private long position;
+		
+		public PayloadInputStream(long start, long size)
+		{
+			this.start = start;
+			
+			this.size = size;
+			
+			this.position = 0;
+		}
+		
+		@Override
+		public int read()
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length)
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+			
+			int count = (int)Math.min(length, this.size - this.position);
+			
+			if (count <= 0)
+			{
+				return -1;
+			}
+			
+			ByteEncoder.super.decode(this.start + this.position, bytes, offset, count);
+			
+			this.position = this.position + count;
+			
+			return count;
+		}
+		
+		@Override
+		public long skip(long n)
+		{
+			long count = Math.max(Math.min(n, this.size - this.position), 0);
+			
+			this.position = this.position + count;
+			
+			return count;
+		}
+		
+		@Override
+		public int available()
+		{
+			return (int)Math.min(this.size - this.position, Integer.MAX_VALUE);
+		}
 	}
 }
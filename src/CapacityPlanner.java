@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+public class CapacityPlanner
+{
+	private EmbeddingProfile embeddingProfile;
+	
+	private PayloadCodec payloadCodec;
+	
+	private int chunkSize;
+	
+	public CapacityPlanner()
+	{
+		this.embeddingProfile = EmbeddingProfile.DEFAULT;
+		
+		this.payloadCodec = PayloadCodec.NONE;
+		
+		this.chunkSize = 0;
+	}
+	
+	public EmbeddingProfile getEmbeddingProfile()
+	{
+		return this.embeddingProfile;
+	}
+	
+	public void setEmbeddingProfile(EmbeddingProfile embeddingProfile)
+	{
+		this.embeddingProfile = embeddingProfile;
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public void setPayloadCodec(PayloadCodec payloadCodec)
+	{
+		this.payloadCodec = payloadCodec;
+	}
+	
+	public int getChunkSize()
+	{
+		return this.chunkSize;
+	}
+	
+	public void setChunkSize(int chunkSize)
+	{
+		if (chunkSize != 0 && (chunkSize < ByteEncoder.MIN_CHUNK_SIZE || chunkSize > ByteEncoder.MAX_CHUNK_SIZE))
+		{
+			throw new IllegalArgumentException("The chunk size must be 0 or between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		this.chunkSize = chunkSize;
+	}
+	
+	public long getCapacity(File file) throws IOException
+	{
+		BandFileEncoder bandFileEncoder = new BandFileEncoder(file);
+		
+		bandFileEncoder.setEmbeddingProfile(this.embeddingProfile);
+		
+		bandFileEncoder.setPayloadCodec(this.payloadCodec);
+		
+		bandFileEncoder.setChunkSize(this.chunkSize);
+		
+		return bandFileEncoder.getCapacity();
+	}
+	
+	public static long getRequiredSpace(List<BinaryFile> binaryFiles)
+	{
+		if (binaryFiles.size() == 1)
+		{
+			return binaryFiles.get(0).getRequiredSpace();
+		}
+		
+		long requiredSpace = new BinaryFile((byte[])null, "").getRequiredSpace() + ArchiveEncoder.getHeaderSize();
+		
+		for (BinaryFile binaryFile : binaryFiles)
+		{
+			requiredSpace = requiredSpace + ArchiveEncoder.getRequiredSpace(binaryFile);
+		}
+		
+		return requiredSpace;
+	}
+	
+	public Map<File, List<BinaryFile>> plan(List<BinaryFile> binaryFiles, List<File> carriers) throws IOException
+	{
+		List<File> files = new ArrayList<>(new LinkedHashSet<>(carriers));
+		
+		long[] capacities = new long[files.size()];
+		
+		List<Integer> candidates = new ArrayList<>();
+		
+		for (int carrier = 0; carrier < files.size(); carrier++)
+		{
+			capacities[carrier] = this.getCapacity(files.get(carrier));
+			
+			candidates.add(carrier);
+		}
+		
+		candidates.sort(Comparator.comparingLong((Integer carrier) -> capacities[carrier]).reversed());
+		
+		List<BinaryFile> payloads = new ArrayList<>(binaryFiles);
+		
+		payloads.sort(Comparator.comparingLong(BinaryFile::getRequiredSpace).reversed());
+		
+		List<List<BinaryFile>> assignments = new ArrayList<>(Collections.nCopies(files.size(), (List<BinaryFile>)null));
+		
+		long[] archiveSpaces = new long[files.size()];
+		
+		List<Integer> selection = new ArrayList<>();
+		
+		long emptyArchiveSpace = getRequiredSpace(Collections.emptyList());
+		
+		for (BinaryFile binaryFile : payloads)
+		{
+			int bestCarrier = -1;
+			
+			long bestRemaining = Long.MAX_VALUE;
+			
+			for (int carrier : selection)
+			{
+				long remaining = capacities[carrier] - archiveSpaces[carrier] - ArchiveEncoder.getRequiredSpace(binaryFile);
+				
+				if (remaining >= 0 && remaining < bestRemaining && !containsName(assignments.get(carrier), binaryFile.getName()))
+				{
+					bestCarrier = carrier;
+					
+					bestRemaining = remaining;
+				}
+			}
+			
+			if (bestCarrier < 0)
+			{
+				if (candidates.isEmpty() || capacities[candidates.get(0)] < binaryFile.getRequiredSpace())
+				{
+					return null;
+				}
+				
+				bestCarrier = candidates.remove(0);
+				
+				selection.add(bestCarrier);
+				
+				assignments.set(bestCarrier, new ArrayList<>());
+				
+				archiveSpaces[bestCarrier] = emptyArchiveSpace;
+			}
+			
+			assignments.get(bestCarrier).add(binaryFile);
+			
+			archiveSpaces[bestCarrier] = archiveSpaces[bestCarrier] + ArchiveEncoder.getRequiredSpace(binaryFile);
+		}
+		
+		selection.sort(Comparator.comparingLong((Integer carrier) -> getRequiredSpace(assignments.get(carrier))).reversed());
+		
+		for (int carrier : selection)
+		{
+			long requiredSpace = getRequiredSpace(assignments.get(carrier));
+			
+			int smallestCarrier = -1;
+			
+			for (int candidate : candidates)
+			{
+				if (capacities[candidate] >= requiredSpace && capacities[candidate] < capacities[carrier] && (smallestCarrier < 0 || capacities[candidate] < capacities[smallestCarrier]))
+				{
+					smallestCarrier = candidate;
+				}
+			}
+			
+			if (smallestCarrier >= 0)
+			{
+				candidates.remove((Integer)smallestCarrier);
+				
+				candidates.add(carrier);
+				
+				assignments.set(smallestCarrier, assignments.get(carrier));
+				
+				assignments.set(carrier, null);
+			}
+		}
+		
+		Map<File, List<BinaryFile>> plan = new LinkedHashMap<>();
+		
+		for (int carrier = 0; carrier < files.size(); carrier++)
+		{
+			if (assignments.get(carrier) != null)
+			{
+				plan.put(files.get(carrier), assignments.get(carrier));
+			}
+		}
+		
+		return plan;
+	}
+	
+	private static boolean containsName(List<BinaryFile> binaryFiles, String name)
+	{
+		for (BinaryFile binaryFile : binaryFiles)
+		{
+			if (binaryFile.getName().equals(name))
+			{
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,230 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CarrierCache
+{
+	public static final long DEFAULT_MAX_MEMORY = 256L * 1024 * 1024;
+	
+	private long maxMemory;
+	
+	private long memory;
+	
+	private long hits;
+	
+	private long misses;
+	
+	private long evictions;
+	
+	private LinkedHashMap<String, Carrier> carriers;
+	
+	public CarrierCache()
+	{
+		this(DEFAULT_MAX_MEMORY);
+	}
+	
+	public CarrierCache(long maxMemory)
+	{
+		if (maxMemory < 0)
+		{
+			throw new IllegalArgumentException("The maximum memory of the cache must not be negative.");
+		}
+		
+		this.maxMemory = maxMemory;
+		
+		this.carriers = new LinkedHashMap<>(16, 0.75f, true);
+	}
+	
+	public synchronized long getMaxMemory()
+	{
+		return this.maxMemory;
+	}
+	
+	public synchronized void setMaxMemory(long maxMemory)
+	{
+		if (maxMemory < 0)
+		{
+			throw new IllegalArgumentException("The maximum memory of the cache must not be negative.");
+		}
+		
+		this.maxMemory = maxMemory;
+		
+		this.evict();
+	}
+	
+	public synchronized long getMemory()
+	{
+		return this.memory;
+	}
+	
+	public synchronized int size()
+	{
+		return this.carriers.size();
+	}
+	
+	public synchronized long getHits()
+	{
+		return this.hits;
+	}
+	
+	public synchronized long getMisses()
+	{
+		return this.misses;
+	}
+	
+	public synchronized long getEvictions()
+	{
+		return this.evictions;
+	}
+	
+	public synchronized void clear()
+	{
+		this.carriers.clear();
+		
+		this.memory = 0;
+	}
+	
+	public FileEncoder open(File file) throws IOException
+	{
+		return new FileEncoder(file, this);
+	}
+	
+	BufferedImage getBufferedImage(File file) throws IOException
+	{
+		String path = file.getCanonicalPath();
+		
+		long lastModified = file.lastModified();
+		
+		long size = file.length();
+		
+		synchronized (this)
+		{
+			Carrier carrier = this.carriers.get(path);
+			
+			if (carrier != null)
+			{
+				if (carrier.lastModified == lastModified && carrier.size == size)
+				{
+					this.hits++;
+					
+					return carrier.bufferedImage;
+				}
+				
+				this.remove(path);
+			}
+			
+			this.misses++;
+		}
+		
+		BufferedImage bufferedImage = RawByteEncoder.readSupportedImage(file);
+		
+		long memory = getMemory(bufferedImage);
+		
+		synchronized (this)
+		{
+			Carrier carrier = this.carriers.get(path);
+			
+			if (carrier != null && carrier.lastModified == lastModified && carrier.size == size)
+			{
+				return carrier.bufferedImage;
+			}
+			
+			if (carrier != null)
+			{
+				this.remove(path);
+			}
+			
+			if (memory <= this.maxMemory)
+			{
+				this.carriers.put(path, new Carrier(bufferedImage, lastModified, size, memory));
+				
+				this.memory = this.memory + memory;
+				
+				this.evict();
+			}
+		}
+		
+		return bufferedImage;
+	}
+	
+	private void remove(String path)
+	{
+		Carrier carrier = this.carriers.remove(path);
+		
+		if (carrier != null)
+		{
+			this.memory = this.memory - carrier.memory;
+		}
+	}
+	
+	private void evict()
+	{
+		Iterator<Map.Entry<String, Carrier>> iterator = this.carriers.entrySet().iterator();
+		
+		while (this.memory > this.maxMemory && iterator.hasNext())
+		{
+			this.memory = this.memory - iterator.next().getValue().memory;
+			
+			iterator.remove();
+			
+			this.evictions++;
+		}
+	}
+	
+	static long getMemory(BufferedImage bufferedImage)
+	{
+		DataBuffer dataBuffer = bufferedImage.getRaster().getDataBuffer();
+		
+		return (long)dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+	}
+	
+	private static class Carrier
+	{
+		private BufferedImage bufferedImage;
+		
+		private long lastModified;
+		
+		private long size;
+		
+		private long memory;
+		
+		public Carrier(BufferedImage bufferedImage, long lastModified, long size, long memory)
+		{
+			this.bufferedImage = bufferedImage;
+			
+			this.lastModified = lastModified;
+			
+			this.size = size;
+			
+			this.memory = memory;
+		}
+	}
+}
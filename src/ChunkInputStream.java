@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class ChunkInputStream extends FilterInputStream
+{
+	private int chunkSize;
+	
+	private long length;
+	
+	private long position;
+	
+	private long rawPosition;
+	
+	private byte[] chunk;
+	
+	private long chunkIndex;
+	
+	private int chunkLength;
+	
+	private Crc32c checksum;
+	
+	public ChunkInputStream(InputStream inputStream, int chunkSize, long length)
+	{
+		super(inputStream);
+		
+		this.chunkSize = chunkSize;
+		
+		this.length = length;
+		
+		this.position = 0;
+		
+		this.rawPosition = 0;
+		
+		this.chunk = null;
+		
+		this.chunkIndex = -1;
+		
+		this.chunkLength = 0;
+		
+		this.checksum = new Crc32c();
+	}
+	
+	public long getLength()
+	{
+		return this.length;
+	}
+	
+	@Override
+	public int read() throws IOException
+	{
+		byte[] bytes = new byte[1];
+		
+		if (this.read(bytes, 0, bytes.length) < 0)
+		{
+			return -1;
+		}
+		
+		return ((int)(bytes[0]) + 256) % 256;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException
+	{
+		if (length == 0)
+		{
+			return 0;
+		}
+		
+		if (this.position >= this.length)
+		{
+			return -1;
+		}
+		
+		long chunkIndex = this.position / this.chunkSize;
+		
+		if (chunkIndex != this.chunkIndex)
+		{
+			this.readChunk(chunkIndex);
+		}
+		
+		int chunkPosition = (int)(this.position - chunkIndex * this.chunkSize);
+		
+		int count = Math.min(length, this.chunkLength - chunkPosition);
+		
+		System.arraycopy(this.chunk, chunkPosition, bytes, offset, count);
+		
+		this.position = this.position + count;
+		
+		return count;
+	}
+	
+	private void readChunk(long chunkIndex) throws IOException
+	{
+		long rawStart = chunkIndex * (this.chunkSize + ByteEncoder.getChecksumSize());
+		
+		if (this.rawPosition > rawStart)
+		{
+			throw new IOException("The chunk " + chunkIndex + " of the hidden data can no longer be read.");
+		}
+		
+		while (this.rawPosition < rawStart)
+		{
+			long count = this.in.skip(rawStart - this.rawPosition);
+			
+			if (count <= 0)
+			{
+				if (this.in.read() < 0)
+				{
+					throw new IOException("Unexpected end of the data.");
+				}
+				
+				count = 1;
+			}
+			
+			this.rawPosition = this.rawPosition + count;
+		}
+		
+		int chunkLength = (int)Math.min(this.chunkSize, this.length - chunkIndex * this.chunkSize);
+		
+		if (this.chunk == null)
+		{
+			this.chunk = BufferPool.getDefault().acquire(this.chunkSize + ByteEncoder.getChecksumSize());
+		}
+		
+		int rawLength = chunkLength + ByteEncoder.getChecksumSize();
+		
+		int offset = 0;
+		
+		while (offset < rawLength)
+		{
+			int count = this.in.read(this.chunk, offset, rawLength - offset);
+			
+			if (count < 0)
+			{
+				throw new IOException("Unexpected end of the data.");
+			}
+			
+			offset = offset + count;
+		}
+		
+		this.rawPosition = this.rawPosition + rawLength;
+		
+		this.checksum.reset();
+		
+		this.checksum.update(this.chunk, 0, chunkLength);
+		
+		if (this.checksum.getValue() != ByteEncoder.decodeChecksum(this.chunk, chunkLength))
+		{
+			this.chunkIndex = -1;
+			
+			throw new CorruptedDataException("The chunk " + chunkIndex + " of the hidden data is corrupted.");
+		}
+		
+		this.chunkIndex = chunkIndex;
+		
+		this.chunkLength = chunkLength;
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		BufferPool.getDefault().release(this.chunk);
+		
+		this.chunk = null;
+		
+		this.chunkIndex = -1;
+		
+		super.close();
+	}
+	
+	@Override
+	public long skip(long n)
+	{
+		long count = Math.max(Math.min(n, this.length - this.position), 0);
+		
+		this.position = this.position + count;
+		
+		return count;
+	}
+	
+	@Override
+	public int available()
+	{
+		if (this.chunkIndex < 0 || this.position / this.chunkSize != this.chunkIndex)
+		{
+			return 0;
+		}
+		
+		return (int)(this.chunkIndex * this.chunkSize + this.chunkLength - this.position);
+	}
+	
+	@Override
+	public boolean markSupported()
+	{
+		return false;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class ChunkOutputStream extends FilterOutputStream
+{
+	private int chunkSize;
+	
+	private Crc32c checksum;
+	
+	private int chunkPosition;
+	
+	private long length;
+	
+	private boolean closed;
+	
+	public ChunkOutputStream(OutputStream outputStream, int chunkSize)
+	{
+		super(outputStream);
+		
+		this.chunkSize = chunkSize;
+		
+		this.checksum = new Crc32c();
+		
+		this.chunkPosition = 0;
+		
+		this.length = 0;
+		
+		this.closed = false;
+	}
+	
+	public int getChunkSize()
+	{
+		return this.chunkSize;
+	}
+	
+	public long getLength()
+	{
+		return this.length;
+	}
+	
+	public boolean isClosed()
+	{
+		return this.closed;
+	}
+	
+	@Override
+	public void write(int b) throws IOException
+	{
+		byte[] bytes = { (byte)b };
+		
+		this.write(bytes, 0, bytes.length);
+	}
+	
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException
+	{
+		if (this.closed)
+		{
+			throw new IOException("The stream is closed.");
+		}
+		
+		while (length > 0)
+		{
+			int count = Math.min(length, this.chunkSize - this.chunkPosition);
+			
+			this.out.write(bytes, offset, count);
+			
+			this.checksum.update(bytes, offset, count);
+			
+			this.chunkPosition = this.chunkPosition + count;
+			
+			this.length = this.length + count;
+			
+			if (this.chunkPosition == this.chunkSize)
+			{
+				this.writeChecksum();
+			}
+			
+			offset = offset + count;
+			
+			length = length - count;
+		}
+	}
+	
+	private void writeChecksum() throws IOException
+	{
+		this.out.write(ByteEncoder.encodeChecksum(this.checksum.getValue()));
+		
+		this.checksum.reset();
+		
+		this.chunkPosition = 0;
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		if (!this.closed)
+		{
+			if (this.chunkPosition > 0)
+			{
+				this.writeChecksum();
+			}
+			
+			this.closed = true;
+			
+			this.out.close();
+		}
+	}
+}
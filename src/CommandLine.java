@@ -0,0 +1,1549 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+public class CommandLine
+{
+	public static final int EXIT_SUCCESS = 0;
+	
+	public static final int EXIT_NOTHING_HIDDEN = 1;
+	
+	public static final int EXIT_USAGE = 2;
+	
+	public static final int EXIT_CAPACITY_EXCEEDED = 3;
+	
+	public static final int EXIT_FAILURE = 4;
+	
+	private static final String STANDARD_STREAM = "-";
+	
+	private static final int VERIFY_BUFFER_SIZE = 64 * 1024;
+	
+	private static final List<String> VALUE_OPTIONS = Arrays.asList("--name", "--format", "--bits", "--level", "--filter", "--threads", "--chunk-size", "--offset", "--length", "--host", "--carriers", "--key");
+	
+	private static final String USAGE = String.join(System.lineSeparator(),
+		"Usage: java CommandLine <command> [options] <arguments>",
+		"",
+		"Commands:",
+		"  encode <image> <file> <output>   Hide a file in an image",
+		"  decode <image> [<output>]        Extract the hidden file of an image",
+		"  capacity <image> [<file>]        Print the number of bytes that can be hidden",
+		"  plan <file>...                   Assign files to as few of the --carriers images",
+		"                                   as possible, reading only their headers",
+		"  verify <image>                   Check whether an image contains a hidden file",
+		"  split <file> <directory> <image>...",
+		"                                   Hide a file in as few of the images as possible",
+		"  join <output> <image>...         Extract a file that was split across images",
+		"  scan <image or directory>...     List the images that contain a hidden file",
+		"  archive <image> <output> <file>...",
+		"                                   Hide several files in an image",
+		"  list <image>                     List the files of an archive",
+		"  extract <image> <name> [<output>]",
+		"                                   Extract one file of an archive",
+		"  serve [<port>]                   Hide and extract files over HTTP",
+		"",
+		"Use - for an image, file or output to read from stdin or write to stdout.",
+		"",
+		"Options:",
+		"  --name <name>     Name to store along with the hidden file",
+		"  --no-name         Do not store the name of the hidden file",
+		"  --format <format> Image format when writing to stdout (png or bmp)",
+		"  --bits <bits>     Number of bits to use per color channel (1 to 4)",
+		"  --alpha           Use the alpha channel as well",
+		"  --compress        Compress the hidden file if it gets smaller",
+		"  --level <level>   Compression level of written PNG images (0 to 9)",
+		"  --filter <filter> Row filter of written PNG images (none, sub, up, average,",
+		"                    paeth or adaptive)",
+		"  --band            Process the image in bands to limit the memory usage",
+		"  --key <key>       Scatter the hidden file across the image in an order",
+		"                    derived from the key",
+		"  --chunked         Store the file in chunks with a checksum each",
+		"  --chunk-size <size>",
+		"                    Size of the chunks in bytes (" + ByteEncoder.MIN_CHUNK_SIZE + " to " + ByteEncoder.MAX_CHUNK_SIZE + ")",
+		"  --offset <offset> First byte of the hidden file to extract",
+		"  --length <length> Number of bytes of the hidden file to extract",
+		"  --recursive       Scan directories recursively",
+		"  --threads <count> Number of images to scan or requests to serve at the same",
+		"                    time",
+		"  --all             Also list images without a hidden file when scanning",
+		"  --host <address>  Address the server listens on (localhost by default)",
+		"  --carriers <directory>",
+		"                    Directory of the carrier images the server offers or",
+		"                    plan assigns files to",
+		"  --json            Print the result as JSON",
+		"  --timings         Print the time spent in each stage");
+	
+	private List<String> arguments;
+	
+	private Map<String, String> options;
+	
+	private PrintStream output;
+	
+	private StageStatistics stageStatistics;
+	
+	public static void main(String[] args)
+	{
+		System.setProperty("java.awt.headless", "true");
+		
+		CommandLine commandLine = new CommandLine();
+		
+		System.exit(commandLine.run(args));
+	}
+	
+	public CommandLine()
+	{
+		this.arguments = new ArrayList<>();
+		
+		this.options = new HashMap<>();
+		
+		this.output = System.out;
+	}
+	
+	public int run(String[] args)
+	{
+		for (int i = 0; i < args.length; i++)
+		{
+			if (args[i].startsWith("--"))
+			{
+				if (VALUE_OPTIONS.contains(args[i]))
+				{
+					if (i + 1 >= args.length)
+					{
+						return this.usage("The option " + args[i] + " requires a value.");
+					}
+					
+					this.options.put(args[i], args[i + 1]);
+					
+					i++;
+				}
+				else
+				{
+					this.options.put(args[i], "");
+				}
+			}
+			else
+			{
+				this.arguments.add(args[i]);
+			}
+		}
+		
+		if (this.arguments.isEmpty())
+		{
+			return this.usage(null);
+		}
+		
+		String command = this.arguments.remove(0);
+		
+		if (this.options.containsKey("--band") && this.options.containsKey("--key"))
+		{
+			return this.usage("The option --band can not be used with --key.");
+		}
+		
+		if (this.options.containsKey("--timings"))
+		{
+			this.stageStatistics = new StageStatistics();
+			
+			Instrumentation.addStageListener(this.stageStatistics);
+		}
+		
+		try
+		{
+			switch (command)
+			{
+				case "encode":
+					return this.encode();
+				case "decode":
+					return this.decode();
+				case "capacity":
+					return this.capacity();
+				case "plan":
+					return this.plan();
+				case "verify":
+					return this.verify();
+				case "split":
+					return this.split();
+				case "join":
+					return this.join();
+				case "scan":
+					return this.scan();
+				case "archive":
+					return this.archive();
+				case "list":
+					return this.list();
+				case "extract":
+					return this.extract();
+				case "serve":
+					return this.serve();
+				default:
+					return this.usage("Unknown command \"" + command + "\".");
+			}
+		}
+		catch (IOException | RuntimeException e)
+		{
+			Map<String, Object> result = new LinkedHashMap<>();
+			
+			result.put("command", command);
+			
+			result.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+			
+			this.report(result, System.err);
+			
+			return EXIT_FAILURE;
+		}
+		finally
+		{
+			if (this.stageStatistics != null)
+			{
+				Instrumentation.removeStageListener(this.stageStatistics);
+			}
+		}
+	}
+	
+	private int encode() throws IOException
+	{
+		if (this.arguments.size() != 3)
+		{
+			return this.usage("The command encode requires an image, a file and an output.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		String file = this.arguments.get(1);
+		
+		String output = this.arguments.get(2);
+		
+		if (image.equals(STANDARD_STREAM) && file.equals(STANDARD_STREAM))
+		{
+			return this.usage("The image and the file can not both be read from stdin.");
+		}
+		
+		String name = file.equals(STANDARD_STREAM) ? "" : new File(file).getName();
+		
+		if (this.options.containsKey("--name"))
+		{
+			name = this.options.get("--name");
+		}
+		
+		if (this.options.containsKey("--no-name"))
+		{
+			name = "";
+		}
+		
+		EmbeddingProfile embeddingProfile = this.getEmbeddingProfile();
+		
+		if (embeddingProfile == null)
+		{
+			return this.usage("The option --bits requires a number between 1 and " + EmbeddingProfile.MAX_BITS_PER_CHANNEL + ".");
+		}
+		
+		Integer compressionLevel = this.getCompressionLevel();
+		
+		if (compressionLevel == null)
+		{
+			return this.usage("The option --level requires a number between 0 and 9.");
+		}
+		
+		PngFilter pngFilter = this.getPngFilter();
+		
+		if (pngFilter == null)
+		{
+			return this.usage("The option --filter requires none, sub, up, average, paeth or adaptive.");
+		}
+		
+		Integer chunkSize = this.getChunkSize();
+		
+		if (chunkSize == null)
+		{
+			return this.usage("The option --chunk-size requires a number between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			this.output = System.err;
+		}
+		
+		boolean encoded;
+		
+		long capacity;
+		
+		if (this.options.containsKey("--band"))
+		{
+			if (image.equals(STANDARD_STREAM) || file.equals(STANDARD_STREAM) || output.equals(STANDARD_STREAM))
+			{
+				return this.usage("The option --band requires files instead of stdin and stdout.");
+			}
+			
+			BandFileEncoder bandFileEncoder = new BandFileEncoder(new File(image));
+			
+			bandFileEncoder.setEmbeddingProfile(embeddingProfile);
+			
+			bandFileEncoder.setPayloadCodec(this.getPayloadCodec());
+			
+			bandFileEncoder.setCompressionLevel(compressionLevel);
+			
+			bandFileEncoder.setPngFilter(pngFilter);
+			
+			bandFileEncoder.setChunkSize(chunkSize);
+			
+			capacity = bandFileEncoder.getCapacity();
+			
+			encoded = bandFileEncoder.encode(new BinaryFile(new File(file), name), new File(output));
+		}
+		else
+		{
+			boolean mapped = !embeddingProfile.isAlpha() && isMappedBitmap(image, output);
+			
+			FileEncoder fileEncoder;
+			
+			if (mapped)
+			{
+				Files.copy(new File(image).toPath(), new File(output).toPath(), StandardCopyOption.REPLACE_EXISTING);
+				
+				fileEncoder = new FileEncoder(new MappedBitmap(new File(output), true));
+			}
+			else
+			{
+				fileEncoder = image.equals(STANDARD_STREAM) ? new FileEncoder(System.in) : new FileEncoder(new File(image));
+			}
+			
+			try
+			{
+				fileEncoder.setEmbeddingProfile(embeddingProfile);
+				
+				fileEncoder.setKey(this.options.get("--key"));
+				
+				fileEncoder.setPayloadCodec(this.getPayloadCodec());
+				
+				fileEncoder.setCompressionLevel(compressionLevel);
+				
+				fileEncoder.setPngFilter(pngFilter);
+				
+				fileEncoder.setChunkSize(chunkSize);
+				
+				capacity = fileEncoder.getCapacity();
+				
+				if (file.equals(STANDARD_STREAM))
+				{
+					encoded = fileEncoder.encode(System.in, name);
+				}
+				else
+				{
+					encoded = fileEncoder.encode(new BinaryFile(new File(file), name));
+				}
+				
+				if (encoded)
+				{
+					if (output.equals(STANDARD_STREAM))
+					{
+						fileEncoder.save(System.out, this.options.getOrDefault("--format", "png"));
+						
+						System.out.flush();
+					}
+					else
+					{
+						fileEncoder.save(new File(output));
+					}
+				}
+			}
+			catch (IOException | RuntimeException e)
+			{
+				if (mapped)
+				{
+					Files.deleteIfExists(new File(output).toPath());
+				}
+				
+				throw e;
+			}
+			
+			if (mapped && !encoded)
+			{
+				Files.deleteIfExists(new File(output).toPath());
+			}
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "encode");
+		result.put("image", image);
+		result.put("file", file);
+		result.put("output", output);
+		result.put("name", name);
+		result.put("profile", embeddingProfile);
+		result.put("compression", this.getPayloadCodec());
+		result.put("capacity", capacity);
+		result.put("encoded", encoded);
+		
+		if (!encoded)
+		{
+			result.put("error", "The file is too big to be hidden in the image.");
+			
+			this.report(result, System.err);
+			
+			return EXIT_CAPACITY_EXCEEDED;
+		}
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int decode() throws IOException
+	{
+		if (this.arguments.size() < 1 || this.arguments.size() > 2)
+		{
+			return this.usage("The command decode requires an image and optionally an output.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		String output = this.arguments.size() > 1 ? this.arguments.get(1) : null;
+		
+		Long offset = this.getLongOption("--offset", 0);
+		
+		Long length = this.getLongOption("--length", -1);
+		
+		if (offset == null || offset < 0)
+		{
+			return this.usage("The option --offset requires a number of bytes.");
+		}
+		
+		if (length == null || (length < 0 && this.options.containsKey("--length")))
+		{
+			return this.usage("The option --length requires a number of bytes.");
+		}
+		
+		if (STANDARD_STREAM.equals(output))
+		{
+			this.output = System.err;
+		}
+		
+		BinaryFile binaryFile = this.decode(image, this.options.containsKey("--band"));
+		
+		if (ShardEncoder.isShard(binaryFile))
+		{
+			throw new IOException("The image contains a part of a split file; use the command join.");
+		}
+		
+		if (ArchiveEncoder.isArchive(binaryFile))
+		{
+			throw new IOException("The image contains an archive; use the commands list and extract.");
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "decode");
+		result.put("image", image);
+		result.put("hidden", !binaryFile.isEmpty());
+		
+		if (binaryFile.isEmpty())
+		{
+			this.report(result, this.output);
+			
+			return EXIT_NOTHING_HIDDEN;
+		}
+		
+		if (output == null)
+		{
+			String name = new File(binaryFile.getName()).getName();
+			
+			output = name.isEmpty() ? "decoded" : name;
+		}
+		
+		if (length < 0)
+		{
+			length = Math.max(binaryFile.getSize() - offset, 0);
+		}
+		
+		if (offset + length > binaryFile.getSize())
+		{
+			throw new IOException("The range exceeds the hidden file of " + binaryFile.getSize() + " bytes.");
+		}
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			binaryFile.writeTo(System.out, offset, length);
+			
+			System.out.flush();
+		}
+		else
+		{
+			binaryFile.save(new File(output), offset, length);
+		}
+		
+		result.put("name", binaryFile.getName());
+		result.put("size", binaryFile.getSize());
+		
+		if (this.options.containsKey("--offset") || this.options.containsKey("--length"))
+		{
+			result.put("offset", offset);
+			result.put("length", length);
+		}
+		
+		result.put("output", output);
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int capacity() throws IOException
+	{
+		if (this.arguments.size() < 1 || this.arguments.size() > 2)
+		{
+			return this.usage("The command capacity requires an image and optionally a file.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		BinaryFile binaryFile = this.arguments.size() > 1 ? new BinaryFile(new File(this.arguments.get(1))) : null;
+		
+		EmbeddingProfile embeddingProfile = this.getEmbeddingProfile();
+		
+		if (embeddingProfile == null)
+		{
+			return this.usage("The option --bits requires a number between 1 and " + EmbeddingProfile.MAX_BITS_PER_CHANNEL + ".");
+		}
+		
+		Integer chunkSize = this.getChunkSize();
+		
+		if (chunkSize == null)
+		{
+			return this.usage("The option --chunk-size requires a number between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "capacity");
+		result.put("image", image);
+		result.put("profile", embeddingProfile);
+		result.put("compression", this.getPayloadCodec());
+		
+		if (image.equals(STANDARD_STREAM))
+		{
+			FileEncoder fileEncoder = new FileEncoder(System.in);
+			
+			fileEncoder.setEmbeddingProfile(embeddingProfile);
+			
+			fileEncoder.setPayloadCodec(this.getPayloadCodec());
+			
+			fileEncoder.setChunkSize(chunkSize);
+			
+			result.put("capacity", fileEncoder.getCapacity());
+			
+			if (binaryFile != null)
+			{
+				result.put("estimate", fileEncoder.getEstimatedCapacity(binaryFile));
+			}
+		}
+		else
+		{
+			BandFileEncoder bandFileEncoder = new BandFileEncoder(new File(image));
+			
+			bandFileEncoder.setEmbeddingProfile(embeddingProfile);
+			
+			bandFileEncoder.setPayloadCodec(this.getPayloadCodec());
+			
+			bandFileEncoder.setChunkSize(chunkSize);
+			
+			result.put("width", bandFileEncoder.getWidth());
+			result.put("height", bandFileEncoder.getHeight());
+			result.put("capacity", bandFileEncoder.getCapacity());
+			
+			if (binaryFile != null)
+			{
+				result.put("estimate", bandFileEncoder.getEstimatedCapacity(binaryFile));
+			}
+		}
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int plan() throws IOException
+	{
+		if (this.arguments.isEmpty() || !this.options.containsKey("--carriers"))
+		{
+			return this.usage("The command plan requires the option --carriers and at least one file.");
+		}
+		
+		EmbeddingProfile embeddingProfile = this.getEmbeddingProfile();
+		
+		if (embeddingProfile == null)
+		{
+			return this.usage("The option --bits requires a number between 1 and " + EmbeddingProfile.MAX_BITS_PER_CHANNEL + ".");
+		}
+		
+		Integer chunkSize = this.getChunkSize();
+		
+		if (chunkSize == null)
+		{
+			return this.usage("The option --chunk-size requires a number between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		ImageScanner imageScanner = new ImageScanner();
+		
+		imageScanner.setRecursive(this.options.containsKey("--recursive"));
+		
+		List<File> carriers = imageScanner.listImages(Collections.singletonList(new File(this.options.get("--carriers"))));
+		
+		List<BinaryFile> binaryFiles = new ArrayList<>();
+		
+		for (String file : this.arguments)
+		{
+			binaryFiles.add(new BinaryFile(new File(file)));
+		}
+		
+		CapacityPlanner capacityPlanner = new CapacityPlanner();
+		
+		capacityPlanner.setEmbeddingProfile(embeddingProfile);
+		
+		capacityPlanner.setPayloadCodec(this.getPayloadCodec());
+		
+		capacityPlanner.setChunkSize(chunkSize);
+		
+		Map<File, List<BinaryFile>> plan = capacityPlanner.plan(binaryFiles, carriers);
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "plan");
+		result.put("files", binaryFiles.size());
+		result.put("carriers", carriers.size());
+		result.put("planned", plan != null);
+		
+		if (plan == null)
+		{
+			result.put("error", "The files are too big to be hidden in the images.");
+			
+			this.report(result, System.err);
+			
+			return EXIT_CAPACITY_EXCEEDED;
+		}
+		
+		for (Map.Entry<File, List<BinaryFile>> entry : plan.entrySet())
+		{
+			List<String> names = new ArrayList<>();
+			
+			for (BinaryFile binaryFile : entry.getValue())
+			{
+				names.add(binaryFile.getName());
+			}
+			
+			Map<String, Object> assignment = new LinkedHashMap<>();
+			
+			assignment.put("image", entry.getKey().getPath());
+			assignment.put("capacity", capacityPlanner.getCapacity(entry.getKey()));
+			assignment.put("required", CapacityPlanner.getRequiredSpace(entry.getValue()));
+			assignment.put("archive", entry.getValue().size() > 1);
+			assignment.put("files", String.join(", ", names));
+			
+			this.print(assignment, this.output);
+		}
+		
+		result.put("used", plan.size());
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int verify() throws IOException
+	{
+		if (this.arguments.size() != 1)
+		{
+			return this.usage("The command verify requires an image.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		BinaryFile binaryFile = this.decode(image, true);
+		
+		if (!binaryFile.isEmpty())
+		{
+			try (InputStream inputStream = binaryFile.openInputStream())
+			{
+				byte[] buffer = new byte[VERIFY_BUFFER_SIZE];
+				
+				int count = inputStream.read(buffer);
+				
+				while (count >= 0)
+				{
+					count = inputStream.read(buffer);
+				}
+			}
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "verify");
+		result.put("image", image);
+		result.put("hidden", !binaryFile.isEmpty());
+		
+		if (!binaryFile.isEmpty())
+		{
+			result.put("name", binaryFile.getName());
+			result.put("size", binaryFile.getSize());
+		}
+		
+		this.report(result, this.output);
+		
+		return binaryFile.isEmpty() ? EXIT_NOTHING_HIDDEN : EXIT_SUCCESS;
+	}
+	
+	private int scan() throws IOException
+	{
+		if (this.arguments.isEmpty())
+		{
+			return this.usage("The command scan requires at least one image or directory.");
+		}
+		
+		ImageScanner imageScanner = new ImageScanner();
+		
+		imageScanner.setRecursive(this.options.containsKey("--recursive"));
+		
+		if (this.options.containsKey("--threads"))
+		{
+			try
+			{
+				imageScanner.setThreads(Integer.parseInt(this.options.get("--threads")));
+			}
+			catch (NumberFormatException e)
+			{
+				return this.usage("The option --threads requires a number.");
+			}
+		}
+		
+		List<File> files = new ArrayList<>();
+		
+		for (String argument : this.arguments)
+		{
+			files.add(new File(argument));
+		}
+		
+		boolean all = this.options.containsKey("--all");
+		
+		long[] hidden = new long[1];
+		
+		int scanned;
+		
+		try
+		{
+			scanned = imageScanner.scan(files, scanResult ->
+			{
+				if (scanResult.isHidden())
+				{
+					hidden[0]++;
+				}
+				
+				if (scanResult.isHidden() || all)
+				{
+					Map<String, Object> result = new LinkedHashMap<>();
+					
+					result.put("image", scanResult.getFile().getPath());
+					result.put("hidden", scanResult.isHidden());
+					
+					if (scanResult.isHidden())
+					{
+						result.put("name", scanResult.getName());
+						result.put("size", scanResult.getSize());
+						result.put("profile", scanResult.getEmbeddingProfile());
+						result.put("compression", scanResult.getPayloadCodec());
+						result.put("shard", scanResult.isShard());
+					}
+					
+					if (scanResult.getError() != null)
+					{
+						result.put("error", scanResult.getError());
+					}
+					
+					this.print(result, this.output);
+				}
+			});
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			
+			throw new IOException("The scan was interrupted.");
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "scan");
+		result.put("scanned", scanned);
+		result.put("hidden", hidden[0]);
+		
+		this.report(result, this.output);
+		
+		return hidden[0] > 0 ? EXIT_SUCCESS : EXIT_NOTHING_HIDDEN;
+	}
+	
+	private int split() throws IOException
+	{
+		if (this.arguments.size() < 3)
+		{
+			return this.usage("The command split requires a file, a directory and at least one image.");
+		}
+		
+		String file = this.arguments.get(0);
+		
+		File directory = new File(this.arguments.get(1));
+		
+		List<String> images = this.arguments.subList(2, this.arguments.size());
+		
+		String name = new File(file).getName();
+		
+		if (this.options.containsKey("--name"))
+		{
+			name = this.options.get("--name");
+		}
+		
+		if (this.options.containsKey("--no-name"))
+		{
+			name = "";
+		}
+		
+		EmbeddingProfile embeddingProfile = this.getEmbeddingProfile();
+		
+		if (embeddingProfile == null)
+		{
+			return this.usage("The option --bits requires a number between 1 and " + EmbeddingProfile.MAX_BITS_PER_CHANNEL + ".");
+		}
+		
+		Integer compressionLevel = this.getCompressionLevel();
+		
+		if (compressionLevel == null)
+		{
+			return this.usage("The option --level requires a number between 0 and 9.");
+		}
+		
+		PngFilter pngFilter = this.getPngFilter();
+		
+		if (pngFilter == null)
+		{
+			return this.usage("The option --filter requires none, sub, up, average, paeth or adaptive.");
+		}
+		
+		Integer chunkSize = this.getChunkSize();
+		
+		if (chunkSize == null)
+		{
+			return this.usage("The option --chunk-size requires a number between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		List<FileEncoder> fileEncoders = new ArrayList<>();
+		
+		for (String image : images)
+		{
+			FileEncoder fileEncoder = new FileEncoder(new File(image));
+			
+			fileEncoder.setEmbeddingProfile(embeddingProfile);
+			
+			fileEncoder.setKey(this.options.get("--key"));
+			
+			fileEncoder.setPayloadCodec(this.getPayloadCodec());
+			
+			fileEncoder.setCompressionLevel(compressionLevel);
+			
+			fileEncoder.setPngFilter(pngFilter);
+			
+			fileEncoder.setChunkSize(chunkSize);
+			
+			fileEncoders.add(fileEncoder);
+		}
+		
+		ShardEncoder shardEncoder = new ShardEncoder(fileEncoders);
+		
+		List<FileEncoder> selection = shardEncoder.encode(new BinaryFile(new File(file), name));
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "split");
+		result.put("file", file);
+		result.put("name", name);
+		result.put("capacity", shardEncoder.getCapacity());
+		result.put("encoded", selection != null);
+		
+		if (selection == null)
+		{
+			result.put("error", "The file is too big to be hidden in the images.");
+			
+			this.report(result, System.err);
+			
+			return EXIT_CAPACITY_EXCEEDED;
+		}
+		
+		if (!directory.isDirectory() && !directory.mkdirs())
+		{
+			throw new IOException("Failed to create the directory \"" + directory.getPath() + "\".");
+		}
+		
+		List<String> outputs = new ArrayList<>();
+		
+		for (FileEncoder fileEncoder : selection)
+		{
+			String image = new File(images.get(fileEncoders.indexOf(fileEncoder))).getName();
+			
+			String baseName = image.contains(".") ? image.substring(0, image.lastIndexOf(".")) : image;
+			
+			File output = new File(directory, baseName + "." + this.options.getOrDefault("--format", "png"));
+			
+			fileEncoder.save(output);
+			
+			outputs.add(output.getPath());
+		}
+		
+		result.put("parts", selection.size());
+		result.put("outputs", String.join(", ", outputs));
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int join() throws IOException
+	{
+		if (this.arguments.size() < 2)
+		{
+			return this.usage("The command join requires an output and at least one image.");
+		}
+		
+		String output = this.arguments.get(0);
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			this.output = System.err;
+		}
+		
+		List<FileEncoder> fileEncoders = new ArrayList<>();
+		
+		for (String image : this.arguments.subList(1, this.arguments.size()))
+		{
+			FileEncoder fileEncoder = new FileEncoder(new File(image));
+			
+			fileEncoder.setKey(this.options.get("--key"));
+			
+			fileEncoders.add(fileEncoder);
+		}
+		
+		BinaryFile binaryFile = new ShardEncoder(fileEncoders).decode();
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "join");
+		result.put("hidden", !binaryFile.isEmpty());
+		
+		if (binaryFile.isEmpty())
+		{
+			this.report(result, this.output);
+			
+			return EXIT_NOTHING_HIDDEN;
+		}
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			binaryFile.writeTo(System.out);
+			
+			System.out.flush();
+		}
+		else
+		{
+			binaryFile.save(new File(output));
+		}
+		
+		result.put("name", binaryFile.getName());
+		result.put("size", binaryFile.getSize());
+		result.put("output", output);
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int archive() throws IOException
+	{
+		if (this.arguments.size() < 3)
+		{
+			return this.usage("The command archive requires an image, an output and at least one file.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		String output = this.arguments.get(1);
+		
+		List<String> files = this.arguments.subList(2, this.arguments.size());
+		
+		EmbeddingProfile embeddingProfile = this.getEmbeddingProfile();
+		
+		if (embeddingProfile == null)
+		{
+			return this.usage("The option --bits requires a number between 1 and " + EmbeddingProfile.MAX_BITS_PER_CHANNEL + ".");
+		}
+		
+		Integer compressionLevel = this.getCompressionLevel();
+		
+		if (compressionLevel == null)
+		{
+			return this.usage("The option --level requires a number between 0 and 9.");
+		}
+		
+		PngFilter pngFilter = this.getPngFilter();
+		
+		if (pngFilter == null)
+		{
+			return this.usage("The option --filter requires none, sub, up, average, paeth or adaptive.");
+		}
+		
+		Integer chunkSize = this.getChunkSize();
+		
+		if (chunkSize == null)
+		{
+			return this.usage("The option --chunk-size requires a number between " + ByteEncoder.MIN_CHUNK_SIZE + " and " + ByteEncoder.MAX_CHUNK_SIZE + ".");
+		}
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			this.output = System.err;
+		}
+		
+		FileEncoder fileEncoder = image.equals(STANDARD_STREAM) ? new FileEncoder(System.in) : new FileEncoder(new File(image));
+		
+		fileEncoder.setEmbeddingProfile(embeddingProfile);
+		
+		fileEncoder.setKey(this.options.get("--key"));
+		
+		fileEncoder.setCompressionLevel(compressionLevel);
+		
+		fileEncoder.setPngFilter(pngFilter);
+		
+		fileEncoder.setChunkSize(chunkSize);
+		
+		ArchiveEncoder archiveEncoder = new ArchiveEncoder(fileEncoder);
+		
+		archiveEncoder.setPayloadCodec(this.getPayloadCodec());
+		
+		List<BinaryFile> binaryFiles = new ArrayList<>();
+		
+		for (String file : files)
+		{
+			binaryFiles.add(new BinaryFile(new File(file)));
+		}
+		
+		boolean encoded = archiveEncoder.encode(binaryFiles);
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "archive");
+		result.put("image", image);
+		result.put("output", output);
+		result.put("files", files.size());
+		result.put("profile", embeddingProfile);
+		result.put("compression", this.getPayloadCodec());
+		result.put("capacity", fileEncoder.getCapacity());
+		result.put("encoded", encoded);
+		
+		if (!encoded)
+		{
+			result.put("error", "The files are too big to be hidden in the image.");
+			
+			this.report(result, System.err);
+			
+			return EXIT_CAPACITY_EXCEEDED;
+		}
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			fileEncoder.save(System.out, this.options.getOrDefault("--format", "png"));
+			
+			System.out.flush();
+		}
+		else
+		{
+			fileEncoder.save(new File(output));
+		}
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int list() throws IOException
+	{
+		if (this.arguments.size() != 1)
+		{
+			return this.usage("The command list requires an image.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		List<ArchiveEntry> archiveEntries = ArchiveEncoder.list(this.decode(image, this.options.containsKey("--band")));
+		
+		if (archiveEntries != null)
+		{
+			for (ArchiveEntry archiveEntry : archiveEntries)
+			{
+				Map<String, Object> result = new LinkedHashMap<>();
+				
+				result.put("name", archiveEntry.getName());
+				result.put("size", archiveEntry.getSize());
+				result.put("stored", archiveEntry.getStoredSize());
+				result.put("compression", archiveEntry.getPayloadCodec());
+				
+				this.print(result, this.output);
+			}
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "list");
+		result.put("image", image);
+		result.put("archive", archiveEntries != null);
+		
+		if (archiveEntries == null)
+		{
+			this.report(result, this.output);
+			
+			return EXIT_NOTHING_HIDDEN;
+		}
+		
+		result.put("files", archiveEntries.size());
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int extract() throws IOException
+	{
+		if (this.arguments.size() < 2 || this.arguments.size() > 3)
+		{
+			return this.usage("The command extract requires an image, a name and optionally an output.");
+		}
+		
+		String image = this.arguments.get(0);
+		
+		String name = this.arguments.get(1);
+		
+		String output = this.arguments.size() > 2 ? this.arguments.get(2) : new File(name).getName();
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			this.output = System.err;
+		}
+		
+		BinaryFile archive = this.decode(image, this.options.containsKey("--band"));
+		
+		List<ArchiveEntry> archiveEntries = ArchiveEncoder.list(archive);
+		
+		ArchiveEntry selection = null;
+		
+		if (archiveEntries != null)
+		{
+			for (ArchiveEntry archiveEntry : archiveEntries)
+			{
+				if (archiveEntry.getName().equals(name))
+				{
+					selection = archiveEntry;
+				}
+			}
+		}
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "extract");
+		result.put("image", image);
+		result.put("name", name);
+		result.put("found", selection != null);
+		
+		if (selection == null)
+		{
+			this.report(result, this.output);
+			
+			return EXIT_NOTHING_HIDDEN;
+		}
+		
+		BinaryFile binaryFile = ArchiveEncoder.extract(archive, selection);
+		
+		if (output.equals(STANDARD_STREAM))
+		{
+			binaryFile.writeTo(System.out);
+			
+			System.out.flush();
+		}
+		else
+		{
+			binaryFile.save(new File(output));
+		}
+		
+		result.put("size", binaryFile.getSize());
+		result.put("output", output);
+		
+		this.report(result, this.output);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private BinaryFile decode(String image, boolean band) throws IOException
+	{
+		String key = this.options.get("--key");
+		
+		FileEncoder fileEncoder;
+		
+		if (image.equals(STANDARD_STREAM))
+		{
+			fileEncoder = new FileEncoder(System.in);
+		}
+		else if (band && key == null)
+		{
+			return new BandFileEncoder(new File(image)).decode();
+		}
+		else if (isMappedBitmap(image, null))
+		{
+			fileEncoder = new FileEncoder(new MappedBitmap(new File(image), false));
+		}
+		else
+		{
+			fileEncoder = new FileEncoder(new File(image));
+		}
+		
+		fileEncoder.setKey(key);
+		
+		return fileEncoder.decode();
+	}
+	
+	private static boolean isMappedBitmap(String image, String output) throws IOException
+	{
+		if (image.equals(STANDARD_STREAM) || !image.toLowerCase().endsWith(".bmp"))
+		{
+			return false;
+		}
+		
+		if (output != null)
+		{
+			if (output.equals(STANDARD_STREAM) || !output.toLowerCase().endsWith(".bmp"))
+			{
+				return false;
+			}
+			
+			if (new File(output).getCanonicalFile().equals(new File(image).getCanonicalFile()))
+			{
+				return false;
+			}
+		}
+		
+		return MappedBitmap.isSupported(new File(image));
+	}
+	
+	private EmbeddingProfile getEmbeddingProfile()
+	{
+		int bitsPerChannel = 1;
+		
+		if (this.options.containsKey("--bits"))
+		{
+			try
+			{
+				bitsPerChannel = Integer.parseInt(this.options.get("--bits"));
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+			
+			if (bitsPerChannel < 1 || bitsPerChannel > EmbeddingProfile.MAX_BITS_PER_CHANNEL)
+			{
+				return null;
+			}
+		}
+		
+		return new EmbeddingProfile(bitsPerChannel, this.options.containsKey("--alpha"), this.options.containsKey("--key"));
+	}
+	
+	private PayloadCodec getPayloadCodec()
+	{
+		return this.options.containsKey("--compress") ? PayloadCodec.DEFLATE : PayloadCodec.NONE;
+	}
+	
+	private Integer getCompressionLevel()
+	{
+		int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+		
+		if (this.options.containsKey("--level"))
+		{
+			try
+			{
+				compressionLevel = Integer.parseInt(this.options.get("--level"));
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+			
+			if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+			{
+				return null;
+			}
+		}
+		
+		return compressionLevel;
+	}
+	
+	private PngFilter getPngFilter()
+	{
+		return PngFilter.fromName(this.options.getOrDefault("--filter", PngFilter.ADAPTIVE.name()));
+	}
+	
+	private Integer getChunkSize()
+	{
+		int chunkSize = this.options.containsKey("--chunked") ? ByteEncoder.DEFAULT_CHUNK_SIZE : 0;
+		
+		if (this.options.containsKey("--chunk-size"))
+		{
+			try
+			{
+				chunkSize = Integer.parseInt(this.options.get("--chunk-size"));
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+			
+			if (chunkSize < ByteEncoder.MIN_CHUNK_SIZE || chunkSize > ByteEncoder.MAX_CHUNK_SIZE)
+			{
+				return null;
+			}
+		}
+		
+		return chunkSize;
+	}
+	
+	private Long getLongOption(String option, long defaultValue)
+	{
+		if (this.options.containsKey(option))
+		{
+			try
+			{
+				return Long.parseLong(this.options.get(option));
+			}
+			catch (NumberFormatException e)
+			{
+				return null;
+			}
+		}
+		
+		return defaultValue;
+	}
+	
+	private int serve() throws IOException
+	{
+		if (this.arguments.size() > 1)
+		{
+			return this.usage("The command serve accepts at most a port.");
+		}
+		
+		int port = SteganographyServer.DEFAULT_PORT;
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		
+		try
+		{
+			if (!this.arguments.isEmpty())
+			{
+				port = Integer.parseInt(this.arguments.get(0));
+			}
+			
+			if (this.options.containsKey("--threads"))
+			{
+				threads = Integer.parseInt(this.options.get("--threads"));
+			}
+		}
+		catch (NumberFormatException e)
+		{
+			return this.usage("The command serve requires a number as port and for the option --threads.");
+		}
+		
+		if (port < 0 || port > 65535 || threads < 1)
+		{
+			return this.usage("The command serve requires a port between 0 and 65535 and at least one thread.");
+		}
+		
+		InetSocketAddress address = this.options.containsKey("--host") ? new InetSocketAddress(this.options.get("--host"), port) : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+		
+		SteganographyServer steganographyServer = new SteganographyServer(address, threads);
+		
+		if (this.options.containsKey("--carriers"))
+		{
+			File carrierDirectory = new File(this.options.get("--carriers"));
+			
+			if (!carrierDirectory.isDirectory())
+			{
+				return this.usage("The option --carriers requires a directory.");
+			}
+			
+			steganographyServer.setCarrierDirectory(carrierDirectory);
+		}
+		
+		steganographyServer.start();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> steganographyServer.stop(1)));
+		
+		Map<String, Object> result = new LinkedHashMap<>();
+		
+		result.put("command", "serve");
+		result.put("address", steganographyServer.getAddress().getHostString() + ":" + steganographyServer.getAddress().getPort());
+		result.put("threads", threads);
+		result.put("virtual", steganographyServer.isVirtualThreads());
+		
+		this.print(result, this.output);
+		
+		try
+		{
+			Thread.currentThread().join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		
+		steganographyServer.stop(0);
+		
+		return EXIT_SUCCESS;
+	}
+	
+	private int usage(String message)
+	{
+		if (message != null)
+		{
+			System.err.println(message);
+			
+			System.err.println();
+		}
+		
+		System.err.println(USAGE);
+		
+		return EXIT_USAGE;
+	}
+	
+	private void report(Map<String, Object> result, PrintStream printStream)
+	{
+		if (this.stageStatistics != null)
+		{
+			for (ProcessingStage stage : ProcessingStage.values())
+			{
+				if (this.stageStatistics.getCount(stage) > 0)
+				{
+					String name = stage.name().toLowerCase();
+					
+					result.put(name + ".ms", Math.round(this.stageStatistics.getNanos(stage) / 1e3) / 1e3);
+					result.put(name + ".pixels", this.stageStatistics.getPixels(stage));
+					result.put(name + ".bytes", this.stageStatistics.getBytes(stage));
+					result.put(name + ".mbps", Math.round(this.stageStatistics.getBytesPerSecond(stage) / 1e4) / 1e2);
+					result.put(name + ".allocated", this.stageStatistics.getAllocatedBytes(stage));
+				}
+			}
+		}
+		
+		this.print(result, printStream);
+	}
+	
+	private void print(Map<String, Object> result, PrintStream printStream)
+	{
+		if (this.options.containsKey("--json"))
+		{
+			StringBuilder json = new StringBuilder("{");
+			
+			for (Map.Entry<String, Object> entry : result.entrySet())
+			{
+				if (json.length() > 1)
+				{
+					json.append(",");
+				}
+				
+				json.append(toJson(entry.getKey())).append(":");
+				
+				Object value = entry.getValue();
+				
+				if (value instanceof Number || value instanceof Boolean)
+				{
+					json.append(value);
+				}
+				else
+				{
+					json.append(toJson(String.valueOf(value)));
+				}
+			}
+			
+			printStream.println(json.append("}"));
+		}
+		else
+		{
+			for (Map.Entry<String, Object> entry : result.entrySet())
+			{
+				printStream.println(entry.getKey() + ": " + entry.getValue());
+			}
+		}
+		
+		printStream.flush();
+	}
+	
+	private static String toJson(String string)
+	{
+		StringBuilder json = new StringBuilder("\"");
+		
+		for (int i = 0; i < string.length(); i++)
+		{
+			char c = string.charAt(i);
+			
+			if (c == '"' || c == '\\')
+			{
+				json.append('\\').append(c);
+			}
+			else if (c < 0x20)
+			{
+				json.append(String.format("\\u%04x", (int)c));
+			}
+			else
+			{
+				json.append(c);
+			}
+		}
+		
+		return json.append("\"").toString();
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.util.zip.Checksum;
+
+public class Crc32c implements Checksum
+{
+	private static final int POLYNOMIAL = 0x82F63B78;
+	
+	private static final int[][] TABLES = createTables();
+	
+	private int crc;
+	
+	public Crc32c()
+	{
+		this.crc = 0xFFFFFFFF;
+	}
+	
+	private static int[][] createTables()
+	{
+		int[][] tables = new int[8][256];
+		
+		for (int i = 0; i < 256; i++)
+		{
+			int crc = i;
+			
+			for (int j = 0; j < 8; j++)
+			{
+				crc = (crc >>> 1) ^ (POLYNOMIAL & -(crc & 1));
+			}
+			
+			tables[0][i] = crc;
+		}
+		
+		for (int i = 0; i < 256; i++)
+		{
+			for (int j = 1; j < tables.length; j++)
+			{
+				tables[j][i] = (tables[j - 1][i] >>> 8) ^ tables[0][tables[j - 1][i] & 0xFF];
+			}
+		}
+		
+		return tables;
+	}
+	
+	@Override
+	public void update(int b)
+	{
+		this.crc = (this.crc >>> 8) ^ TABLES[0][(this.crc ^ b) & 0xFF];
+	}
+	
+	@Override
+	public void update(byte[] bytes, int offset, int length)
+	{
+		int crc = this.crc;
+		
+		int end = offset + length;
+		
+		while (end - offset >= 8)
+		{
+			int low = crc ^ ((bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8 | (bytes[offset + 2] & 0xFF) << 16 | (bytes[offset + 3] & 0xFF) << 24);
+			
+			crc = TABLES[7][low & 0xFF] ^ TABLES[6][(low >>> 8) & 0xFF] ^ TABLES[5][(low >>> 16) & 0xFF] ^ TABLES[4][low >>> 24] ^ TABLES[3][bytes[offset + 4] & 0xFF] ^ TABLES[2][bytes[offset + 5] & 0xFF] ^ TABLES[1][bytes[offset + 6] & 0xFF] ^ TABLES[0][bytes[offset + 7] & 0xFF];
+			
+			offset = offset + 8;
+		}
+		
+		while (offset < end)
+		{
+			crc = (crc >>> 8) ^ TABLES[0][(crc ^ bytes[offset]) & 0xFF];
+			
+			offset++;
+		}
+		
+		this.crc = crc;
+	}
+	
+	public void update(byte[] bytes)
+	{
+		this.update(bytes, 0, bytes.length);
+	}
+	
+	@Override
+	public long getValue()
+	{
+		return ~this.crc & 0xFFFFFFFFL;
+	}
+	
+	@Override
+	public void reset()
+	{
+		this.crc = 0xFFFFFFFF;
+	}
+}
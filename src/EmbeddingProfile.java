@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+public class EmbeddingProfile
+{
+	public static final EmbeddingProfile DEFAULT = new EmbeddingProfile(1, false);
+	
+	public static final int MAX_BITS_PER_CHANNEL = 4;
+	
+	private int bitsPerChannel;
+	
+	private boolean alpha;
+	
+	private boolean scattered;
+	
+	public EmbeddingProfile(int bitsPerChannel, boolean alpha)
+	{
+		this(bitsPerChannel, alpha, false);
+	}
+	
+	public EmbeddingProfile(int bitsPerChannel, boolean alpha, boolean scattered)
+	{
+		if (bitsPerChannel < 1 || bitsPerChannel > MAX_BITS_PER_CHANNEL)
+		{
+			throw new IllegalArgumentException("The number of bits per channel has to be between 1 and " + MAX_BITS_PER_CHANNEL + ".");
+		}
+		
+		this.bitsPerChannel = bitsPerChannel;
+		
+		this.alpha = alpha;
+		
+		this.scattered = scattered;
+	}
+	
+	public int getBitsPerChannel()
+	{
+		return this.bitsPerChannel;
+	}
+	
+	public boolean isAlpha()
+	{
+		return this.alpha;
+	}
+	
+	public boolean isScattered()
+	{
+		return this.scattered;
+	}
+	
+	public int getChannels()
+	{
+		return this.alpha ? 4 : 3;
+	}
+	
+	public int getBitsPerPixel()
+	{
+		return this.bitsPerChannel * this.getChannels();
+	}
+	
+	public boolean isDefault()
+	{
+		return this.equals(DEFAULT);
+	}
+	
+	public byte toByte()
+	{
+		return (byte)((this.bitsPerChannel - 1) | (this.alpha ? 0b100 : 0b000) | (this.scattered ? 0b1000 : 0b0000));
+	}
+	
+	public static EmbeddingProfile fromByte(byte b)
+	{
+		if ((b & ~0b1111) != 0)
+		{
+			return null;
+		}
+		
+		return new EmbeddingProfile((b & 0b011) + 1, (b & 0b100) != 0, (b & 0b1000) != 0);
+	}
+	
+	@Override
+	public boolean equals(Object object)
+	{
+		if (!(object instanceof EmbeddingProfile))
+		{
+			return false;
+		}
+		
+		EmbeddingProfile embeddingProfile = (EmbeddingProfile)object;
+		
+		return this.bitsPerChannel == embeddingProfile.bitsPerChannel && this.alpha == embeddingProfile.alpha && this.scattered == embeddingProfile.scattered;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return this.toByte();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return this.bitsPerChannel + " bit" + (this.bitsPerChannel == 1 ? "" : "s") + " per channel, " + (this.alpha ? "RGBA" : "RGB") + (this.scattered ? ", scattered" : "");
+	}
+}
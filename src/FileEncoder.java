@@ -22,17 +22,66 @@
  * SOFTWARE.
  */
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
 
 public class FileEncoder
 {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
 	private ByteEncoder byteEncoder;
 	
+	private PayloadCodec payloadCodec;
+	
 	public FileEncoder(File file) throws IOException
 	{
 		byteEncoder = new ByteEncoder(file);
+		
+		payloadCodec = byteEncoder.getPayloadCodec();
+	}
+	
+	public FileEncoder(InputStream inputStream) throws IOException
+	{
+		byteEncoder = new ByteEncoder(inputStream);
+		
+		payloadCodec = byteEncoder.getPayloadCodec();
+	}
+	
+	public FileEncoder(File file, CarrierCache carrierCache) throws IOException
+	{
+		byteEncoder = new ByteEncoder(file, carrierCache);
+		
+		payloadCodec = byteEncoder.getPayloadCodec();
+	}
+	
+	public FileEncoder(BufferedImage bufferedImage) throws IOException
+	{
+		byteEncoder = new ByteEncoder(bufferedImage);
+		
+		payloadCodec = byteEncoder.getPayloadCodec();
+	}
+	
+	public FileEncoder(MappedBitmap mappedBitmap)
+	{
+		byteEncoder = new ByteEncoder(mappedBitmap);
+		
+		payloadCodec = byteEncoder.getPayloadCodec();
+	}
+	
+	public FileEncoder(FileEncoder fileEncoder)
+	{
+		byteEncoder = new ByteEncoder(fileEncoder.byteEncoder);
+		
+		payloadCodec = fileEncoder.payloadCodec;
 	}
 	
 	public BufferedImage getBufferedImage()
@@ -40,36 +89,451 @@ public class FileEncoder
 		return this.byteEncoder.getBufferedImage();
 	}
 	
-	public int getCapacity()
+	public int getWidth()
 	{
-		int capacity = this.byteEncoder.getCapacity();
+		return this.byteEncoder.getWidth();
+	}
+	
+	public int getHeight()
+	{
+		return this.byteEncoder.getHeight();
+	}
+	
+	public void getRGB(Rectangle region, int[] argb, int offset, int scanlineStride)
+	{
+		this.byteEncoder.getRGB(region, argb, offset, scanlineStride);
+	}
+	
+	public Rectangle getDirtyRegion()
+	{
+		return this.byteEncoder.getDirtyRegion();
+	}
+	
+	public void clearDirtyRegion()
+	{
+		this.byteEncoder.clearDirtyRegion();
+	}
+	
+	public EmbeddingProfile getEmbeddingProfile()
+	{
+		return this.byteEncoder.getEmbeddingProfile();
+	}
+	
+	public void setEmbeddingProfile(EmbeddingProfile embeddingProfile)
+	{
+		this.byteEncoder.setEmbeddingProfile(embeddingProfile);
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public void setPayloadCodec(PayloadCodec payloadCodec)
+	{
+		this.byteEncoder.setPayloadCodec(payloadCodec);
+		
+		this.payloadCodec = payloadCodec;
+	}
+	
+	public int getCompressionLevel()
+	{
+		return this.byteEncoder.getCompressionLevel();
+	}
+	
+	public void setCompressionLevel(int compressionLevel)
+	{
+		this.byteEncoder.setCompressionLevel(compressionLevel);
+	}
+	
+	public PngFilter getPngFilter()
+	{
+		return this.byteEncoder.getPngFilter();
+	}
+	
+	public void setPngFilter(PngFilter pngFilter)
+	{
+		this.byteEncoder.setPngFilter(pngFilter);
+	}
+	
+	public String getKey()
+	{
+		return this.byteEncoder.getKey();
+	}
+	
+	public void setKey(String key)
+	{
+		this.byteEncoder.setKey(key);
+	}
+	
+	public int getChunkSize()
+	{
+		return this.byteEncoder.getChunkSize();
+	}
+	
+	public void setChunkSize(int chunkSize)
+	{
+		this.byteEncoder.setChunkSize(chunkSize);
+	}
+	
+	public long getCapacity()
+	{
+		long capacity = this.byteEncoder.getCapacity();
 		
-		BinaryFile binaryFile = new BinaryFile(null, "");
+		BinaryFile binaryFile = new BinaryFile((byte[])null, "");
 		
 		return Math.max(capacity - binaryFile.getRequiredSpace(), 0);
 	}
 	
-	public boolean encode(BinaryFile binaryFile)
+	public long getEstimatedCapacity(BinaryFile binaryFile) throws IOException
+	{
+		return this.payloadCodec.getEstimatedCapacity(this.getCapacity(), binaryFile);
+	}
+	
+	public boolean encode(BinaryFile binaryFile) throws IOException
 	{
+		if (this.payloadCodec != PayloadCodec.NONE)
+		{
+			InputStream inputStream = binaryFile.openInputStream();
+			
+			try (InputStream payloadInputStream = inputStream != null ? inputStream : new ByteArrayInputStream(new byte[0]))
+			{
+				return this.encode(payloadInputStream, binaryFile.getName());
+			}
+		}
+		
 		if (binaryFile.getRequiredSpace() > this.getCapacity())
 		{
 			return false;
 		}
 		
-		return this.byteEncoder.encode(binaryFile.getCombinedBytes());
+		try (OutputStream outputStream = this.byteEncoder.openOutputStream())
+		{
+			outputStream.write(binaryFile.getNullTerminatedName());
+			
+			binaryFile.writeTo(outputStream);
+		}
+		
+		return true;
+	}
+	
+	public boolean encode(BinaryFile binaryFile, PayloadCodec payloadCodec) throws IOException
+	{
+		PayloadCodec previousCodec = this.payloadCodec;
+		
+		boolean encoded = false;
+		
+		this.byteEncoder.beginChanges();
+		
+		try
+		{
+			this.payloadCodec = payloadCodec;
+			
+			if (payloadCodec == PayloadCodec.NONE)
+			{
+				this.byteEncoder.setPayloadCodec(PayloadCodec.NONE);
+			}
+			
+			encoded = this.encode(binaryFile);
+		}
+		finally
+		{
+			this.payloadCodec = previousCodec;
+			
+			this.byteEncoder.endChanges(encoded);
+		}
+		
+		return encoded;
+	}
+	
+	public void beginChanges()
+	{
+		this.byteEncoder.beginChanges();
+	}
+	
+	public void endChanges(boolean keep)
+	{
+		this.byteEncoder.endChanges(keep);
+	}
+	
+	public boolean encode(InputStream inputStream, String name) throws IOException
+	{
+		BinaryFile binaryFile = new BinaryFile((byte[])null, name);
+		
+		boolean encoded = false;
+		
+		this.byteEncoder.beginChanges();
+		
+		try
+		{
+			if (this.payloadCodec != PayloadCodec.NONE)
+			{
+				encoded = this.encodeCompressed(inputStream, binaryFile.getNullTerminatedName());
+			}
+			else
+			{
+				encoded = this.encodeUncompressed(inputStream, binaryFile.getNullTerminatedName());
+			}
+		}
+		finally
+		{
+			this.byteEncoder.endChanges(encoded);
+		}
+		
+		return encoded;
+	}
+	
+	private boolean encodeUncompressed(InputStream inputStream, byte[] nullTerminatedName) throws IOException
+	{
+		long remaining = this.getCapacity() + 1 - nullTerminatedName.length;
+		
+		if (remaining < 0)
+		{
+			return false;
+		}
+		
+		OutputStream outputStream = this.byteEncoder.openOutputStream();
+		
+		outputStream.write(nullTerminatedName);
+		
+		BufferPool bufferPool = BufferPool.getDefault();
+		
+		byte[] buffer = bufferPool.acquire(BUFFER_SIZE);
+		
+		try
+		{
+			int count = inputStream.read(buffer);
+			
+			while (count >= 0)
+			{
+				if (count > remaining)
+				{
+					return false;
+				}
+				
+				outputStream.write(buffer, 0, count);
+				
+				remaining = remaining - count;
+				
+				count = inputStream.read(buffer);
+			}
+		}
+		finally
+		{
+			bufferPool.release(buffer);
+		}
+		
+		outputStream.close();
+		
+		return true;
 	}
 	
-	public BinaryFile decode()
+	private boolean encodeCompressed(InputStream inputStream, byte[] nullTerminatedName) throws IOException
 	{
-		byte[] data = this.byteEncoder.decode();
+		byte[] sample = PayloadCodec.readSample(inputStream);
+		
+		PayloadCodec payloadCodec = this.payloadCodec.isWorthwhile(sample, 0, sample.length) ? this.payloadCodec : PayloadCodec.NONE;
+		
+		this.byteEncoder.setPayloadCodec(payloadCodec);
+		
+		OutputStream outputStream = this.byteEncoder.openOutputStream();
+		
+		CapacityOutputStream capacityOutputStream = new CapacityOutputStream(outputStream, this.byteEncoder.getCapacity());
 		
-		BinaryFile binaryFile = new BinaryFile(data);
+		long size = 0;
 		
-		return binaryFile;
+		try
+		{
+			capacityOutputStream.write(nullTerminatedName);
+			
+			if (payloadCodec != PayloadCodec.NONE)
+			{
+				capacityOutputStream.write(new byte[PayloadCodec.getHeaderSize()]);
+			}
+			
+			try (InputStream payloadInputStream = new SequenceInputStream(new ByteArrayInputStream(sample), inputStream); OutputStream payloadOutputStream = payloadCodec.compress(capacityOutputStream))
+			{
+				BufferPool bufferPool = BufferPool.getDefault();
+				
+				byte[] buffer = bufferPool.acquire(BUFFER_SIZE);
+				
+				try
+				{
+					int count = payloadInputStream.read(buffer);
+					
+					while (count >= 0)
+					{
+						payloadOutputStream.write(buffer, 0, count);
+						
+						size = size + count;
+						
+						count = payloadInputStream.read(buffer);
+					}
+				}
+				finally
+				{
+					bufferPool.release(buffer);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			if (capacityOutputStream.isExceeded())
+			{
+				return false;
+			}
+			
+			throw e;
+		}
+		
+		outputStream.close();
+		
+		if (payloadCodec != PayloadCodec.NONE)
+		{
+			byte[] header = PayloadCodec.encodeHeader(size);
+			
+			this.byteEncoder.encodePayload(nullTerminatedName.length, header, 0, header.length);
+		}
+		
+		return true;
+	}
+	
+	public BinaryFile decode() throws IOException
+	{
+		try (InputStream inputStream = this.byteEncoder.openInputStream())
+		{
+			if (inputStream != null)
+			{
+				ByteArrayOutputStream fileName = new ByteArrayOutputStream();
+				
+				int b = inputStream.read();
+				
+				while (b > 0)
+				{
+					fileName.write(b);
+					
+					b = inputStream.read();
+				}
+				
+				if (b == 0)
+				{
+					PayloadCodec payloadCodec = this.byteEncoder.getPayloadCodec();
+					
+					long headerSize = fileName.size() + 1;
+					
+					long size = this.byteEncoder.getPayloadLength() - headerSize;
+					
+					if (payloadCodec != PayloadCodec.NONE)
+					{
+						byte[] header = new byte[PayloadCodec.getHeaderSize()];
+						
+						if (!readFully(inputStream, header, header.length))
+						{
+							return new BinaryFile((byte[])null);
+						}
+						
+						headerSize = headerSize + header.length;
+						
+						size = PayloadCodec.decodeHeader(header);
+					}
+					
+					long skip = headerSize;
+					
+					PayloadSource payloadSource = () -> 
+					{
+						InputStream payloadInputStream = this.byteEncoder.openInputStream();
+						
+						if (payloadInputStream == null || payloadInputStream.skip(skip) != skip)
+						{
+							throw new IOException("The hidden data has changed.");
+						}
+						
+						return payloadCodec.decompress(payloadInputStream);
+					};
+					
+					return new BinaryFile(payloadSource, size, new String(fileName.toByteArray(), StandardCharsets.UTF_8));
+				}
+			}
+		}
+		
+		return new BinaryFile((byte[])null);
+	}
+	
+	private static boolean readFully(InputStream inputStream, byte[] bytes, int length) throws IOException
+	{
+		int offset = 0;
+		
+		while (offset < length)
+		{
+			int count = inputStream.read(bytes, offset, length - offset);
+			
+			if (count < 0)
+			{
+				return false;
+			}
+			
+			offset = offset + count;
+		}
+		
+		return true;
 	}
 	
 	public void save(File file) throws IOException
 	{
 		this.byteEncoder.save(file);
 	}
+	
+	public void save(OutputStream outputStream, String fileExtension) throws IOException
+	{
+		this.byteEncoder.save(outputStream, fileExtension);
+	}
+	
+	private static class CapacityOutputStream extends FilterOutputStream
+	{
+		private long remaining;
+		
+		private boolean exceeded;
+		
+		public CapacityOutputStream(OutputStream outputStream, long capacity)
+		{
+			super(outputStream);
+			
+			this.remaining = capacity;
+			
+			this.exceeded = false;
+		}
+		
+		public boolean isExceeded()
+		{
+			return this.exceeded;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			byte[] bytes = { (byte)b };
+			
+			this.write(bytes, 0, bytes.length);
+		}
+		
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length > this.remaining)
+			{
+				this.exceeded = true;
+				
+				throw new IOException("The data exceeds the capacity of the image.");
+			}
+			
+			this.out.write(bytes, offset, length);
+			
+			this.remaining = this.remaining - length;
+		}
+		
+		@Override
+		public void close()
+		{
+		}
+	}
 }
@@ -0,0 +1,63 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import jdk.jfr.EventType;
+
+public class FlightRecorderListener implements StageListener
+{
+	private EventType eventType;
+	
+	public FlightRecorderListener()
+	{
+		this.eventType = EventType.getEventType(StageEvent.class);
+	}
+	
+	@Override
+	public boolean isEnabled()
+	{
+		return this.eventType.isEnabled();
+	}
+	
+	@Override
+	public void stageCompleted(ProcessingStage stage, long nanos, long bytes, long pixels, long allocatedBytes)
+	{
+		StageEvent stageEvent = new StageEvent();
+		
+		stageEvent.stage = stage.name();
+		
+		stageEvent.stageDuration = nanos;
+		
+		stageEvent.bytes = bytes;
+		
+		stageEvent.pixels = pixels;
+		
+		stageEvent.allocated = allocatedBytes;
+		
+		stageEvent.throughput = nanos > 0 ? (long)(bytes * 1e9 / nanos) : 0;
+		
+		stageEvent.commit();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+
+public class ImageBandReader implements BandReader
+{
+	private ImageReader imageReader;
+	
+	private int width;
+	
+	private int height;
+	
+	public ImageBandReader(File file) throws IOException
+	{
+		ImageInputStream imageInputStream = ImageIO.createImageInputStream(file);
+		
+		if (imageInputStream == null)
+		{
+			throw new IOException("Failed to open image \"" + file.getPath() + "\".");
+		}
+		
+		Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(imageInputStream);
+		
+		if (!imageReaders.hasNext())
+		{
+			imageInputStream.close();
+			
+			throw new IOException("The format of the image \"" + file.getPath() + "\" is not supported.");
+		}
+		
+		this.imageReader = imageReaders.next();
+		
+		this.imageReader.setInput(imageInputStream, false, true);
+		
+		try
+		{
+			this.width = this.imageReader.getWidth(0);
+			
+			this.height = this.imageReader.getHeight(0);
+		}
+		catch (IOException e)
+		{
+			this.close();
+			
+			throw e;
+		}
+	}
+	
+	public int getWidth()
+	{
+		return this.width;
+	}
+	
+	public int getHeight()
+	{
+		return this.height;
+	}
+	
+	public boolean hasAlpha() throws IOException
+	{
+		ImageTypeSpecifier imageType = this.imageReader.getRawImageType(0);
+		
+		return imageType != null && imageType.getColorModel().hasAlpha();
+	}
+	
+	@Override
+	public BufferedImage read(int y, int height) throws IOException
+	{
+		ImageInputStream imageInputStream = (ImageInputStream)this.imageReader.getInput();
+		
+		imageInputStream.seek(0);
+		
+		this.imageReader.setInput(imageInputStream, false, true);
+		
+		ImageReadParam imageReadParam = this.imageReader.getDefaultReadParam();
+		
+		imageReadParam.setSourceRegion(new Rectangle(0, y, this.width, Math.min(height, this.height - y)));
+		
+		return this.imageReader.read(0, imageReadParam);
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		Object input = this.imageReader.getInput();
+		
+		this.imageReader.dispose();
+		
+		if (input instanceof ImageInputStream)
+		{
+			((ImageInputStream)input).close();
+		}
+	}
+}
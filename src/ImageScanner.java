@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+
+public class ImageScanner
+{
+	private static final int SCAN_BAND_HEIGHT = 8;
+	
+	private int threads;
+	
+	private boolean recursive;
+	
+	private Set<String> fileExtensions;
+	
+	public ImageScanner()
+	{
+		this.threads = Runtime.getRuntime().availableProcessors();
+		
+		this.recursive = false;
+		
+		this.fileExtensions = new HashSet<>();
+		
+		for (String fileExtension : ImageIO.getReaderFileSuffixes())
+		{
+			this.fileExtensions.add(fileExtension.toLowerCase());
+		}
+	}
+	
+	public int getThreads()
+	{
+		return this.threads;
+	}
+	
+	public void setThreads(int threads)
+	{
+		this.threads = Math.max(threads, 1);
+	}
+	
+	public boolean isRecursive()
+	{
+		return this.recursive;
+	}
+	
+	public void setRecursive(boolean recursive)
+	{
+		this.recursive = recursive;
+	}
+	
+	public List<File> listImages(List<File> files)
+	{
+		List<File> images = new ArrayList<>();
+		
+		for (File file : files)
+		{
+			this.listImages(file, images, true);
+		}
+		
+		return images;
+	}
+	
+	private void listImages(File file, List<File> images, boolean explicit)
+	{
+		if (file.isDirectory())
+		{
+			if (!explicit && !this.recursive)
+			{
+				return;
+			}
+			
+			File[] children = file.listFiles();
+			
+			if (children != null)
+			{
+				Arrays.sort(children);
+				
+				for (File child : children)
+				{
+					this.listImages(child, images, false);
+				}
+			}
+		}
+		else if (explicit || this.isImage(file))
+		{
+			images.add(file);
+		}
+	}
+	
+	private boolean isImage(File file)
+	{
+		String fileName = file.getName();
+		
+		int index = fileName.lastIndexOf('.');
+		
+		return index > 0 && this.fileExtensions.contains(fileName.substring(index + 1).toLowerCase());
+	}
+	
+	public int scan(List<File> files, Consumer<ScanResult> consumer) throws InterruptedException
+	{
+		List<File> images = this.listImages(files);
+		
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(this.threads, Math.max(images.size(), 1)), runnable ->
+		{
+			Thread thread = new Thread(runnable, "ImageScanner");
+			
+			thread.setDaemon(true);
+			
+			return thread;
+		});
+		
+		try
+		{
+			CompletionService<ScanResult> completionService = new ExecutorCompletionService<>(executorService);
+			
+			for (File image : images)
+			{
+				completionService.submit(() -> scan(image));
+			}
+			
+			for (int i = 0; i < images.size(); i++)
+			{
+				try
+				{
+					consumer.accept(completionService.take().get());
+				}
+				catch (ExecutionException e)
+				{
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		}
+		finally
+		{
+			executorService.shutdownNow();
+		}
+		
+		return images.size();
+	}
+	
+	public static ScanResult scan(File file)
+	{
+		try
+		{
+			BandFileEncoder bandFileEncoder = new BandFileEncoder(file);
+			
+			bandFileEncoder.setBandHeight(SCAN_BAND_HEIGHT);
+			
+			EmbeddingProfile embeddingProfile = bandFileEncoder.decodeEmbeddingProfile();
+			
+			PayloadCodec payloadCodec = bandFileEncoder.decodePayloadCodec();
+			
+			BinaryFile binaryFile;
+			
+			try
+			{
+				binaryFile = bandFileEncoder.decode();
+			}
+			catch (IOException e)
+			{
+				if (!embeddingProfile.isScattered())
+				{
+					throw e;
+				}
+				
+				return new ScanResult(file, true, false, "", 0, embeddingProfile, payloadCodec);
+			}
+			
+			if (binaryFile.isEmpty() || !isValidName(binaryFile.getName()))
+			{
+				return new ScanResult(file, false, false, "", 0, embeddingProfile, payloadCodec);
+			}
+			
+			return new ScanResult(file, true, ShardEncoder.isShard(binaryFile), binaryFile.getName(), binaryFile.getSize(), embeddingProfile, payloadCodec);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			return new ScanResult(file, e.getMessage() != null ? e.getMessage() : e.toString());
+		}
+	}
+	
+	private static boolean isValidName(String name)
+	{
+		for (int i = 0; i < name.length(); i++)
+		{
+			char c = name.charAt(i);
+			
+			if (Character.isISOControl(c) || c == '\uFFFD')
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+public class Instrumentation
+{
+	private static final StageTimer DISABLED = new StageTimer(null, new StageListener[0]);
+	
+	private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = getAllocationMXBean();
+	
+	private static volatile StageListener[] stageListeners = new StageListener[0];
+	
+	static
+	{
+		try
+		{
+			Class.forName("jdk.jfr.Event");
+			
+			addStageListener(new FlightRecorderListener());
+		}
+		catch (ClassNotFoundException | LinkageError e)
+		{
+		}
+	}
+	
+	private Instrumentation()
+	{
+	}
+	
+	public static synchronized void addStageListener(StageListener stageListener)
+	{
+		StageListener[] listeners = Arrays.copyOf(stageListeners, stageListeners.length + 1);
+		
+		listeners[listeners.length - 1] = stageListener;
+		
+		stageListeners = listeners;
+	}
+	
+	public static synchronized void removeStageListener(StageListener stageListener)
+	{
+		StageListener[] listeners = stageListeners;
+		
+		for (int i = 0; i < listeners.length; i++)
+		{
+			if (listeners[i] == stageListener)
+			{
+				StageListener[] remaining = new StageListener[listeners.length - 1];
+				
+				System.arraycopy(listeners, 0, remaining, 0, i);
+				System.arraycopy(listeners, i + 1, remaining, i, listeners.length - i - 1);
+				
+				stageListeners = remaining;
+				
+				return;
+			}
+		}
+	}
+	
+	public static StageTimer start(ProcessingStage stage)
+	{
+		StageListener[] listeners = stageListeners;
+		
+		for (StageListener stageListener : listeners)
+		{
+			if (stageListener.isEnabled())
+			{
+				return new StageTimer(stage, listeners);
+			}
+		}
+		
+		return DISABLED;
+	}
+	
+	private static com.sun.management.ThreadMXBean getAllocationMXBean()
+	{
+		try
+		{
+			ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+			
+			if (threadMXBean instanceof com.sun.management.ThreadMXBean)
+			{
+				com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean)threadMXBean;
+				
+				if (allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled())
+				{
+					return allocationMXBean;
+				}
+			}
+		}
+		catch (LinkageError | SecurityException e)
+		{
+		}
+		
+		return null;
+	}
+	
+	private static long getAllocatedBytes()
+	{
+		if (ALLOCATION_MX_BEAN == null)
+		{
+			return 0;
+		}
+		
+		return ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	public static class StageTimer
+	{
+		private ProcessingStage stage;
+		
+		private StageListener[] stageListeners;
+		
+		private long startNanos;
+		
+		private long startAllocatedBytes;
+		
+		private StageTimer(ProcessingStage stage, StageListener[] stageListeners)
+		{
+			this.stage = stage;
+			
+			this.stageListeners = stageListeners;
+			
+			if (stage != null)
+			{
+				this.startAllocatedBytes = getAllocatedBytes();
+				
+				this.startNanos = System.nanoTime();
+			}
+		}
+		
+		public void stop(long bytes, long pixels)
+		{
+			if (this.stage == null)
+			{
+				return;
+			}
+			
+			long nanos = System.nanoTime() - this.startNanos;
+			
+			long allocatedBytes = getAllocatedBytes() - this.startAllocatedBytes;
+			
+			for (StageListener stageListener : this.stageListeners)
+			{
+				if (stageListener.isEnabled())
+				{
+					stageListener.stageCompleted(this.stage, nanos, bytes, pixels, allocatedBytes);
+				}
+			}
+		}
+	}
+}
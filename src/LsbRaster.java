@@ -0,0 +1,928 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.lang.reflect.Constructor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class LsbRaster
+{
+	private static final int CLEAR_MASK = 0xFFFEFEFE;
+	
+	private static final int[] SPREAD = new int[8];
+	
+	static
+	{
+		for (int value = 0; value < SPREAD.length; value++)
+		{
+			SPREAD[value] = ((value & 0b001) << 0) | ((value & 0b010) << 7) | ((value & 0b100) << 14);
+		}
+	}
+	
+	private static final long STRIPE_BITS = 1L << 22;
+	
+	private static final int GROUP_PIXELS = 8;
+	
+	private static final Constructor<? extends GroupKernel> VECTOR_KERNEL = findVectorKernel();
+	
+	private int[] pixels;
+	
+	private byte[] data;
+	
+	private int[] channelOffsets;
+	
+	private MappedBitmap mappedBitmap;
+	
+	private int width;
+	
+	private int firstPixel;
+	
+	private int bitsPerChannel;
+	
+	private int channels;
+	
+	private int bitsPerPixel;
+	
+	private int channelMask;
+	
+	private int clearMask;
+	
+	private long bitCapacity;
+	
+	private int[] lowSpread;
+	
+	private int[] highSpread;
+	
+	private GroupKernel groupKernel;
+	
+	public LsbRaster(BufferedImage bufferedImage)
+	{
+		this(bufferedImage, EmbeddingProfile.DEFAULT, 0);
+	}
+	
+	public LsbRaster(BufferedImage bufferedImage, EmbeddingProfile embeddingProfile, int firstPixel)
+	{
+		int width = bufferedImage.getWidth();
+		
+		int height = bufferedImage.getHeight();
+		
+		if (!isSupported(bufferedImage))
+		{
+			throw new IllegalArgumentException("The image has to be stored as contiguous 8 bit RGB pixels.");
+		}
+		
+		if (embeddingProfile.isAlpha() && !bufferedImage.getColorModel().hasAlpha())
+		{
+			throw new IllegalArgumentException("The image has no alpha channel.");
+		}
+		
+		DataBuffer dataBuffer = bufferedImage.getRaster().getDataBuffer();
+		
+		if (dataBuffer instanceof DataBufferInt)
+		{
+			this.pixels = ((DataBufferInt)dataBuffer).getData();
+		}
+		else
+		{
+			int[] bandOffsets = ((PixelInterleavedSampleModel)bufferedImage.getSampleModel()).getBandOffsets();
+			
+			this.data = ((DataBufferByte)dataBuffer).getData();
+			
+			this.channelOffsets = new int[bandOffsets.length];
+			
+			for (int channel = 0; channel < bandOffsets.length; channel++)
+			{
+				this.channelOffsets[channel] = bandOffsets[channel < 3 ? 2 - channel : channel];
+			}
+		}
+		
+		this.initialize(width, height, embeddingProfile, firstPixel);
+	}
+	
+	public LsbRaster(MappedBitmap mappedBitmap, EmbeddingProfile embeddingProfile, int firstPixel)
+	{
+		if (embeddingProfile.isAlpha())
+		{
+			throw new IllegalArgumentException("The image has no alpha channel.");
+		}
+		
+		this.mappedBitmap = mappedBitmap;
+		
+		this.initialize(mappedBitmap.getWidth(), mappedBitmap.getHeight(), embeddingProfile, firstPixel);
+	}
+	
+	private void initialize(int width, int height, EmbeddingProfile embeddingProfile, int firstPixel)
+	{
+		this.width = width;
+		
+		this.firstPixel = Math.min(firstPixel, width * height);
+		
+		this.bitsPerChannel = embeddingProfile.getBitsPerChannel();
+		
+		this.channels = embeddingProfile.getChannels();
+		
+		this.bitsPerPixel = embeddingProfile.getBitsPerPixel();
+		
+		this.channelMask = (1 << this.bitsPerChannel) - 1;
+		
+		this.clearMask = -1;
+		
+		for (int channel = 0; channel < this.channels; channel++)
+		{
+			this.clearMask = this.clearMask & ~(this.channelMask << (8 * channel));
+		}
+		
+		this.bitCapacity = ((long)width * height - this.firstPixel) * this.bitsPerPixel;
+		
+		this.lowSpread = new int[1 << Math.min(this.bitsPerPixel, 8)];
+		
+		this.highSpread = new int[1 << Math.max(this.bitsPerPixel - 8, 0)];
+		
+		for (int value = 0; value < this.lowSpread.length; value++)
+		{
+			this.lowSpread[value] = this.spread(value);
+		}
+		
+		for (int value = 0; value < this.highSpread.length; value++)
+		{
+			this.highSpread[value] = this.spread(value << 8);
+		}
+		
+		if (this.pixels != null && VECTOR_KERNEL != null)
+		{
+			try
+			{
+				this.groupKernel = VECTOR_KERNEL.newInstance(this.bitsPerChannel, this.channels);
+			}
+			catch (ReflectiveOperationException e)
+			{
+				this.groupKernel = null;
+			}
+		}
+	}
+	
+	private static Constructor<? extends GroupKernel> findVectorKernel()
+	{
+		try
+		{
+			Class<? extends GroupKernel> kernelClass = Class.forName("VectorGroupKernel").asSubclass(GroupKernel.class);
+			
+			if (!(Boolean)kernelClass.getMethod("isAccelerated").invoke(null))
+			{
+				return null;
+			}
+			
+			return kernelClass.getConstructor(int.class, int.class);
+		}
+		catch (ReflectiveOperationException | LinkageError | ClassCastException e)
+		{
+			return null;
+		}
+	}
+	
+	public static boolean isVectorized()
+	{
+		return VECTOR_KERNEL != null;
+	}
+	
+	public static boolean isSupported(BufferedImage bufferedImage)
+	{
+		ColorModel colorModel = bufferedImage.getColorModel();
+		
+		SampleModel sampleModel = bufferedImage.getSampleModel();
+		
+		DataBuffer dataBuffer = bufferedImage.getRaster().getDataBuffer();
+		
+		if (colorModel.isAlphaPremultiplied() || colorModel.getColorSpace().getType() != ColorSpace.TYPE_RGB || bufferedImage.getRaster().getParent() != null || dataBuffer.getOffset() != 0)
+		{
+			return false;
+		}
+		
+		int bands = sampleModel.getNumBands();
+		
+		if (bands != (colorModel.hasAlpha() ? 4 : 3))
+		{
+			return false;
+		}
+		
+		if (dataBuffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel)
+		{
+			int[] bitMasks = ((SinglePixelPackedSampleModel)sampleModel).getBitMasks();
+			
+			int[] standardMasks = { 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000 };
+			
+			for (int band = 0; band < bands; band++)
+			{
+				if (bitMasks[band] != standardMasks[band])
+				{
+					return false;
+				}
+			}
+			
+			return ((SinglePixelPackedSampleModel)sampleModel).getScanlineStride() == bufferedImage.getWidth();
+		}
+		
+		if (dataBuffer instanceof DataBufferByte && sampleModel instanceof PixelInterleavedSampleModel)
+		{
+			PixelInterleavedSampleModel pixelInterleavedSampleModel = (PixelInterleavedSampleModel)sampleModel;
+			
+			int[] bandOffsets = pixelInterleavedSampleModel.getBandOffsets();
+			
+			int offsets = 0;
+			
+			for (int band = 0; band < bands; band++)
+			{
+				if (bandOffsets[band] < 0 || bandOffsets[band] >= bands)
+				{
+					return false;
+				}
+				
+				offsets = offsets | (1 << bandOffsets[band]);
+			}
+			
+			return offsets == (1 << bands) - 1 && pixelInterleavedSampleModel.getPixelStride() == bands && pixelInterleavedSampleModel.getScanlineStride() == bufferedImage.getWidth() * bands;
+		}
+		
+		return false;
+	}
+	
+	public long getBitCapacity()
+	{
+		return this.bitCapacity;
+	}
+	
+	public int getRow(long bitOffset)
+	{
+		return (int)((this.firstPixel + bitOffset / this.bitsPerPixel) / this.width);
+	}
+	
+	public void write(long bitOffset, byte[] bytes, int offset, int length)
+	{
+		this.write(bitOffset, bytes, offset, 0, (long)length * 8);
+	}
+	
+	public void write(long bitOffset, byte[] bytes, int offset, int length, ForkJoinPool forkJoinPool)
+	{
+		long bitCount = (long)length * 8;
+		
+		if (!this.isParallel(bitCount, forkJoinPool))
+		{
+			this.write(bitOffset, bytes, offset, length);
+		}
+		else
+		{
+			this.checkBounds(bitOffset, bitCount);
+			
+			forkJoinPool.invoke(new StripeTask(true, bitOffset, bytes, offset, length, this.getRow(bitOffset), this.getRow(bitOffset + bitCount - 1) + 1));
+		}
+	}
+	
+	public void write(long bitOffset, byte[] bytes, int offset, long fromBit, long toBit)
+	{
+		if (bitOffset < 0 || fromBit < 0 || fromBit > toBit || bitOffset + toBit > this.bitCapacity)
+		{
+			throw new IndexOutOfBoundsException("Bits " + (bitOffset + fromBit) + " to " + (bitOffset + toBit) + " exceed the capacity of " + this.bitCapacity + " bits.");
+		}
+		
+		long groupBit = this.getGroupBit(bitOffset, fromBit);
+		
+		long groups = groupBit >= 0 && groupBit < toBit ? (toBit - groupBit) / (GROUP_PIXELS * this.bitsPerPixel) : 0;
+		
+		if (groups > 0)
+		{
+			long toGroupBit = groupBit + groups * GROUP_PIXELS * this.bitsPerPixel;
+			
+			this.writePixels(bitOffset, bytes, offset, fromBit, groupBit);
+			
+			int pixel = this.firstPixel + (int)((bitOffset + groupBit) / this.bitsPerPixel);
+			
+			if (this.groupKernel != null)
+			{
+				this.groupKernel.writeGroups(this.pixels, pixel, (int)groups, bytes, offset + (int)(groupBit >>> 3));
+			}
+			else
+			{
+				this.writeGroups(pixel, (int)groups, bytes, offset + (int)(groupBit >>> 3));
+			}
+			
+			this.writePixels(bitOffset, bytes, offset, toGroupBit, toBit);
+		}
+		else
+		{
+			this.writePixels(bitOffset, bytes, offset, fromBit, toBit);
+		}
+	}
+	
+	private void writePixels(long bitOffset, byte[] bytes, int offset, long fromBit, long toBit)
+	{
+		long position = bitOffset + fromBit;
+		
+		int pixel = this.firstPixel + (int)(position / this.bitsPerPixel);
+		
+		int shift = this.getShift((int)(position % this.bitsPerPixel));
+		
+		long bit = fromBit;
+		
+		while (bit < toBit && shift != 0)
+		{
+			this.writeBit(pixel, shift, readBit(bytes, offset, bit));
+			
+			bit++;
+			
+			shift = this.nextShift(shift);
+			
+			if (shift == 0)
+			{
+				pixel++;
+			}
+		}
+		
+		int start = pixel;
+		
+		int end = pixel + (int)((toBit - bit) / this.bitsPerPixel);
+		
+		if (pixel < end)
+		{
+			int index = offset + (int)(bit >>> 3);
+			
+			int accumulatorBits = 8 - (int)(bit & 7);
+			
+			long accumulator = (bytes[index++] & 0xFF) >>> (8 - accumulatorBits);
+			
+			int bitsPerPixel = this.bitsPerPixel;
+			
+			if (this.bitsPerChannel == 1 && this.channels == 3)
+			{
+				while (pixel < end)
+				{
+					if (accumulatorBits < 3)
+					{
+						accumulator = accumulator | ((bytes[index++] & 0xFFL) << accumulatorBits);
+						
+						accumulatorBits = accumulatorBits + 8;
+					}
+					
+					this.setPixel(pixel, (this.getPixel(pixel) & CLEAR_MASK) | SPREAD[(int)accumulator & 0b111]);
+					
+					accumulator = accumulator >>> 3;
+					
+					accumulatorBits = accumulatorBits - 3;
+					
+					pixel++;
+				}
+			}
+			else
+			{
+				int bitsPerChannel = this.bitsPerChannel;
+				
+				int channels = this.channels;
+				
+				int channelMask = this.channelMask;
+				
+				int clearMask = this.clearMask;
+				
+				while (pixel < end)
+				{
+					while (accumulatorBits < bitsPerPixel)
+					{
+						accumulator = accumulator | ((bytes[index++] & 0xFFL) << accumulatorBits);
+						
+						accumulatorBits = accumulatorBits + 8;
+					}
+					
+					int value = 0;
+					
+					for (int channel = 0; channel < channels; channel++)
+					{
+						value = value | (((int)(accumulator >>> (channel * bitsPerChannel)) & channelMask) << (8 * channel));
+					}
+					
+					this.setPixel(pixel, (this.getPixel(pixel) & clearMask) | value);
+					
+					accumulator = accumulator >>> bitsPerPixel;
+					
+					accumulatorBits = accumulatorBits - bitsPerPixel;
+					
+					pixel++;
+				}
+			}
+			
+			bit = bit + (long)(end - start) * bitsPerPixel;
+		}
+		
+		while (bit < toBit)
+		{
+			this.writeBit(pixel, shift, readBit(bytes, offset, bit));
+			
+			bit++;
+			
+			shift = this.nextShift(shift);
+		}
+	}
+	
+	public void read(long bitOffset, byte[] bytes, int offset, int length, ForkJoinPool forkJoinPool)
+	{
+		long bitCount = (long)length * 8;
+		
+		if (!this.isParallel(bitCount, forkJoinPool))
+		{
+			this.read(bitOffset, bytes, offset, length);
+		}
+		else
+		{
+			this.checkBounds(bitOffset, bitCount);
+			
+			forkJoinPool.invoke(new StripeTask(false, bitOffset, bytes, offset, length, this.getRow(bitOffset), this.getRow(bitOffset + bitCount - 1) + 1));
+		}
+	}
+	
+	public void read(long bitOffset, byte[] bytes, int offset, int length)
+	{
+		long bitCount = (long)length * 8;
+		
+		if (length < 0)
+		{
+			throw new IndexOutOfBoundsException("The length " + length + " is negative.");
+		}
+		
+		this.checkBounds(bitOffset, bitCount);
+		
+		long groupBit = this.getGroupBit(bitOffset, 0);
+		
+		int groupByte = (int)(groupBit >>> 3);
+		
+		int groups = groupBit >= 0 && groupByte < length ? (length - groupByte) / this.bitsPerPixel : 0;
+		
+		if (groups > 0)
+		{
+			int toGroupByte = groupByte + groups * this.bitsPerPixel;
+			
+			this.readPixels(bitOffset, bytes, offset, groupByte);
+			
+			int pixel = this.firstPixel + (int)((bitOffset + groupBit) / this.bitsPerPixel);
+			
+			if (this.groupKernel != null)
+			{
+				this.groupKernel.readGroups(this.pixels, pixel, groups, bytes, offset + groupByte);
+			}
+			else
+			{
+				this.readGroups(pixel, groups, bytes, offset + groupByte);
+			}
+			
+			this.readPixels(bitOffset + toGroupByte * 8L, bytes, offset + toGroupByte, length - toGroupByte);
+		}
+		else
+		{
+			this.readPixels(bitOffset, bytes, offset, length);
+		}
+	}
+	
+	private void readPixels(long bitOffset, byte[] bytes, int offset, int length)
+	{
+		int pixel = this.firstPixel + (int)(bitOffset / this.bitsPerPixel);
+		
+		int shift = this.getShift((int)(bitOffset % this.bitsPerPixel));
+		
+		int index = offset;
+		
+		int end = offset + length;
+		
+		long accumulator = 0;
+		
+		int accumulatorBits = 0;
+		
+		int bitsPerPixel = this.bitsPerPixel;
+		
+		int bitsPerChannel = this.bitsPerChannel;
+		
+		int channels = this.channels;
+		
+		int channelMask = this.channelMask;
+		
+		boolean fastPath = bitsPerChannel == 1 && channels == 3;
+		
+		while (index < end)
+		{
+			if (shift == 0 && accumulatorBits <= 64 - bitsPerPixel && (long)(end - index) * 8 - accumulatorBits >= bitsPerPixel)
+			{
+				int color = this.getPixel(pixel);
+				
+				int value;
+				
+				if (fastPath)
+				{
+					value = (color & 0b001) | ((color >>> 7) & 0b010) | ((color >>> 14) & 0b100);
+				}
+				else
+				{
+					value = 0;
+					
+					for (int channel = 0; channel < channels; channel++)
+					{
+						value = value | (((color >>> (8 * channel)) & channelMask) << (channel * bitsPerChannel));
+					}
+				}
+				
+				accumulator = accumulator | ((long)value << accumulatorBits);
+				
+				accumulatorBits = accumulatorBits + bitsPerPixel;
+				
+				pixel++;
+			}
+			else
+			{
+				int value = (this.getPixel(pixel) >>> shift) & 0b1;
+				
+				accumulator = accumulator | ((long)value << accumulatorBits);
+				
+				accumulatorBits++;
+				
+				shift = this.nextShift(shift);
+				
+				if (shift == 0)
+				{
+					pixel++;
+				}
+			}
+			
+			while (accumulatorBits >= 8 && index < end)
+			{
+				bytes[index++] = (byte)accumulator;
+				
+				accumulator = accumulator >>> 8;
+				
+				accumulatorBits = accumulatorBits - 8;
+			}
+		}
+	}
+	
+	private long getGroupBit(long bitOffset, long bit)
+	{
+		if (this.pixels == null)
+		{
+			return -1;
+		}
+		
+		long groupBit = (bit + 7) & ~7L;
+		
+		for (int i = 0; i < this.bitsPerPixel; i++)
+		{
+			if ((bitOffset + groupBit) % this.bitsPerPixel == 0)
+			{
+				return groupBit;
+			}
+			
+			groupBit = groupBit + 8;
+		}
+		
+		return -1;
+	}
+	
+	private void writeGroups(int pixel, int groups, byte[] bytes, int index)
+	{
+		int[] pixels = this.pixels;
+		
+		int bitsPerPixel = this.bitsPerPixel;
+		
+		int halfBits = GROUP_PIXELS / 2 * bitsPerPixel;
+		
+		int lowBytes = Math.min(bitsPerPixel, 8);
+		
+		int pixelMask = (1 << bitsPerPixel) - 1;
+		
+		int clearMask = this.clearMask;
+		
+		int[] lowSpread = this.lowSpread;
+		
+		int[] highSpread = this.highSpread;
+		
+		for (int group = 0; group < groups; group++)
+		{
+			long low = 0;
+			
+			long high = 0;
+			
+			for (int i = 0; i < lowBytes; i++)
+			{
+				low = low | ((bytes[index + i] & 0xFFL) << (8 * i));
+			}
+			
+			for (int i = 8; i < bitsPerPixel; i++)
+			{
+				high = high | ((bytes[index + i] & 0xFFL) << (8 * (i - 8)));
+			}
+			
+			long upper = halfBits == 64 ? high : (low >>> halfBits) | (high << (64 - halfBits));
+			
+			for (int i = 0; i < GROUP_PIXELS / 2; i++)
+			{
+				int lowValue = (int)(low >>> (i * bitsPerPixel)) & pixelMask;
+				
+				int upperValue = (int)(upper >>> (i * bitsPerPixel)) & pixelMask;
+				
+				if (bitsPerPixel <= 8)
+				{
+					pixels[pixel + i] = (pixels[pixel + i] & clearMask) | lowSpread[lowValue];
+					
+					pixels[pixel + GROUP_PIXELS / 2 + i] = (pixels[pixel + GROUP_PIXELS / 2 + i] & clearMask) | lowSpread[upperValue];
+				}
+				else
+				{
+					pixels[pixel + i] = (pixels[pixel + i] & clearMask) | lowSpread[lowValue & 0xFF] | highSpread[lowValue >>> 8];
+					
+					pixels[pixel + GROUP_PIXELS / 2 + i] = (pixels[pixel + GROUP_PIXELS / 2 + i] & clearMask) | lowSpread[upperValue & 0xFF] | highSpread[upperValue >>> 8];
+				}
+			}
+			
+			pixel = pixel + GROUP_PIXELS;
+			
+			index = index + bitsPerPixel;
+		}
+	}
+	
+	private int spread(int value)
+	{
+		int color = 0;
+		
+		for (int channel = 0; channel < this.channels; channel++)
+		{
+			color = color | (((value >>> (channel * this.bitsPerChannel)) & this.channelMask) << (8 * channel));
+		}
+		
+		return color;
+	}
+	
+	private void readGroups(int pixel, int groups, byte[] bytes, int index)
+	{
+		int[] pixels = this.pixels;
+		
+		int bitsPerPixel = this.bitsPerPixel;
+		
+		int halfBits = GROUP_PIXELS / 2 * bitsPerPixel;
+		
+		int lowBytes = Math.min(bitsPerPixel, 8);
+		
+		int pixelMask = (1 << bitsPerPixel) - 1;
+		
+		int channelBits = ~this.clearMask;
+		
+		int channelShift = 8 - this.bitsPerChannel;
+		
+		int pairShift = 16 - 2 * this.bitsPerChannel;
+		
+		for (int group = 0; group < groups; group++)
+		{
+			long low = 0;
+			
+			long upper = 0;
+			
+			for (int i = 0; i < GROUP_PIXELS / 2; i++)
+			{
+				int value = pixels[pixel + i] & channelBits;
+				
+				value = (value | (value >>> channelShift)) & 0x00FF00FF;
+				
+				low = low | ((long)((value | (value >>> pairShift)) & pixelMask) << (i * bitsPerPixel));
+				
+				value = pixels[pixel + GROUP_PIXELS / 2 + i] & channelBits;
+				
+				value = (value | (value >>> channelShift)) & 0x00FF00FF;
+				
+				upper = upper | ((long)((value | (value >>> pairShift)) & pixelMask) << (i * bitsPerPixel));
+			}
+			
+			long high = halfBits == 64 ? upper : upper >>> (64 - halfBits);
+			
+			if (halfBits < 64)
+			{
+				low = low | (upper << halfBits);
+			}
+			
+			for (int i = 0; i < lowBytes; i++)
+			{
+				bytes[index + i] = (byte)(low >>> (8 * i));
+			}
+			
+			for (int i = 8; i < bitsPerPixel; i++)
+			{
+				bytes[index + i] = (byte)(high >>> (8 * (i - 8)));
+			}
+			
+			pixel = pixel + GROUP_PIXELS;
+			
+			index = index + bitsPerPixel;
+		}
+	}
+	
+	private int getShift(int bit)
+	{
+		return 8 * (bit / this.bitsPerChannel) + bit % this.bitsPerChannel;
+	}
+	
+	private int nextShift(int shift)
+	{
+		shift++;
+		
+		if ((shift & 7) == this.bitsPerChannel)
+		{
+			shift = (shift & ~7) + 8;
+			
+			if (shift == 8 * this.channels)
+			{
+				shift = 0;
+			}
+		}
+		
+		return shift;
+	}
+	
+	private long getFirstBit(long row)
+	{
+		return (row * this.width - this.firstPixel) * this.bitsPerPixel;
+	}
+	
+	private boolean isParallel(long bitCount, ForkJoinPool forkJoinPool)
+	{
+		return forkJoinPool != null && forkJoinPool.getParallelism() > 1 && bitCount >= 2 * STRIPE_BITS;
+	}
+	
+	private void checkBounds(long bitOffset, long bitCount)
+	{
+		if (bitOffset < 0 || bitCount < 0 || bitOffset + bitCount > this.bitCapacity)
+		{
+			throw new IndexOutOfBoundsException("Bits " + bitOffset + " to " + (bitOffset + bitCount) + " exceed the capacity of " + this.bitCapacity + " bits.");
+		}
+	}
+	
+	private int getPixel(int pixel)
+	{
+		if (this.pixels != null)
+		{
+			return this.pixels[pixel];
+		}
+		
+		if (this.mappedBitmap != null)
+		{
+			return this.mappedBitmap.getPixel(pixel);
+		}
+		
+		byte[] data = this.data;
+		
+		int[] channelOffsets = this.channelOffsets;
+		
+		int index = pixel * channelOffsets.length;
+		
+		int color = (data[index + channelOffsets[0]] & 0xFF) | ((data[index + channelOffsets[1]] & 0xFF) << 8) | ((data[index + channelOffsets[2]] & 0xFF) << 16);
+		
+		if (channelOffsets.length == 4)
+		{
+			color = color | ((data[index + channelOffsets[3]] & 0xFF) << 24);
+		}
+		
+		return color;
+	}
+	
+	private void setPixel(int pixel, int color)
+	{
+		if (this.pixels != null)
+		{
+			this.pixels[pixel] = color;
+			
+			return;
+		}
+		
+		if (this.mappedBitmap != null)
+		{
+			this.mappedBitmap.setPixel(pixel, color);
+			
+			return;
+		}
+		
+		byte[] data = this.data;
+		
+		int[] channelOffsets = this.channelOffsets;
+		
+		int index = pixel * channelOffsets.length;
+		
+		data[index + channelOffsets[0]] = (byte)color;
+		data[index + channelOffsets[1]] = (byte)(color >>> 8);
+		data[index + channelOffsets[2]] = (byte)(color >>> 16);
+		
+		if (channelOffsets.length == 4)
+		{
+			data[index + channelOffsets[3]] = (byte)(color >>> 24);
+		}
+	}
+	
+	private void writeBit(int pixel, int shift, int value)
+	{
+		this.setPixel(pixel, (this.getPixel(pixel) & ~(1 << shift)) | (value << shift));
+	}
+	
+	private static int readBit(byte[] bytes, int offset, long bit)
+	{
+		return (bytes[offset + (int)(bit >>> 3)] >>> (int)(bit & 7)) & 0b1;
+	}
+	
+	private class StripeTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private boolean write;
+		
+		private long bitOffset;
+		
+		private byte[] bytes;
+		
+		private int offset;
+		
+		private int length;
+		
+		private long firstRow;
+		
+		private long lastRow;
+		
+		public StripeTask(boolean write, long bitOffset, byte[] bytes, int offset, int length, long firstRow, long lastRow)
+		{
+			this.write = write;
+			
+			this.bitOffset = bitOffset;
+			
+			this.bytes = bytes;
+			
+			this.offset = offset;
+			
+			this.length = length;
+			
+			this.firstRow = firstRow;
+			
+			this.lastRow = lastRow;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			long rows = this.lastRow - this.firstRow;
+			
+			if (rows > 1 && rows * LsbRaster.this.width * LsbRaster.this.bitsPerPixel > STRIPE_BITS)
+			{
+				long middleRow = this.firstRow + rows / 2;
+				
+				invokeAll(new StripeTask(this.write, this.bitOffset, this.bytes, this.offset, this.length, this.firstRow, middleRow), new StripeTask(this.write, this.bitOffset, this.bytes, this.offset, this.length, middleRow, this.lastRow));
+			}
+			else
+			{
+				long bitCount = (long)this.length * 8;
+				
+				long fromBit = Math.max(LsbRaster.this.getFirstBit(this.firstRow) - this.bitOffset, 0);
+				
+				long toBit = Math.min(LsbRaster.this.getFirstBit(this.lastRow) - this.bitOffset, bitCount);
+				
+				if (this.write)
+				{
+					LsbRaster.this.write(this.bitOffset, this.bytes, this.offset, fromBit, toBit);
+				}
+				else
+				{
+					int fromByte = (int)((fromBit + 7) / 8);
+					
+					int toByte = (int)((toBit + 7) / 8);
+					
+					LsbRaster.this.read(this.bitOffset + fromByte * 8L, this.bytes, this.offset + fromByte, toByte - fromByte);
+				}
+			}
+		}
+	}
+}
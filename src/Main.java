@@ -22,13 +22,25 @@
  * SOFTWARE.
  */
 
-import java.awt.image.BufferedImage;
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.application.*;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.concurrent.*;
 import javafx.scene.*;
 import javafx.scene.layout.*;
 import javafx.scene.control.*;
@@ -38,7 +50,9 @@ import javafx.stage.FileChooser.*;
 
 public class Main extends Application
 {
-	private FileEncoder fileEncoder;
+	private static final int PREVIEW_BUFFER_SIZE = 1024 * 1024;
+	
+	private volatile FileEncoder fileEncoder;
 	
 	private Button buttonOpenImage;
 
@@ -50,8 +64,20 @@ public class Main extends Application
 	
 	private Label labelSpace;
 	
+	private ProgressBar progressBar;
+	
+	private Label labelStatus;
+	
+	private Button buttonCancel;
+	
 	private ImageView imageView;
 	
+	private WritableImage writableImage;
+	
+	private ExecutorService executorService;
+	
+	private List<ProgressTask<?>> tasks;
+	
 	public static void main(String[] args)
 	{
 		launch(args);
@@ -62,6 +88,17 @@ public class Main extends Application
 	{
 		stage.setTitle("Image Steganography");
 		
+		this.executorService = Executors.newSingleThreadExecutor(runnable -> 
+		{
+			Thread thread = new Thread(runnable, "Image Steganography Worker");
+			
+			thread.setDaemon(true);
+			
+			return thread;
+		});
+		
+		this.tasks = new ArrayList<>();
+		
 		this.buttonOpenImage = new Button("Open Image");
 
 		this.buttonOpenImage.setOnAction(event -> 
@@ -84,37 +121,7 @@ public class Main extends Application
 	        
 	        if (file != null)
 	        {
-	        	try
-	        	{
-					this.fileEncoder = new FileEncoder(file);
-				}
-	        	catch (IOException e)
-	        	{
-	        		e.printStackTrace();
-					
-					Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to open image \"" + file.getPath() + "\".");
-					
-					alert.setHeaderText("");
-					
-					alert.showAndWait();
-				}
-	        	
-	        	Image image = new Image(file.toURI().toString());
-	        	
-	        	if (image != null)
-	        	{
-	        		this.imageView.setImage(image);
-	        		
-	        		this.buttonSaveImage.setDisable(false);
-	        		
-	        		this.buttonEncodeFile.setDisable(false);
-	        		
-	        		this.buttonDecodeFile.setDisable(false);
-	        		
-	        		this.labelSpace.setDisable(false);
-	        		
-	        		this.updateImage();
-	        	}
+	        	this.openImage(file);
 	        }
 		});
 		
@@ -138,20 +145,7 @@ public class Main extends Application
 		        
 		        if (file != null)
 		        {
-		        	try
-		        	{
-						this.fileEncoder.save(file);
-					}
-		        	catch (IOException e)
-		        	{
-		        		e.printStackTrace();
-						
-						Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to save image as \"" + file.getPath() + "\".");
-						
-						alert.setHeaderText("");
-						
-						alert.showAndWait();
-					}
+		        	this.saveImage(file);
 		        }
 			}
 		});
@@ -165,8 +159,6 @@ public class Main extends Application
 		this.buttonEncodeFile.setOnAction(event -> 
 		{
 			this.encodeFile(stage);
-			
-			this.updateImage();
 		});
 
 		this.buttonDecodeFile = new Button("Decode File");
@@ -184,7 +176,25 @@ public class Main extends Application
 		
 		this.labelSpace.setDisable(true);
 		
-		ToolBar toolBar = new ToolBar(this.buttonOpenImage, this.buttonSaveImage, separator1, this.buttonEncodeFile, this.buttonDecodeFile, separator2, this.labelSpace);
+		Separator separator3 = new Separator();
+		
+		this.progressBar = new ProgressBar(0);
+		
+		this.labelStatus = new Label("");
+		
+		this.buttonCancel = new Button("Cancel");
+		
+		this.buttonCancel.setDisable(true);
+		
+		this.buttonCancel.setOnAction(event -> 
+		{
+			if (!this.tasks.isEmpty())
+			{
+				this.tasks.get(0).cancel();
+			}
+		});
+		
+		ToolBar toolBar = new ToolBar(this.buttonOpenImage, this.buttonSaveImage, separator1, this.buttonEncodeFile, this.buttonDecodeFile, separator2, this.labelSpace, separator3, this.progressBar, this.labelStatus, this.buttonCancel);
 		
 		this.imageView = new ImageView();
 		this.imageView.setSmooth(true);
@@ -207,6 +217,101 @@ public class Main extends Application
 		stage.show();
 	}
 	
+	@Override
+	public void stop()
+	{
+		if (this.executorService != null)
+		{
+			this.executorService.shutdownNow();
+		}
+	}
+	
+	private void openImage(File file)
+	{
+		ProgressTask<WritableImage> task = new ProgressTask<WritableImage>("Opening \"" + file.getName() + "\"")
+		{
+			@Override
+			protected WritableImage call() throws Exception
+			{
+				FileEncoder fileEncoder;
+				
+				try (InputStream inputStream = this.track(Files.newInputStream(file.toPath()), file.length()))
+				{
+					fileEncoder = new FileEncoder(inputStream);
+				}
+				
+				WritableImage writableImage = renderImage(fileEncoder, null);
+				
+				Main.this.fileEncoder = fileEncoder;
+				
+				return writableImage;
+			}
+		};
+		
+		task.setOnSucceeded(event -> 
+		{
+			this.writableImage = task.getValue();
+			
+			this.imageView.setImage(this.writableImage);
+			
+			this.buttonSaveImage.setDisable(false);
+			
+			this.buttonEncodeFile.setDisable(false);
+			
+			this.buttonDecodeFile.setDisable(false);
+			
+			this.labelSpace.setDisable(false);
+			
+			this.updateCapacity();
+		});
+		
+		task.setOnFailed(event -> this.showError("Failed to open image \"" + file.getPath() + "\".", task.getException()));
+		
+		this.submit(task);
+	}
+	
+	private void saveImage(File file)
+	{
+		ProgressTask<Void> task = new ProgressTask<Void>("Saving \"" + file.getName() + "\"")
+		{
+			@Override
+			protected Void call() throws Exception
+			{
+				String fileName = file.getName();
+				
+				File output = file;
+				
+				String fileExtension = "png";
+				
+				if (fileName.contains(".") && fileName.lastIndexOf(".") != 0)
+				{
+					fileExtension = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+				}
+				else
+				{
+					output = new File(file.getPath() + ".png");
+				}
+				
+				try (OutputStream outputStream = this.track(new BufferedOutputStream(new FileOutputStream(output))))
+				{
+					Main.this.fileEncoder.save(outputStream, fileExtension);
+				}
+				catch (IOException | RuntimeException e)
+				{
+					Files.deleteIfExists(output.toPath());
+					
+					throw e;
+				}
+				
+				return null;
+			}
+		};
+		
+		task.setOnFailed(event -> this.showError("Failed to save image as \"" + file.getPath() + "\".", task.getException()));
+		
+		this.submit(task);
+	}
+	
 	public boolean encodeFile(Stage stage)
 	{
 		if (this.fileEncoder != null)
@@ -225,7 +330,7 @@ public class Main extends Application
 	        	{
 	        		BinaryFile binaryFile = new BinaryFile(file);
 	        		
-	        		BinaryFile binaryFileWithoutFileName = new BinaryFile(binaryFile.getBytes(), "");
+	        		BinaryFile binaryFileWithoutFileName = new BinaryFile(file, "");
 	        		
 					if (binaryFileWithoutFileName.getRequiredSpace() > this.fileEncoder.getCapacity())
 					{
@@ -253,7 +358,7 @@ public class Main extends Application
 						
 						if (binaryFile.getRequiredSpace() <= this.fileEncoder.getCapacity())
 						{
-							this.fileEncoder.encode(binaryFile);
+							this.encodeFile(binaryFile);
 							
 							return true;
 						}
@@ -275,12 +380,60 @@ public class Main extends Application
         return false;
 	}
 	
+	private void encodeFile(BinaryFile binaryFile)
+	{
+		ProgressTask<FileEncoder> task = new ProgressTask<FileEncoder>("Encoding \"" + binaryFile.getName() + "\"")
+		{
+			@Override
+			protected FileEncoder call() throws Exception
+			{
+				FileEncoder fileEncoder = new FileEncoder(Main.this.fileEncoder);
+				
+				BinaryFile trackedFile = new BinaryFile(() -> this.track(binaryFile.openInputStream(), binaryFile.getSize()), binaryFile.getSize(), binaryFile.getName());
+				
+				if (!fileEncoder.encode(trackedFile))
+				{
+					throw new IOException("The file \"" + binaryFile.getName() + "\" is too big to be hidden in the image.");
+				}
+				
+				Main.this.fileEncoder = fileEncoder;
+				
+				return fileEncoder;
+			}
+		};
+		
+		task.setOnSucceeded(event -> this.updateImage(task.getValue()));
+		
+		task.setOnFailed(event -> this.showError("Failed to hide the file \"" + binaryFile.getName() + "\".", task.getException()));
+		
+		this.submit(task);
+	}
+	
 	public void decodeFile(Stage stage)
 	{
 		if (this.fileEncoder != null)
 		{
-			BinaryFile binaryFile = this.fileEncoder.decode();
+			ProgressTask<BinaryFile> task = new ProgressTask<BinaryFile>("Decoding")
+			{
+				@Override
+				protected BinaryFile call() throws Exception
+				{
+					return Main.this.fileEncoder.decode();
+				}
+			};
+			
+			task.setOnSucceeded(event -> this.saveFile(stage, task.getValue()));
 			
+			task.setOnFailed(event -> this.showError("Failed to decode the image.", task.getException()));
+			
+			this.submit(task);
+		}
+	}
+	
+	private void saveFile(Stage stage, BinaryFile binaryFile)
+	{
+		if (binaryFile != null)
+		{
 			if (!binaryFile.isEmpty())
 			{
 				FileChooser fileChooser = new FileChooser();
@@ -295,20 +448,31 @@ public class Main extends Application
 		        
 		        if (file != null)
 		        {
-		        	try
-		        	{
-		        		binaryFile.save(file);
-					}
-		        	catch (IOException e)
+		        	ProgressTask<Void> task = new ProgressTask<Void>("Saving \"" + file.getName() + "\"")
 		        	{
-						e.printStackTrace();
-						
-						Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to save file \"" + file.getPath() + "\".");
-						
-						alert.setHeaderText("");
-						
-						alert.showAndWait();
-					}
+		        		@Override
+		        		protected Void call() throws Exception
+		        		{
+		        			BinaryFile trackedFile = new BinaryFile(() -> this.track(binaryFile.openInputStream(), binaryFile.getSize()), binaryFile.getSize(), binaryFile.getName());
+		        			
+		        			try
+		        			{
+		        				trackedFile.save(file);
+		        			}
+		        			catch (IOException | RuntimeException e)
+		        			{
+		        				Files.deleteIfExists(file.toPath());
+		        				
+		        				throw e;
+		        			}
+		        			
+		        			return null;
+		        		}
+		        	};
+		        	
+		        	task.setOnFailed(event -> this.showError("Failed to save file \"" + file.getPath() + "\".", task.getException()));
+		        	
+		        	this.submit(task);
 		        }
 			}
 			else
@@ -322,18 +486,206 @@ public class Main extends Application
 		}
 	}
 	
-	public void updateImage()
+	public void updateImage(FileEncoder fileEncoder)
 	{
-		BufferedImage bufferedImage = this.fileEncoder.getBufferedImage();
-		
-		Image image = SwingFXUtils.toFXImage(bufferedImage, null);
+		this.writableImage = renderImage(fileEncoder, this.writableImage);
 		
-		this.imageView.setImage(image);
+		this.imageView.setImage(this.writableImage);
 		
-		int size = this.fileEncoder.getCapacity();
+		this.updateCapacity();
+	}
+	
+	private void updateCapacity()
+	{
+		long size = this.fileEncoder.getCapacity();
 		
 		String capacity = size + " byte" + (size == 1 ? "" : "s");
 		
 		this.labelSpace.setText(capacity);
 	}
+	
+	private static WritableImage renderImage(FileEncoder fileEncoder, WritableImage writableImage)
+	{
+		int width = fileEncoder.getWidth();
+		
+		int height = fileEncoder.getHeight();
+		
+		Rectangle dirtyRegion = fileEncoder.getDirtyRegion();
+		
+		if (writableImage == null || writableImage.getWidth() != width || writableImage.getHeight() != height)
+		{
+			writableImage = new WritableImage(width, height);
+			
+			dirtyRegion = new Rectangle(0, 0, width, height);
+		}
+		
+		if (dirtyRegion != null)
+		{
+			int rows = Math.max(Math.min(PREVIEW_BUFFER_SIZE / width, dirtyRegion.height), 1);
+			
+			int[] argb = new int[rows * width];
+			
+			for (int y = dirtyRegion.y; y < dirtyRegion.y + dirtyRegion.height; y = y + rows)
+			{
+				Rectangle region = new Rectangle(0, y, width, Math.min(rows, dirtyRegion.y + dirtyRegion.height - y));
+				
+				fileEncoder.getRGB(region, argb, 0, width);
+				
+				writableImage.getPixelWriter().setPixels(region.x, region.y, region.width, region.height, PixelFormat.getIntArgbInstance(), argb, 0, width);
+			}
+		}
+		
+		fileEncoder.clearDirtyRegion();
+		
+		return writableImage;
+	}
+	
+	private void submit(ProgressTask<?> task)
+	{
+		this.tasks.add(task);
+		
+		task.stateProperty().addListener((observable, oldState, state) -> this.updateTasks());
+		
+		this.executorService.execute(task);
+		
+		this.updateTasks();
+	}
+	
+	private void updateTasks()
+	{
+		this.tasks.removeIf(task -> task.isDone());
+		
+		this.progressBar.progressProperty().unbind();
+		
+		if (this.tasks.isEmpty())
+		{
+			this.progressBar.setProgress(0);
+			
+			this.labelStatus.setText("");
+			
+			this.buttonCancel.setDisable(true);
+		}
+		else
+		{
+			ProgressTask<?> task = this.tasks.get(0);
+			
+			this.progressBar.progressProperty().bind(task.progressProperty());
+			
+			int queued = this.tasks.size() - 1;
+			
+			this.labelStatus.setText(task.getDescription() + (queued > 0 ? " (" + queued + " queued)" : ""));
+			
+			this.buttonCancel.setDisable(false);
+		}
+	}
+	
+	private void showError(String message, Throwable throwable)
+	{
+		if (throwable != null)
+		{
+			throwable.printStackTrace();
+		}
+		
+		String details = throwable != null && throwable.getMessage() != null ? "\n" + throwable.getMessage() : "";
+		
+		Alert alert = new Alert(Alert.AlertType.ERROR, message + details);
+		
+		alert.setHeaderText("");
+		
+		alert.showAndWait();
+	}
+	
+	private abstract static class ProgressTask<V> extends Task<V>
+	{
+		private String description;
+		
+		private long total;
+		
+		private long processed;
+		
+		public ProgressTask(String description)
+		{
+			this.description = description;
+			
+			this.updateProgress(-1, 1);
+		}
+		
+		public String getDescription()
+		{
+			return this.description;
+		}
+		
+		protected InputStream track(InputStream inputStream, long total)
+		{
+			this.total = total;
+			
+			this.processed = 0;
+			
+			return new FilterInputStream(inputStream)
+			{
+				@Override
+				public int read() throws IOException
+				{
+					int b = super.read();
+					
+					ProgressTask.this.processed(b < 0 ? 0 : 1);
+					
+					return b;
+				}
+				
+				@Override
+				public int read(byte[] bytes, int offset, int length) throws IOException
+				{
+					int count = super.read(bytes, offset, length);
+					
+					ProgressTask.this.processed(Math.max(count, 0));
+					
+					return count;
+				}
+				
+				@Override
+				public long skip(long n) throws IOException
+				{
+					long count = super.skip(n);
+					
+					ProgressTask.this.processed(count);
+					
+					return count;
+				}
+			};
+		}
+		
+		protected OutputStream track(OutputStream outputStream)
+		{
+			this.total = -1;
+			
+			this.processed = 0;
+			
+			return new FilterOutputStream(outputStream)
+			{
+				@Override
+				public void write(byte[] bytes, int offset, int length) throws IOException
+				{
+					this.out.write(bytes, offset, length);
+					
+					ProgressTask.this.processed(length);
+				}
+			};
+		}
+		
+		private void processed(long count) throws InterruptedIOException
+		{
+			if (this.isCancelled())
+			{
+				throw new InterruptedIOException("The operation was cancelled.");
+			}
+			
+			this.processed = this.processed + count;
+			
+			if (this.total > 0)
+			{
+				this.updateProgress(Math.min(this.processed, this.total), this.total);
+			}
+		}
+	}
 }
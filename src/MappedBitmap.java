@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+public class MappedBitmap
+{
+	private static final int FILE_HEADER_SIZE = 14;
+	
+	private static final int INFO_HEADER_SIZE = 40;
+	
+	private File file;
+	
+	private boolean writable;
+	
+	private MappedByteBuffer buffer;
+	
+	private int width;
+	
+	private int height;
+	
+	private int rowStride;
+	
+	private boolean bottomUp;
+	
+	public MappedBitmap(File file, boolean writable) throws IOException
+	{
+		this.file = file;
+		
+		this.writable = writable;
+		
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.READ);
+		
+		try (FileChannel fileChannel = writable ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE) : FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			ByteBuffer header = readHeader(fileChannel);
+			
+			if (header == null)
+			{
+				throw new IOException("The file \"" + file.getPath() + "\" is not an uncompressed 24 bit bitmap.");
+			}
+			
+			int height = header.getInt(22);
+			
+			this.width = header.getInt(18);
+			
+			this.height = Math.abs(height);
+			
+			this.rowStride = (this.width * 3 + 3) / 4 * 4;
+			
+			this.bottomUp = height > 0;
+			
+			long dataOffset = header.getInt(10) & 0xFFFFFFFFL;
+			
+			long dataSize = (long)this.rowStride * this.height;
+			
+			if (dataSize > Integer.MAX_VALUE || dataOffset + dataSize > fileChannel.size())
+			{
+				throw new IOException("The pixels of the bitmap \"" + file.getPath() + "\" can not be mapped.");
+			}
+			
+			this.buffer = fileChannel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, dataOffset, dataSize);
+		}
+		
+		stageTimer.stop(0, (long)this.width * this.height);
+	}
+	
+	public static boolean isSupported(File file)
+	{
+		try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			return readHeader(fileChannel) != null;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+	
+	private static ByteBuffer readHeader(FileChannel fileChannel) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE + INFO_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		
+		while (header.hasRemaining())
+		{
+			if (fileChannel.read(header, header.position()) < 0)
+			{
+				return null;
+			}
+		}
+		
+		boolean signature = header.get(0) == 'B' && header.get(1) == 'M';
+		
+		int infoHeaderSize = header.getInt(14);
+		
+		int width = header.getInt(18);
+		
+		int height = header.getInt(22);
+		
+		int bitCount = header.getShort(28);
+		
+		int compression = header.getInt(30);
+		
+		if (!signature || infoHeaderSize < INFO_HEADER_SIZE || width <= 0 || height == 0 || height == Integer.MIN_VALUE || bitCount != 24 || compression != 0)
+		{
+			return null;
+		}
+		
+		return header;
+	}
+	
+	public File getFile()
+	{
+		return this.file;
+	}
+	
+	public boolean isWritable()
+	{
+		return this.writable;
+	}
+	
+	public int getWidth()
+	{
+		return this.width;
+	}
+	
+	public int getHeight()
+	{
+		return this.height;
+	}
+	
+	public int getPixel(int pixel)
+	{
+		int index = this.getIndex(pixel);
+		
+		MappedByteBuffer buffer = this.buffer;
+		
+		return (buffer.get(index) & 0xFF) | ((buffer.get(index + 1) & 0xFF) << 8) | ((buffer.get(index + 2) & 0xFF) << 16);
+	}
+	
+	public void setPixel(int pixel, int color)
+	{
+		int index = this.getIndex(pixel);
+		
+		MappedByteBuffer buffer = this.buffer;
+		
+		buffer.put(index, (byte)color);
+		buffer.put(index + 1, (byte)(color >>> 8));
+		buffer.put(index + 2, (byte)(color >>> 16));
+	}
+	
+	public void getRGB(Rectangle region, int[] argb, int offset, int scanlineStride)
+	{
+		for (int y = region.y; y < region.y + region.height; y++)
+		{
+			int index = offset + (y - region.y) * scanlineStride;
+			
+			int pixel = y * this.width + region.x;
+			
+			for (int x = 0; x < region.width; x++)
+			{
+				argb[index++] = 0xFF000000 | this.getPixel(pixel++);
+			}
+		}
+	}
+	
+	public BufferedImage toBufferedImage()
+	{
+		BufferedImage bufferedImage = new BufferedImage(this.width, this.height, BufferedImage.TYPE_3BYTE_BGR);
+		
+		byte[] data = ((DataBufferByte)bufferedImage.getRaster().getDataBuffer()).getData();
+		
+		ByteBuffer buffer = this.buffer.duplicate();
+		
+		for (int y = 0; y < this.height; y++)
+		{
+			buffer.position(this.getIndex(y * this.width));
+			
+			buffer.get(data, y * this.width * 3, this.width * 3);
+		}
+		
+		return bufferedImage;
+	}
+	
+	public void force()
+	{
+		if (this.writable)
+		{
+			this.buffer.force();
+		}
+	}
+	
+	private int getIndex(int pixel)
+	{
+		int y = pixel / this.width;
+		
+		int x = pixel - y * this.width;
+		
+		return (this.bottomUp ? this.height - 1 - y : y) * this.rowStride + x * 3;
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public enum PayloadCodec
+{
+	NONE(0),
+	DEFLATE(1);
+	
+	private static final int HEADER_SIZE = 8;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final int SAMPLE_SIZE = 256 * 1024;
+	
+	private static final double COMPRESSION_THRESHOLD = 0.9;
+	
+	private int id;
+	
+	private PayloadCodec(int id)
+	{
+		this.id = id;
+	}
+	
+	public int getId()
+	{
+		return this.id;
+	}
+	
+	public static PayloadCodec fromId(int id)
+	{
+		for (PayloadCodec payloadCodec : values())
+		{
+			if (payloadCodec.id == id)
+			{
+				return payloadCodec;
+			}
+		}
+		
+		return null;
+	}
+	
+	public OutputStream compress(OutputStream outputStream)
+	{
+		switch (this)
+		{
+			case DEFLATE:
+				return new DeflaterOutputStream(outputStream, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE)
+				{
+					@Override
+					public void close() throws IOException
+					{
+						try
+						{
+							super.close();
+						}
+						finally
+						{
+							this.def.end();
+						}
+					}
+				};
+			default:
+				return outputStream;
+		}
+	}
+	
+	public InputStream compress(InputStream inputStream)
+	{
+		switch (this)
+		{
+			case DEFLATE:
+				return new DeflaterInputStream(inputStream, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE)
+				{
+					@Override
+					public void close() throws IOException
+					{
+						try
+						{
+							super.close();
+						}
+						finally
+						{
+							this.def.end();
+						}
+					}
+				};
+			default:
+				return inputStream;
+		}
+	}
+	
+	public InputStream decompress(InputStream inputStream)
+	{
+		switch (this)
+		{
+			case DEFLATE:
+				return new InflaterInputStream(inputStream, new Inflater(), BUFFER_SIZE)
+				{
+					@Override
+					public void close() throws IOException
+					{
+						try
+						{
+							super.close();
+						}
+						finally
+						{
+							this.inf.end();
+						}
+					}
+				};
+			default:
+				return inputStream;
+		}
+	}
+	
+	public double estimateRatio(byte[] sample, int offset, int length)
+	{
+		if (this == NONE || length == 0)
+		{
+			return 1.0;
+		}
+		
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(length);
+		
+		try (OutputStream outputStream = this.compress(byteArrayOutputStream))
+		{
+			outputStream.write(sample, offset, length);
+		}
+		catch (IOException e)
+		{
+			return 1.0;
+		}
+		
+		return (double)byteArrayOutputStream.size() / length;
+	}
+	
+	public boolean isWorthwhile(byte[] sample, int offset, int length)
+	{
+		return this != NONE && this.estimateRatio(sample, offset, length) < COMPRESSION_THRESHOLD;
+	}
+	
+	public long getEstimatedCapacity(long capacity, BinaryFile binaryFile) throws IOException
+	{
+		if (this == NONE)
+		{
+			return capacity;
+		}
+		
+		byte[] sample = new byte[0];
+		
+		InputStream inputStream = binaryFile.openInputStream();
+		
+		if (inputStream != null)
+		{
+			try
+			{
+				sample = readSample(inputStream);
+			}
+			finally
+			{
+				inputStream.close();
+			}
+		}
+		
+		if (!this.isWorthwhile(sample, 0, sample.length))
+		{
+			return capacity;
+		}
+		
+		return (long)(Math.max(capacity - HEADER_SIZE, 0) / this.estimateRatio(sample, 0, sample.length));
+	}
+	
+	static byte[] readSample(InputStream inputStream) throws IOException
+	{
+		byte[] sample = new byte[SAMPLE_SIZE];
+		
+		int length = 0;
+		
+		while (length < sample.length)
+		{
+			int count = inputStream.read(sample, length, sample.length - length);
+			
+			if (count < 0)
+			{
+				break;
+			}
+			
+			length = length + count;
+		}
+		
+		byte[] bytes = new byte[length];
+		
+		System.arraycopy(sample, 0, bytes, 0, length);
+		
+		return bytes;
+	}
+	
+	static byte[] encodeHeader(long size)
+	{
+		byte[] header = new byte[HEADER_SIZE];
+		
+		for (int i = 0; i < HEADER_SIZE; i++)
+		{
+			header[i] = (byte)((size >> (8 * i)) & 0xFF);
+		}
+		
+		return header;
+	}
+	
+	static long decodeHeader(byte[] header)
+	{
+		long size = 0;
+		
+		for (int i = 0; i < HEADER_SIZE; i++)
+		{
+			size = size | ((long)(((int)(header[i]) + 256) % 256) << (8 * i));
+		}
+		
+		return size;
+	}
+	
+	static int getHeaderSize()
+	{
+		return HEADER_SIZE;
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.imageio.ImageTypeSpecifier;
+
+public class PngBandReader implements BandReader
+{
+	private static final byte[] SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	
+	private static final int BUFFER_SIZE = 256 * 1024;
+	
+	private DataInputStream dataInputStream;
+	
+	private Inflater inflater;
+	
+	private InflaterInputStream inflaterInputStream;
+	
+	private int width;
+	
+	private int height;
+	
+	private int rows;
+	
+	private int bytesPerPixel;
+	
+	private ImageTypeSpecifier imageType;
+	
+	private byte[] currentRow;
+	
+	private byte[] previousRow;
+	
+	public PngBandReader(File file) throws IOException
+	{
+		this.dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		
+		try
+		{
+			byte[] signature = new byte[SIGNATURE.length];
+			
+			this.dataInputStream.readFully(signature);
+			
+			if (!Arrays.equals(signature, SIGNATURE) || this.dataInputStream.readInt() != 13 || !this.readChunkType().equals("IHDR"))
+			{
+				throw new IOException("The image \"" + file.getPath() + "\" is not a PNG image.");
+			}
+			
+			this.width = this.dataInputStream.readInt();
+			
+			this.height = this.dataInputStream.readInt();
+			
+			int bitDepth = this.dataInputStream.readUnsignedByte();
+			
+			int colorType = this.dataInputStream.readUnsignedByte();
+			
+			int compressionMethod = this.dataInputStream.readUnsignedByte();
+			
+			int filterMethod = this.dataInputStream.readUnsignedByte();
+			
+			int interlaceMethod = this.dataInputStream.readUnsignedByte();
+			
+			this.dataInputStream.readInt();
+			
+			if (this.width <= 0 || this.width > Integer.MAX_VALUE / 4 || this.height <= 0 || bitDepth != 8 || (colorType != 2 && colorType != 6) || compressionMethod != 0 || filterMethod != 0 || interlaceMethod != 0)
+			{
+				throw new IOException("Only non-interlaced PNG images with 8 bits per RGB or RGBA channel can be read row by row.");
+			}
+			
+			int length = this.dataInputStream.readInt();
+			
+			String type = this.readChunkType();
+			
+			while (!type.equals("IDAT"))
+			{
+				if (type.equals("tRNS") || type.equals("IEND"))
+				{
+					throw new IOException("The PNG image \"" + file.getPath() + "\" can not be read row by row.");
+				}
+				
+				this.skipFully(length + 4L);
+				
+				length = this.dataInputStream.readInt();
+				
+				type = this.readChunkType();
+			}
+			
+			boolean alpha = colorType == 6;
+			
+			this.bytesPerPixel = alpha ? 4 : 3;
+			
+			this.imageType = ImageTypeSpecifier.createInterleaved(ColorSpace.getInstance(ColorSpace.CS_sRGB), alpha ? new int[] { 0, 1, 2, 3 } : new int[] { 0, 1, 2 }, DataBuffer.TYPE_BYTE, alpha, false);
+			
+			this.currentRow = new byte[this.width * this.bytesPerPixel];
+			
+			this.previousRow = new byte[this.currentRow.length];
+			
+			this.rows = 0;
+			
+			this.inflater = new Inflater();
+			
+			this.inflaterInputStream = new InflaterInputStream(new DataChunkInputStream(length), this.inflater, BUFFER_SIZE);
+		}
+		catch (IOException e)
+		{
+			this.dataInputStream.close();
+			
+			throw e;
+		}
+	}
+	
+	public int getWidth()
+	{
+		return this.width;
+	}
+	
+	public int getHeight()
+	{
+		return this.height;
+	}
+	
+	@Override
+	public BufferedImage read(int y, int height) throws IOException
+	{
+		if (y < this.rows)
+		{
+			throw new IOException("The rows of a PNG image can only be read in order.");
+		}
+		
+		height = Math.min(height, this.height - y);
+		
+		if (height <= 0)
+		{
+			throw new IOException("The band is outside of the image.");
+		}
+		
+		while (this.rows < y)
+		{
+			this.readRow();
+		}
+		
+		BufferedImage band = this.imageType.createBufferedImage(this.width, height);
+		
+		byte[] data = ((DataBufferByte)band.getRaster().getDataBuffer()).getData();
+		
+		for (int row = 0; row < height; row++)
+		{
+			this.readRow();
+			
+			System.arraycopy(this.previousRow, 0, data, row * this.previousRow.length, this.previousRow.length);
+		}
+		
+		return band;
+	}
+	
+	private void readRow() throws IOException
+	{
+		int filterType = this.inflaterInputStream.read();
+		
+		if (filterType < 0)
+		{
+			throw new IOException("Unexpected end of the image data.");
+		}
+		
+		int offset = 0;
+		
+		while (offset < this.currentRow.length)
+		{
+			int count = this.inflaterInputStream.read(this.currentRow, offset, this.currentRow.length - offset);
+			
+			if (count < 0)
+			{
+				throw new IOException("Unexpected end of the image data.");
+			}
+			
+			offset = offset + count;
+		}
+		
+		PngFilter.unfilter(filterType, this.currentRow, this.rows > 0 ? this.previousRow : null, this.bytesPerPixel);
+		
+		byte[] row = this.previousRow;
+		
+		this.previousRow = this.currentRow;
+		
+		this.currentRow = row;
+		
+		this.rows++;
+	}
+	
+	private String readChunkType() throws IOException
+	{
+		byte[] type = new byte[4];
+		
+		this.dataInputStream.readFully(type);
+		
+		return new String(type, StandardCharsets.US_ASCII);
+	}
+	
+	private void skipFully(long length) throws IOException
+	{
+		while (length > 0)
+		{
+			long count = this.dataInputStream.skip(length);
+			
+			if (count <= 0)
+			{
+				this.dataInputStream.readByte();
+				
+				count = 1;
+			}
+			
+			length = length - count;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			this.inflater.end();
+		}
+		finally
+		{
+			this.dataInputStream.close();
+		}
+	}
+	
+	private class DataChunkInputStream extends InputStream
+	{
+		private long remaining;
+		
+		private boolean finished;
+		
+		public DataChunkInputStream(int length)
+		{
+			this.remaining = length & 0xFFFFFFFFL;
+			
+			this.finished = false;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+			
+			DataInputStream dataInputStream = PngBandReader.this.dataInputStream;
+			
+			while (this.remaining == 0)
+			{
+				if (this.finished)
+				{
+					return -1;
+				}
+				
+				dataInputStream.readInt();
+				
+				int chunkLength = dataInputStream.readInt();
+				
+				if (PngBandReader.this.readChunkType().equals("IDAT"))
+				{
+					this.remaining = chunkLength & 0xFFFFFFFFL;
+				}
+				else
+				{
+					this.finished = true;
+				}
+			}
+			
+			int count = dataInputStream.read(bytes, offset, (int)Math.min(length, this.remaining));
+			
+			if (count < 0)
+			{
+				throw new IOException("Unexpected end of the image data.");
+			}
+			
+			this.remaining = this.remaining - count;
+			
+			return count;
+		}
+	}
+}
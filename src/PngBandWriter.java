@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+public class PngBandWriter implements BandWriter
+{
+	private static final int CHUNK_SIZE = 256 * 1024;
+	
+	private OutputStream outputStream;
+	
+	private Deflater deflater;
+	
+	private DeflaterOutputStream deflaterOutputStream;
+	
+	private int width;
+	
+	private int height;
+	
+	private int rows;
+	
+	private boolean alpha;
+	
+	private int bytesPerPixel;
+	
+	private PngFilter pngFilter;
+	
+	private int[] pixels;
+	
+	private byte[] currentRow;
+	
+	private byte[] previousRow;
+	
+	private byte[][] filteredRows;
+	
+	public PngBandWriter(File file, int width, int height, boolean alpha) throws IOException
+	{
+		this(file, width, height, alpha, Deflater.DEFAULT_COMPRESSION, PngFilter.ADAPTIVE);
+	}
+	
+	public PngBandWriter(File file, int width, int height, boolean alpha, int compressionLevel, PngFilter pngFilter) throws IOException
+	{
+		this.outputStream = new BufferedOutputStream(new FileOutputStream(file), CHUNK_SIZE);
+		
+		this.width = width;
+		
+		this.height = height;
+		
+		this.rows = 0;
+		
+		this.alpha = alpha;
+		
+		this.bytesPerPixel = alpha ? 4 : 3;
+		
+		this.pngFilter = pngFilter;
+		
+		this.pixels = new int[width];
+		
+		this.currentRow = new byte[width * this.bytesPerPixel];
+		
+		this.previousRow = new byte[width * this.bytesPerPixel];
+		
+		this.filteredRows = PngFilter.createFilteredRows(width * this.bytesPerPixel);
+		
+		PngWriter.writeHeader(this.outputStream, width, height, alpha);
+		
+		this.deflater = new Deflater(compressionLevel);
+		
+		this.deflaterOutputStream = new DeflaterOutputStream(new ChunkOutputStream(), this.deflater, CHUNK_SIZE);
+	}
+	
+	@Override
+	public void write(BufferedImage band) throws IOException
+	{
+		if (band.getWidth() != this.width || this.rows + band.getHeight() > this.height)
+		{
+			throw new IOException("The band does not fit into the image.");
+		}
+		
+		for (int y = 0; y < band.getHeight(); y++)
+		{
+			PngWriter.readRow(band, y, this.pixels, this.currentRow, this.alpha);
+			
+			byte[] filteredRow = this.pngFilter.filter(this.currentRow, this.rows > 0 ? this.previousRow : null, this.bytesPerPixel, this.filteredRows);
+			
+			this.deflaterOutputStream.write(filteredRow, 0, filteredRow.length);
+			
+			byte[] row = this.previousRow;
+			
+			this.previousRow = this.currentRow;
+			
+			this.currentRow = row;
+			
+			this.rows++;
+		}
+	}
+	
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			this.deflaterOutputStream.close();
+			
+			PngWriter.writeChunk(this.outputStream, "IEND", new byte[0], 0, 0);
+		}
+		finally
+		{
+			this.deflater.end();
+			
+			this.outputStream.close();
+		}
+		
+		if (this.rows != this.height)
+		{
+			throw new IOException("Only " + this.rows + " of " + this.height + " rows were written.");
+		}
+	}
+	
+	private class ChunkOutputStream extends OutputStream
+	{
+		private byte[] buffer;
+		
+		private int size;
+		
+		public ChunkOutputStream()
+		{
+			this.buffer = new byte[CHUNK_SIZE];
+			
+			this.size = 0;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			byte[] bytes = { (byte)b };
+			
+			this.write(bytes, 0, bytes.length);
+		}
+		
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException
+		{
+			while (length > 0)
+			{
+				int count = Math.min(length, this.buffer.length - this.size);
+				
+				System.arraycopy(bytes, offset, this.buffer, this.size, count);
+				
+				this.size = this.size + count;
+				
+				offset = offset + count;
+				
+				length = length - count;
+				
+				if (this.size == this.buffer.length)
+				{
+					this.flush();
+				}
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException
+		{
+			if (this.size > 0)
+			{
+				PngWriter.writeChunk(PngBandWriter.this.outputStream, "IDAT", this.buffer, 0, this.size);
+				
+				this.size = 0;
+			}
+		}
+		
+		@Override
+		public void close() throws IOException
+		{
+			this.flush();
+		}
+	}
+}
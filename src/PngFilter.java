@@ -0,0 +1,261 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.io.IOException;
+
+public enum PngFilter
+{
+	NONE(0),
+	SUB(1),
+	UP(2),
+	AVERAGE(3),
+	PAETH(4),
+	ADAPTIVE(-1);
+	
+	private static final int FILTER_COUNT = 5;
+	
+	private int type;
+	
+	private PngFilter(int type)
+	{
+		this.type = type;
+	}
+	
+	public int getType()
+	{
+		return this.type;
+	}
+	
+	public static PngFilter fromName(String name)
+	{
+		for (PngFilter pngFilter : values())
+		{
+			if (pngFilter.name().equalsIgnoreCase(name))
+			{
+				return pngFilter;
+			}
+		}
+		
+		return null;
+	}
+	
+	public static byte[][] createFilteredRows(int rowLength)
+	{
+		byte[][] filteredRows = new byte[FILTER_COUNT][1 + rowLength];
+		
+		for (int filter = 0; filter < filteredRows.length; filter++)
+		{
+			filteredRows[filter][0] = (byte)filter;
+		}
+		
+		return filteredRows;
+	}
+	
+	public static byte[][] createFilteredRows(int rowLength, BufferPool bufferPool)
+	{
+		byte[][] filteredRows = new byte[FILTER_COUNT][];
+		
+		for (int filter = 0; filter < filteredRows.length; filter++)
+		{
+			filteredRows[filter] = bufferPool.acquire(1 + rowLength);
+			
+			filteredRows[filter][0] = (byte)filter;
+		}
+		
+		return filteredRows;
+	}
+	
+	public byte[] filter(byte[] row, byte[] prior, int bytesPerPixel, byte[][] filteredRows)
+	{
+		return this.filter(row, row.length, prior, bytesPerPixel, filteredRows);
+	}
+	
+	public byte[] filter(byte[] row, int rowLength, byte[] prior, int bytesPerPixel, byte[][] filteredRows)
+	{
+		if (this != ADAPTIVE)
+		{
+			filter(this.type, row, rowLength, prior, bytesPerPixel, filteredRows[this.type]);
+			
+			return filteredRows[this.type];
+		}
+		
+		long none = 0;
+		long sub = 0;
+		long up = 0;
+		long average = 0;
+		long predicted = 0;
+		
+		for (int i = 0; i < rowLength; i++)
+		{
+			int x = row[i] & 0xFF;
+			
+			int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+			
+			int b = prior != null ? prior[i] & 0xFF : 0;
+			
+			int c = i >= bytesPerPixel && prior != null ? prior[i - bytesPerPixel] & 0xFF : 0;
+			
+			none = none + Math.abs((int)(byte)x);
+			sub = sub + Math.abs((int)(byte)(x - a));
+			up = up + Math.abs((int)(byte)(x - b));
+			average = average + Math.abs((int)(byte)(x - ((a + b) >>> 1)));
+			predicted = predicted + Math.abs((int)(byte)(x - paeth(a, b, c)));
+		}
+		
+		long[] sums = { none, sub, up, average, predicted };
+		
+		int best = 0;
+		
+		for (int filter = 1; filter < sums.length; filter++)
+		{
+			if (sums[filter] < sums[best])
+			{
+				best = filter;
+			}
+		}
+		
+		filter(best, row, rowLength, prior, bytesPerPixel, filteredRows[best]);
+		
+		return filteredRows[best];
+	}
+	
+	private static void filter(int type, byte[] row, int rowLength, byte[] prior, int bytesPerPixel, byte[] filteredRow)
+	{
+		switch (type)
+		{
+			case 1:
+				for (int i = 0; i < rowLength; i++)
+				{
+					int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+					
+					filteredRow[i + 1] = (byte)((row[i] & 0xFF) - a);
+				}
+				break;
+			
+			case 2:
+				for (int i = 0; i < rowLength; i++)
+				{
+					int b = prior != null ? prior[i] & 0xFF : 0;
+					
+					filteredRow[i + 1] = (byte)((row[i] & 0xFF) - b);
+				}
+				break;
+			
+			case 3:
+				for (int i = 0; i < rowLength; i++)
+				{
+					int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+					
+					int b = prior != null ? prior[i] & 0xFF : 0;
+					
+					filteredRow[i + 1] = (byte)((row[i] & 0xFF) - ((a + b) >>> 1));
+				}
+				break;
+			
+			case 4:
+				for (int i = 0; i < rowLength; i++)
+				{
+					int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+					
+					int b = prior != null ? prior[i] & 0xFF : 0;
+					
+					int c = i >= bytesPerPixel && prior != null ? prior[i - bytesPerPixel] & 0xFF : 0;
+					
+					filteredRow[i + 1] = (byte)((row[i] & 0xFF) - paeth(a, b, c));
+				}
+				break;
+			
+			default:
+				System.arraycopy(row, 0, filteredRow, 1, rowLength);
+				break;
+		}
+	}
+	
+	public static void unfilter(int type, byte[] row, byte[] prior, int bytesPerPixel) throws IOException
+	{
+		switch (type)
+		{
+			case 0:
+				break;
+			
+			case 1:
+				for (int i = bytesPerPixel; i < row.length; i++)
+				{
+					row[i] = (byte)(row[i] + row[i - bytesPerPixel]);
+				}
+				break;
+			
+			case 2:
+				if (prior != null)
+				{
+					for (int i = 0; i < row.length; i++)
+					{
+						row[i] = (byte)(row[i] + prior[i]);
+					}
+				}
+				break;
+			
+			case 3:
+				for (int i = 0; i < row.length; i++)
+				{
+					int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+					
+					int b = prior != null ? prior[i] & 0xFF : 0;
+					
+					row[i] = (byte)(row[i] + ((a + b) >>> 1));
+				}
+				break;
+			
+			case 4:
+				for (int i = 0; i < row.length; i++)
+				{
+					int a = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+					
+					int b = prior != null ? prior[i] & 0xFF : 0;
+					
+					int c = i >= bytesPerPixel && prior != null ? prior[i - bytesPerPixel] & 0xFF : 0;
+					
+					row[i] = (byte)(row[i] + paeth(a, b, c));
+				}
+				break;
+			
+			default:
+				throw new IOException("The PNG filter type " + type + " is not valid.");
+		}
+	}
+	
+	private static int paeth(int a, int b, int c)
+	{
+		int p = a + b - c;
+		
+		int pa = Math.abs(p - a);
+		
+		int pb = Math.abs(p - b);
+		
+		int pc = Math.abs(p - c);
+		
+		return (pa <= pb && pa <= pc) ? a : (pb <= pc ? b : c);
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class PngWriter
+{
+	private static final byte[] SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	
+	private static final int SEGMENT_SIZE = 256 * 1024;
+	
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private static final int ADLER_BASE = 65521;
+	
+	private int compressionLevel;
+	
+	private PngFilter pngFilter;
+	
+	private ForkJoinPool forkJoinPool;
+	
+	private BufferPool bufferPool;
+	
+	public PngWriter()
+	{
+		this.compressionLevel = Deflater.DEFAULT_COMPRESSION;
+		
+		this.pngFilter = PngFilter.ADAPTIVE;
+		
+		this.forkJoinPool = ForkJoinPool.commonPool();
+		
+		this.bufferPool = BufferPool.getDefault();
+	}
+	
+	public int getCompressionLevel()
+	{
+		return this.compressionLevel;
+	}
+	
+	public void setCompressionLevel(int compressionLevel)
+	{
+		if (compressionLevel != Deflater.DEFAULT_COMPRESSION && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION))
+		{
+			throw new IllegalArgumentException("The compression level has to be between " + Deflater.NO_COMPRESSION + " and " + Deflater.BEST_COMPRESSION + ".");
+		}
+		
+		this.compressionLevel = compressionLevel;
+	}
+	
+	public PngFilter getPngFilter()
+	{
+		return this.pngFilter;
+	}
+	
+	public void setPngFilter(PngFilter pngFilter)
+	{
+		this.pngFilter = pngFilter;
+	}
+	
+	public ForkJoinPool getForkJoinPool()
+	{
+		return this.forkJoinPool;
+	}
+	
+	public void setForkJoinPool(ForkJoinPool forkJoinPool)
+	{
+		this.forkJoinPool = forkJoinPool;
+	}
+	
+	public BufferPool getBufferPool()
+	{
+		return this.bufferPool;
+	}
+	
+	public void setBufferPool(BufferPool bufferPool)
+	{
+		this.bufferPool = bufferPool;
+	}
+	
+	public void write(BufferedImage bufferedImage, OutputStream outputStream) throws IOException
+	{
+		int width = bufferedImage.getWidth();
+		
+		int height = bufferedImage.getHeight();
+		
+		boolean alpha = bufferedImage.getColorModel().hasAlpha();
+		
+		int rowLength = width * (alpha ? 4 : 3);
+		
+		int segmentRows = Math.max(SEGMENT_SIZE / (rowLength + 1), 1);
+		
+		int segmentCount = (height + segmentRows - 1) / segmentRows;
+		
+		int window = this.forkJoinPool != null ? 2 * this.forkJoinPool.getParallelism() : 1;
+		
+		writeHeader(outputStream, width, height, alpha);
+		
+		byte[] zlibHeader = { 0x78, (byte)this.getZlibFlags() };
+		
+		writeChunk(outputStream, "IDAT", zlibHeader, 0, zlibHeader.length);
+		
+		Deque<ForkJoinTask<Segment>> pending = new ArrayDeque<>();
+		
+		long adler = 1;
+		
+		int nextSegment = 0;
+		
+		try
+		{
+			while (nextSegment < segmentCount || !pending.isEmpty())
+			{
+				while (nextSegment < segmentCount && pending.size() < window)
+				{
+					int firstRow = nextSegment * segmentRows;
+					
+					Callable<Segment> segmentTask = new SegmentTask(bufferedImage, alpha, firstRow, Math.min(firstRow + segmentRows, height));
+					
+					if (window > 1)
+					{
+						pending.addLast(this.forkJoinPool.submit(segmentTask));
+					}
+					else
+					{
+						pending.addLast(ForkJoinTask.adapt(segmentTask));
+					}
+					
+					nextSegment++;
+				}
+				
+				ForkJoinTask<Segment> task = pending.removeFirst();
+				
+				Segment segment = window > 1 ? task.join() : task.invoke();
+				
+				writeChunk(outputStream, "IDAT", segment.data, 0, segment.size);
+				
+				this.bufferPool.release(segment.data);
+				
+				adler = combineAdler32(adler, segment.adler, segment.length);
+			}
+		}
+		catch (RuntimeException exception)
+		{
+			for (ForkJoinTask<Segment> task : pending)
+			{
+				task.cancel(true);
+			}
+			
+			if (exception.getCause() instanceof IOException)
+			{
+				throw (IOException)exception.getCause();
+			}
+			
+			throw exception;
+		}
+		
+		byte[] trailer = new byte[4];
+		
+		writeInt(trailer, 0, (int)adler);
+		
+		writeChunk(outputStream, "IDAT", trailer, 0, trailer.length);
+		
+		writeChunk(outputStream, "IEND", new byte[0], 0, 0);
+		
+		outputStream.flush();
+	}
+	
+	private int getZlibFlags()
+	{
+		int level;
+		
+		if (this.compressionLevel == Deflater.DEFAULT_COMPRESSION || this.compressionLevel == 6)
+		{
+			level = 2;
+		}
+		else if (this.compressionLevel < 2)
+		{
+			level = 0;
+		}
+		else if (this.compressionLevel < 6)
+		{
+			level = 1;
+		}
+		else
+		{
+			level = 3;
+		}
+		
+		int flags = level << 6;
+		
+		return flags + 31 - (0x78 * 256 + flags) % 31;
+	}
+	
+	public static void writeHeader(OutputStream outputStream, int width, int height, boolean alpha) throws IOException
+	{
+		byte[] header = new byte[13];
+		
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		
+		header[8] = 8;
+		header[9] = (byte)(alpha ? 6 : 2);
+		header[10] = 0;
+		header[11] = 0;
+		header[12] = 0;
+		
+		outputStream.write(SIGNATURE);
+		
+		writeChunk(outputStream, "IHDR", header, 0, header.length);
+	}
+	
+	public static void writeChunk(OutputStream outputStream, String type, byte[] data, int offset, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		
+		byte[] integer = new byte[4];
+		
+		CRC32 crc = new CRC32();
+		
+		crc.update(typeBytes);
+		
+		crc.update(data, offset, length);
+		
+		writeInt(integer, 0, length);
+		
+		outputStream.write(integer);
+		
+		outputStream.write(typeBytes);
+		
+		outputStream.write(data, offset, length);
+		
+		writeInt(integer, 0, (int)crc.getValue());
+		
+		outputStream.write(integer);
+	}
+	
+	public static void readRow(BufferedImage bufferedImage, int y, int[] pixels, byte[] row, boolean alpha)
+	{
+		int width = bufferedImage.getWidth();
+		
+		if (!LsbRaster.isSupported(bufferedImage))
+		{
+			bufferedImage.getRGB(0, y, width, 1, pixels, 0, width);
+		}
+		else if (bufferedImage.getRaster().getTransferType() == DataBuffer.TYPE_BYTE)
+		{
+			bufferedImage.getRaster().getDataElements(0, y, width, 1, row);
+			
+			return;
+		}
+		else
+		{
+			bufferedImage.getRaster().getDataElements(0, y, width, 1, pixels);
+		}
+		
+		int index = 0;
+		
+		for (int x = 0; x < width; x++)
+		{
+			int argb = pixels[x];
+			
+			row[index++] = (byte)(argb >> 16);
+			row[index++] = (byte)(argb >> 8);
+			row[index++] = (byte)(argb >> 0);
+			
+			if (alpha)
+			{
+				row[index++] = (byte)(argb >> 24);
+			}
+		}
+	}
+	
+	private static void writeInt(byte[] bytes, int offset, int value)
+	{
+		bytes[offset + 0] = (byte)(value >> 24);
+		bytes[offset + 1] = (byte)(value >> 16);
+		bytes[offset + 2] = (byte)(value >> 8);
+		bytes[offset + 3] = (byte)(value >> 0);
+	}
+	
+	private static long combineAdler32(long adler1, long adler2, long length2)
+	{
+		long remainder = length2 % ADLER_BASE;
+		
+		long sum1 = adler1 & 0xFFFF;
+		
+		long sum2 = (remainder * sum1) % ADLER_BASE;
+		
+		sum1 = sum1 + (adler2 & 0xFFFF) + ADLER_BASE - 1;
+		
+		sum2 = sum2 + ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+		
+		sum1 = sum1 % ADLER_BASE;
+		
+		sum2 = sum2 % ADLER_BASE;
+		
+		return (sum2 << 16) | sum1;
+	}
+	
+	private static class Segment
+	{
+		private byte[] data;
+		
+		private int size;
+		
+		private long adler;
+		
+		private long length;
+		
+		private void write(byte[] bytes, int length, BufferPool bufferPool)
+		{
+			if (this.size + length > this.data.length)
+			{
+				byte[] data = bufferPool.acquire(Math.max(this.size + length, 2 * this.data.length));
+				
+				System.arraycopy(this.data, 0, data, 0, this.size);
+				
+				bufferPool.release(this.data);
+				
+				this.data = data;
+			}
+			
+			System.arraycopy(bytes, 0, this.data, this.size, length);
+			
+			this.size = this.size + length;
+		}
+	}
+	
+	private class SegmentTask implements Callable<Segment>
+	{
+		private BufferedImage bufferedImage;
+		
+		private boolean alpha;
+		
+		private int firstRow;
+		
+		private int lastRow;
+		
+		public SegmentTask(BufferedImage bufferedImage, boolean alpha, int firstRow, int lastRow)
+		{
+			this.bufferedImage = bufferedImage;
+			
+			this.alpha = alpha;
+			
+			this.firstRow = firstRow;
+			
+			this.lastRow = lastRow;
+		}
+		
+		@Override
+		public Segment call() throws IOException
+		{
+			BufferPool bufferPool = PngWriter.this.bufferPool;
+			
+			int bytesPerPixel = this.alpha ? 4 : 3;
+			
+			int rowLength = this.bufferedImage.getWidth() * bytesPerPixel;
+			
+			boolean byteRaster = LsbRaster.isSupported(this.bufferedImage) && this.bufferedImage.getRaster().getTransferType() == DataBuffer.TYPE_BYTE;
+			
+			int[] pixels = byteRaster ? null : new int[this.bufferedImage.getWidth()];
+			
+			byte[] currentRow = bufferPool.acquire(rowLength);
+			
+			byte[] previousRow = bufferPool.acquire(rowLength);
+			
+			byte[][] filteredRows = PngFilter.createFilteredRows(rowLength, bufferPool);
+			
+			byte[] buffer = bufferPool.acquire(BUFFER_SIZE);
+			
+			PngFilter pngFilter = PngWriter.this.pngFilter;
+			
+			int dictionaryRows = Math.min((DICTIONARY_SIZE + rowLength) / (rowLength + 1), this.firstRow);
+			
+			int y = this.firstRow - dictionaryRows;
+			
+			if (y > 0)
+			{
+				readRow(this.bufferedImage, y - 1, pixels, previousRow, this.alpha);
+			}
+			
+			Deflater deflater = new Deflater(PngWriter.this.compressionLevel, true);
+			
+			Segment segment = new Segment();
+			
+			try
+			{
+				if (dictionaryRows > 0)
+				{
+					int dictionaryLength = dictionaryRows * (rowLength + 1);
+					
+					byte[] dictionary = bufferPool.acquire(dictionaryLength);
+					
+					for (int offset = 0; y < this.firstRow; y++, offset = offset + rowLength + 1)
+					{
+						readRow(this.bufferedImage, y, pixels, currentRow, this.alpha);
+						
+						byte[] filteredRow = pngFilter.filter(currentRow, rowLength, y > 0 ? previousRow : null, bytesPerPixel, filteredRows);
+						
+						System.arraycopy(filteredRow, 0, dictionary, offset, rowLength + 1);
+						
+						byte[] row = previousRow;
+						
+						previousRow = currentRow;
+						
+						currentRow = row;
+					}
+					
+					int length = Math.min(dictionaryLength, DICTIONARY_SIZE);
+					
+					deflater.setDictionary(dictionary, dictionaryLength - length, length);
+					
+					bufferPool.release(dictionary);
+				}
+				
+				segment.data = bufferPool.acquire(SEGMENT_SIZE / 2);
+				
+				Adler32 adler = new Adler32();
+				
+				for (; y < this.lastRow; y++)
+				{
+					readRow(this.bufferedImage, y, pixels, currentRow, this.alpha);
+					
+					byte[] filteredRow = pngFilter.filter(currentRow, rowLength, y > 0 ? previousRow : null, bytesPerPixel, filteredRows);
+					
+					adler.update(filteredRow, 0, rowLength + 1);
+					
+					deflater.setInput(filteredRow, 0, rowLength + 1);
+					
+					while (!deflater.needsInput())
+					{
+						segment.write(buffer, deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH), bufferPool);
+					}
+					
+					byte[] row = previousRow;
+					
+					previousRow = currentRow;
+					
+					currentRow = row;
+				}
+				
+				if (this.lastRow == this.bufferedImage.getHeight())
+				{
+					deflater.finish();
+					
+					while (!deflater.finished())
+					{
+						segment.write(buffer, deflater.deflate(buffer), bufferPool);
+					}
+				}
+				else
+				{
+					int count;
+					
+					do
+					{
+						count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+						
+						segment.write(buffer, count, bufferPool);
+					}
+					while (count == buffer.length);
+				}
+				
+				segment.adler = adler.getValue();
+				
+				segment.length = (long)(this.lastRow - this.firstRow) * (rowLength + 1);
+				
+				return segment;
+			}
+			finally
+			{
+				deflater.end();
+				
+				bufferPool.release(currentRow);
+				
+				bufferPool.release(previousRow);
+				
+				for (byte[] filteredRow : filteredRows)
+				{
+					bufferPool.release(filteredRow);
+				}
+				
+				bufferPool.release(buffer);
+			}
+		}
+	}
+}
@@ -22,158 +22,795 @@
  * SOFTWARE.
  */
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.BitSet;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import javax.imageio.ImageIO;
 
 public class RawByteEncoder
 {
+	private static final byte[] PROFILE_MAGIC = { 'L', 'S', 'B', (byte)0x80 };
+	
+	private static final int PROFILE_HEADER_SIZE = 6;
+	
+	private static final int PROFILE_HEADER_PIXELS = 16;
+	
+	private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+	
+	private static final int SCATTER_BLOCK_PIXELS = 2048;
+	
+	private static final int SCATTER_TASK_SIZE = 512 * 1024;
+	
 	private BufferedImage bufferedImage;
 	
-	private BufferedImage cloneBufferedImage(BufferedImage bufferedImageSource)
+	private MappedBitmap mappedBitmap;
+	
+	private EmbeddingProfile embeddingProfile;
+	
+	private PayloadCodec payloadCodec;
+	
+	private LsbRaster profileRaster;
+	
+	private LsbRaster lsbRaster;
+	
+	private boolean shared;
+	
+	private String key;
+	
+	private BlockPermutation blockPermutation;
+	
+	private ForkJoinPool forkJoinPool;
+	
+	private PngWriter pngWriter;
+	
+	private int dirtyFirstRow;
+	
+	private int dirtyLastRow;
+	
+	private Checkpoint checkpoint;
+	
+	static BufferedImage cloneBufferedImage(BufferedImage bufferedImageSource)
 	{
-	    return this.cloneBufferedImage(bufferedImageSource, false);
+		if (LsbRaster.isSupported(bufferedImageSource))
+		{
+			return new BufferedImage(bufferedImageSource.getColorModel(), bufferedImageSource.copyData(null), bufferedImageSource.isAlphaPremultiplied(), null);
+		}
+		
+		return convertBufferedImage(bufferedImageSource, bufferedImageSource.getColorModel().hasAlpha(), false, 0);
 	}
 	
-	private BufferedImage cloneBufferedImage(BufferedImage bufferedImageSource, boolean removeAlpha)
+	static BufferedImage cloneBufferedImage(BufferedImage bufferedImageSource, boolean removeAlpha, int preservedBits)
 	{
+		return convertBufferedImage(bufferedImageSource, !removeAlpha, removeAlpha, preservedBits);
+	}
+	
+	static BufferedImage toSupportedBufferedImage(BufferedImage bufferedImageSource, boolean alpha)
+	{
+		boolean hasAlpha = bufferedImageSource.getColorModel().hasAlpha();
+		
+		if (LsbRaster.isSupported(bufferedImageSource) && (hasAlpha || !alpha))
+		{
+			return bufferedImageSource;
+		}
+		
+		return convertBufferedImage(bufferedImageSource, hasAlpha || alpha, false, 0);
+	}
+	
+	private static BufferedImage convertBufferedImage(BufferedImage bufferedImageSource, boolean alpha, boolean premultiply, int preservedBits)
+	{
+		int preservedMask = (1 << preservedBits) - 1;
+		
 		int width = bufferedImageSource.getWidth();
 		
 		int height = bufferedImageSource.getHeight();
 		
-	    BufferedImage bufferedImage = new BufferedImage(width, height, removeAlpha ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
-	    
-	    for (int x = 0; x < width; x++)
-	    {
-	    	for (int y = 0; y < height; y++)
-	    	{
-	    		int argb = bufferedImageSource.getRGB(x, y);
-	    		
-	    		int b = (argb >> 0) & 0x000000FF;
-	    		int g = (argb >> 8) & 0x000000FF;
-	    		int r = (argb >> 16) & 0x000000FF;
-	    		int a = (argb >> 24) & 0x000000FF;
-	    		
-	    		if (removeAlpha)
-	    		{
-	    			r = (0b11111110 & (r * a / 0xFF) & 0x000000FF) | (0b00000001 & r);
-	    			g = (0b11111110 & (g * a / 0xFF) & 0x000000FF) | (0b00000001 & g);
-	    			b = (0b11111110 & (b * a / 0xFF) & 0x000000FF) | (0b00000001 & b);
-	    			a = 0xFF;
-	    		}
-	    		
-	    		argb = (b << 0) | (g << 8) | (r << 16) | (a << 24);
-	    		
-	    		bufferedImage.setRGB(x, y, argb);
-	    	}
-	    }
-	    
-	    return bufferedImage;
+		BufferedImage bufferedImage = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
+		
+		int[] row = new int[width];
+		
+		for (int y = 0; y < height; y++)
+		{
+			bufferedImageSource.getRGB(0, y, width, 1, row, 0, width);
+			
+			if (premultiply)
+			{
+				for (int x = 0; x < width; x++)
+				{
+					int argb = row[x];
+					
+					int b = (argb >> 0) & 0x000000FF;
+					int g = (argb >> 8) & 0x000000FF;
+					int r = (argb >> 16) & 0x000000FF;
+					int a = (argb >> 24) & 0x000000FF;
+					
+					r = (~preservedMask & (r * a / 0xFF) & 0x000000FF) | (preservedMask & r);
+					g = (~preservedMask & (g * a / 0xFF) & 0x000000FF) | (preservedMask & g);
+					b = (~preservedMask & (b * a / 0xFF) & 0x000000FF) | (preservedMask & b);
+					a = 0xFF;
+					
+					row[x] = (b << 0) | (g << 8) | (r << 16) | (a << 24);
+				}
+			}
+			
+			bufferedImage.setRGB(0, y, width, 1, row, 0, width);
+		}
+		
+		return bufferedImage;
 	}
 	
 	public RawByteEncoder(File file) throws IOException
 	{
-		BufferedImage bufferedImage = ImageIO.read(file);
+		this(readImage(file, null), false);
+	}
+	
+	public RawByteEncoder(InputStream inputStream) throws IOException
+	{
+		this(readImage(null, inputStream), false);
+	}
+	
+	public RawByteEncoder(BufferedImage bufferedImage) throws IOException
+	{
+		this(bufferedImage, true);
+	}
+	
+	private RawByteEncoder(BufferedImage bufferedImage, boolean copy) throws IOException
+	{
+		if (bufferedImage == null)
+		{
+			throw new IOException("The format of the image is not supported.");
+		}
+		
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.CONVERT);
+		
+		if (copy)
+		{
+			this.bufferedImage = cloneBufferedImage(bufferedImage);
+		}
+		else
+		{
+			this.bufferedImage = toSupportedBufferedImage(bufferedImage, false);
+		}
+		
+		stageTimer.stop(0, (long)bufferedImage.getWidth() * bufferedImage.getHeight());
+		
+		this.initialize(new LsbRaster(this.bufferedImage));
+	}
+	
+	RawByteEncoder(File file, CarrierCache carrierCache) throws IOException
+	{
+		this.bufferedImage = carrierCache.getBufferedImage(file);
 		
-		this.bufferedImage = this.cloneBufferedImage(bufferedImage);
+		this.shared = true;
+		
+		this.initialize(new LsbRaster(this.bufferedImage));
 	}
 	
-	public BufferedImage getBufferedImage()
+	protected RawByteEncoder(RawByteEncoder rawByteEncoder)
 	{
-		return this.cloneBufferedImage(this.bufferedImage);
+		if (rawByteEncoder.mappedBitmap != null)
+		{
+			throw new IllegalStateException("An encoder of a mapped bitmap cannot be copied.");
+		}
+		
+		rawByteEncoder.shared = true;
+		
+		this.bufferedImage = rawByteEncoder.bufferedImage;
+		
+		this.shared = true;
+		
+		this.embeddingProfile = rawByteEncoder.embeddingProfile;
+		
+		this.payloadCodec = rawByteEncoder.payloadCodec;
+		
+		this.profileRaster = rawByteEncoder.profileRaster;
+		
+		this.lsbRaster = rawByteEncoder.lsbRaster;
+		
+		this.key = rawByteEncoder.key;
+		
+		this.blockPermutation = rawByteEncoder.blockPermutation;
+		
+		this.forkJoinPool = rawByteEncoder.forkJoinPool;
+		
+		this.pngWriter = new PngWriter();
+		
+		this.pngWriter.setCompressionLevel(rawByteEncoder.getCompressionLevel());
+		
+		this.pngWriter.setPngFilter(rawByteEncoder.getPngFilter());
+		
+		this.pngWriter.setForkJoinPool(rawByteEncoder.forkJoinPool);
+		
+		this.dirtyFirstRow = rawByteEncoder.dirtyFirstRow;
+		
+		this.dirtyLastRow = rawByteEncoder.dirtyLastRow;
 	}
 	
-	private int getRawCapacity()
+	static BufferedImage readSupportedImage(File file) throws IOException
 	{
-		int width = this.bufferedImage.getWidth();
+		BufferedImage bufferedImage = readImage(file, null);
 		
-		int height = this.bufferedImage.getHeight();
+		if (bufferedImage == null)
+		{
+			throw new IOException("The format of the image is not supported.");
+		}
 		
-		int size = width * height * 3;
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.CONVERT);
 		
-		int maxBytes = size / 8;
+		bufferedImage = toSupportedBufferedImage(bufferedImage, false);
 		
-		return maxBytes;
+		stageTimer.stop(0, (long)bufferedImage.getWidth() * bufferedImage.getHeight());
+		
+		return bufferedImage;
 	}
 	
-	public int getCapacity()
+	private static BufferedImage readImage(File file, InputStream inputStream) throws IOException
 	{
-		return this.getRawCapacity();
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.READ);
+		
+		BufferedImage bufferedImage = file != null ? ImageIO.read(file) : ImageIO.read(inputStream);
+		
+		stageTimer.stop(file != null ? file.length() : 0, bufferedImage != null ? (long)bufferedImage.getWidth() * bufferedImage.getHeight() : 0);
+		
+		return bufferedImage;
 	}
 	
-	public boolean encode(byte[] bytes)
+	public RawByteEncoder(MappedBitmap mappedBitmap)
 	{
-		if (bytes != null)
+		this.mappedBitmap = mappedBitmap;
+		
+		this.initialize(new LsbRaster(mappedBitmap, EmbeddingProfile.DEFAULT, 0));
+	}
+	
+	private void initialize(LsbRaster profileRaster)
+	{
+		this.profileRaster = profileRaster;
+		
+		this.embeddingProfile = EmbeddingProfile.DEFAULT;
+		
+		this.payloadCodec = PayloadCodec.NONE;
+		
+		this.lsbRaster = this.profileRaster;
+		
+		this.forkJoinPool = ForkJoinPool.commonPool();
+		
+		this.pngWriter = new PngWriter();
+		
+		this.markDirty(0, this.getHeight());
+		
+		if (this.profileRaster.getBitCapacity() >= PROFILE_HEADER_SIZE * 8)
 		{
-			BitSet bits = BitSet.valueOf(bytes);
+			byte[] profileHeader = new byte[PROFILE_HEADER_SIZE];
+			
+			this.profileRaster.read(0, profileHeader, 0, profileHeader.length);
+			
+			EmbeddingProfile embeddingProfile = decodeProfileHeader(profileHeader);
 			
-			if (bits.size() > this.getRawCapacity() * 8)
+			if (embeddingProfile != null)
 			{
-				return false;
+				this.setProfileHeader(embeddingProfile, decodePayloadCodec(profileHeader));
 			}
+		}
+	}
+	
+	private void detach()
+	{
+		if (this.shared)
+		{
+			Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.CONVERT);
+			
+			this.bufferedImage = cloneBufferedImage(this.bufferedImage);
+			
+			stageTimer.stop(0, (long)this.getWidth() * this.getHeight());
+			
+			boolean profileHeader = this.lsbRaster != this.profileRaster;
+			
+			this.profileRaster = new LsbRaster(this.bufferedImage);
+			
+			this.lsbRaster = profileHeader ? new LsbRaster(this.bufferedImage, this.embeddingProfile, PROFILE_HEADER_PIXELS) : this.profileRaster;
 			
-			int width = this.bufferedImage.getWidth();
+			this.shared = false;
+		}
+	}
+	
+	static byte[] encodeProfileHeader(EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec)
+	{
+		byte[] profileHeader = new byte[PROFILE_HEADER_SIZE];
+		
+		System.arraycopy(PROFILE_MAGIC, 0, profileHeader, 0, PROFILE_MAGIC.length);
+		
+		profileHeader[PROFILE_MAGIC.length] = embeddingProfile.toByte();
+		
+		profileHeader[PROFILE_MAGIC.length + 1] = (byte)payloadCodec.getId();
+		
+		return profileHeader;
+	}
+	
+	static EmbeddingProfile decodeProfileHeader(byte[] profileHeader)
+	{
+		for (int i = 0; i < PROFILE_MAGIC.length; i++)
+		{
+			if (profileHeader[i] != PROFILE_MAGIC[i])
+			{
+				return null;
+			}
+		}
+		
+		if (decodePayloadCodec(profileHeader) == null)
+		{
+			return null;
+		}
+		
+		return EmbeddingProfile.fromByte(profileHeader[PROFILE_MAGIC.length]);
+	}
+	
+	static PayloadCodec decodePayloadCodec(byte[] profileHeader)
+	{
+		return PayloadCodec.fromId(((int)(profileHeader[PROFILE_MAGIC.length + 1]) + 256) % 256);
+	}
+	
+	static boolean isProfileHeaderRequired(EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec)
+	{
+		return !embeddingProfile.isDefault() || payloadCodec != PayloadCodec.NONE;
+	}
+	
+	static int getProfileHeaderSize()
+	{
+		return PROFILE_HEADER_SIZE;
+	}
+	
+	static int getFirstPixel(EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec)
+	{
+		return isProfileHeaderRequired(embeddingProfile, payloadCodec) ? PROFILE_HEADER_PIXELS : 0;
+	}
+	
+	public BufferedImage getBufferedImage()
+	{
+		if (this.mappedBitmap != null)
+		{
+			return this.mappedBitmap.toBufferedImage();
+		}
+		
+		return cloneBufferedImage(this.bufferedImage);
+	}
+	
+	public int getWidth()
+	{
+		return this.mappedBitmap != null ? this.mappedBitmap.getWidth() : this.bufferedImage.getWidth();
+	}
+	
+	public int getHeight()
+	{
+		return this.mappedBitmap != null ? this.mappedBitmap.getHeight() : this.bufferedImage.getHeight();
+	}
+	
+	public void getRGB(Rectangle region, int[] argb, int offset, int scanlineStride)
+	{
+		if (this.mappedBitmap != null)
+		{
+			this.mappedBitmap.getRGB(region, argb, offset, scanlineStride);
+		}
+		else
+		{
+			this.bufferedImage.getRGB(region.x, region.y, region.width, region.height, argb, offset, scanlineStride);
+		}
+	}
+	
+	public Rectangle getDirtyRegion()
+	{
+		if (this.dirtyFirstRow >= this.dirtyLastRow)
+		{
+			return null;
+		}
+		
+		return new Rectangle(0, this.dirtyFirstRow, this.getWidth(), this.dirtyLastRow - this.dirtyFirstRow);
+	}
+	
+	public void clearDirtyRegion()
+	{
+		this.dirtyFirstRow = this.getHeight();
+		
+		this.dirtyLastRow = 0;
+	}
+	
+	public void beginChanges()
+	{
+		if (this.mappedBitmap == null)
+		{
+			this.checkpoint = new Checkpoint(this);
 			
-			for (int i = 0; i < bits.size(); i++)
+			this.shared = true;
+		}
+	}
+	
+	public void endChanges(boolean keep)
+	{
+		Checkpoint checkpoint = this.checkpoint;
+		
+		if (checkpoint == null)
+		{
+			return;
+		}
+		
+		this.checkpoint = checkpoint.previous;
+		
+		if (keep)
+		{
+			if (this.bufferedImage == checkpoint.bufferedImage)
 			{
-				int x = i / 3 % width;
-				
-				int y = i / 3 / width;
-				
-				int c = i % 3;
-				
-				int color = this.bufferedImage.getRGB(x, y);
+				this.shared = checkpoint.shared;
+			}
+			
+			return;
+		}
+		
+		this.bufferedImage = checkpoint.bufferedImage;
+		
+		this.shared = checkpoint.shared;
+		
+		this.embeddingProfile = checkpoint.embeddingProfile;
+		
+		this.payloadCodec = checkpoint.payloadCodec;
+		
+		this.profileRaster = new LsbRaster(this.bufferedImage);
+		
+		this.lsbRaster = checkpoint.profileHeader ? new LsbRaster(this.bufferedImage, this.embeddingProfile, PROFILE_HEADER_PIXELS) : this.profileRaster;
+		
+		this.dirtyFirstRow = checkpoint.dirtyFirstRow;
+		
+		this.dirtyLastRow = checkpoint.dirtyLastRow;
+	}
+	
+	private void markDirty(int firstRow, int lastRow)
+	{
+		this.dirtyFirstRow = Math.min(this.dirtyFirstRow, firstRow);
+		
+		this.dirtyLastRow = Math.max(this.dirtyLastRow, lastRow);
+	}
+	
+	public EmbeddingProfile getEmbeddingProfile()
+	{
+		return this.embeddingProfile;
+	}
+	
+	public void setEmbeddingProfile(EmbeddingProfile embeddingProfile)
+	{
+		this.setProfileHeader(embeddingProfile, this.payloadCodec);
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public void setPayloadCodec(PayloadCodec payloadCodec)
+	{
+		this.setProfileHeader(this.embeddingProfile, payloadCodec);
+	}
+	
+	private void setProfileHeader(EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec)
+	{
+		if (embeddingProfile.isAlpha() && this.bufferedImage != null && !this.bufferedImage.getColorModel().hasAlpha())
+		{
+			boolean profileHeader = this.lsbRaster != this.profileRaster;
+			
+			Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.CONVERT);
+			
+			this.bufferedImage = toSupportedBufferedImage(this.bufferedImage, true);
+			
+			this.shared = false;
+			
+			stageTimer.stop(0, (long)this.getWidth() * this.getHeight());
+			
+			this.profileRaster = new LsbRaster(this.bufferedImage);
+			
+			this.lsbRaster = profileHeader ? new LsbRaster(this.bufferedImage, this.embeddingProfile, PROFILE_HEADER_PIXELS) : this.profileRaster;
+			
+			this.markDirty(0, this.bufferedImage.getHeight());
+		}
+		
+		if (!isProfileHeaderRequired(embeddingProfile, payloadCodec))
+		{
+			if (this.lsbRaster != this.profileRaster)
+			{
+				this.detach();
 				
-				int value = (color >> (8 * c)) & 0x000000FF;
+				this.profileRaster.write(0, new byte[PROFILE_HEADER_SIZE], 0, PROFILE_HEADER_SIZE);
 				
-				color = color & ~(0x000000FF << (8 * c));
+				this.markDirty(0, this.profileRaster.getRow(PROFILE_HEADER_SIZE * 8 - 1) + 1);
+			}
+			
+			this.lsbRaster = this.profileRaster;
+		}
+		else
+		{
+			if (this.profileRaster.getBitCapacity() < PROFILE_HEADER_PIXELS * 3)
+			{
+				throw new IllegalArgumentException("The image is too small for the embedding profile.");
+			}
+			
+			byte[] profileHeader = encodeProfileHeader(embeddingProfile, payloadCodec);
+			
+			byte[] currentProfileHeader = new byte[PROFILE_HEADER_SIZE];
+			
+			this.profileRaster.read(0, currentProfileHeader, 0, currentProfileHeader.length);
+			
+			if (!Arrays.equals(profileHeader, currentProfileHeader))
+			{
+				this.detach();
 				
-				value = (value & 0b11111110) | (bits.get(i) ? 0b00000001 : 0b00000000);
+				this.profileRaster.write(0, profileHeader, 0, profileHeader.length);
 				
-				value = ((value & 0x000000FF) << (8 * c));
+				this.markDirty(0, this.profileRaster.getRow(PROFILE_HEADER_SIZE * 8 - 1) + 1);
+			}
+			
+			if (this.lsbRaster == this.profileRaster || !embeddingProfile.equals(this.embeddingProfile))
+			{
+				this.lsbRaster = this.mappedBitmap != null ? new LsbRaster(this.mappedBitmap, embeddingProfile, PROFILE_HEADER_PIXELS) : new LsbRaster(this.bufferedImage, embeddingProfile, PROFILE_HEADER_PIXELS);
+			}
+		}
+		
+		this.embeddingProfile = embeddingProfile;
+		
+		this.payloadCodec = payloadCodec;
+	}
+	
+	public String getKey()
+	{
+		return this.key;
+	}
+	
+	public void setKey(String key)
+	{
+		this.key = key;
+		
+		this.blockPermutation = null;
+	}
+	
+	public ForkJoinPool getForkJoinPool()
+	{
+		return this.forkJoinPool;
+	}
+	
+	public void setForkJoinPool(ForkJoinPool forkJoinPool)
+	{
+		this.forkJoinPool = forkJoinPool;
+		
+		this.pngWriter.setForkJoinPool(forkJoinPool);
+	}
+	
+	public int getCompressionLevel()
+	{
+		return this.pngWriter.getCompressionLevel();
+	}
+	
+	public void setCompressionLevel(int compressionLevel)
+	{
+		this.pngWriter.setCompressionLevel(compressionLevel);
+	}
+	
+	public PngFilter getPngFilter()
+	{
+		return this.pngWriter.getPngFilter();
+	}
+	
+	public void setPngFilter(PngFilter pngFilter)
+	{
+		this.pngWriter.setPngFilter(pngFilter);
+	}
+	
+	private long getRawCapacity()
+	{
+		long size = this.lsbRaster.getBitCapacity();
+		
+		long maxBytes = size / 8;
+		
+		return maxBytes;
+	}
+	
+	public long getCapacity()
+	{
+		return this.getRawCapacity();
+	}
+	
+	public boolean encode(byte[] bytes)
+	{
+		if (bytes != null)
+		{
+			return this.encode(0, bytes, 0, bytes.length);
+		}
+		
+		return true;
+	}
+	
+	public boolean encode(long position, byte[] bytes, int offset, int length)
+	{
+		if (position < 0 || length < 0 || length > this.getRawCapacity() - position)
+		{
+			return false;
+		}
+		
+		this.detach();
+		
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.ENCODE);
+		
+		this.transfer(true, position, bytes, offset, length);
+		
+		stageTimer.stop(length, this.getPixels(length));
+		
+		if (length > 0)
+		{
+			if (this.embeddingProfile.isScattered())
+			{
+				BlockPermutation blockPermutation = this.getBlockPermutation();
 				
-				color = color | value;
+				int blockSize = this.getBlockSize();
 				
-				this.bufferedImage.setRGB(x, y, color);
+				for (long block = position / blockSize; block * blockSize < position + length; block++)
+				{
+					long start = Math.max(position, block * blockSize);
+					
+					long end = Math.min(position + length, (block + 1) * blockSize);
+					
+					long target = getScatteredPosition(blockPermutation, block, blockSize) + start - block * blockSize;
+					
+					this.markDirty(this.lsbRaster.getRow(target * 8), this.lsbRaster.getRow((target + end - start) * 8 - 1) + 1);
+				}
+			}
+			else
+			{
+				this.markDirty(this.lsbRaster.getRow(position * 8), this.lsbRaster.getRow((position + length) * 8 - 1) + 1);
 			}
 		}
 		
 		return true;
 	}
 	
-	public byte[] decode()
+	private void transfer(boolean write, long position, byte[] bytes, int offset, int length)
 	{
-		BitSet bits = new BitSet(this.getRawCapacity() * 8);
+		if (!this.embeddingProfile.isScattered())
+		{
+			if (write)
+			{
+				this.lsbRaster.write(position * 8, bytes, offset, length, this.forkJoinPool);
+			}
+			else
+			{
+				this.lsbRaster.read(position * 8, bytes, offset, length, this.forkJoinPool);
+			}
+			
+			return;
+		}
 		
-		int size = bits.size();
+		BlockPermutation blockPermutation = this.getBlockPermutation();
 		
-		int width = this.bufferedImage.getWidth();
+		int blockSize = this.getBlockSize();
 		
-		for (int i = 0; i < size; i++)
+		long fromBlock = position / blockSize;
+		
+		long toBlock = (position + length + blockSize - 1) / blockSize;
+		
+		if (this.forkJoinPool != null && this.forkJoinPool.getParallelism() > 1 && length >= 2 * SCATTER_TASK_SIZE)
 		{
-			int x = i / 3 % width;
-			
-			int y = i / 3 / width;
-			
-			int c = i % 3;
+			this.forkJoinPool.invoke(new ScatterTask(write, blockPermutation, position, bytes, offset, length, fromBlock, toBlock));
+		}
+		else
+		{
+			this.scatter(write, blockPermutation, position, bytes, offset, length, fromBlock, toBlock);
+		}
+	}
+	
+	private void scatter(boolean write, BlockPermutation blockPermutation, long position, byte[] bytes, int offset, int length, long fromBlock, long toBlock)
+	{
+		int blockSize = this.getBlockSize();
+		
+		for (long block = fromBlock; block < toBlock; block++)
+		{
+			long start = Math.max(position, block * blockSize);
 			
-			int color = this.bufferedImage.getRGB(x, y);
+			long end = Math.min(position + length, (block + 1) * blockSize);
 			
-			int value = (color >> (8 * c)) & 0x000000FF;
+			long target = getScatteredPosition(blockPermutation, block, blockSize) + start - block * blockSize;
 			
-			if ((value & 0b00000001) != 0)
+			if (write)
+			{
+				this.lsbRaster.write(target * 8, bytes, offset + (int)(start - position), (int)(end - start));
+			}
+			else
 			{
-				bits.set(i);
+				this.lsbRaster.read(target * 8, bytes, offset + (int)(start - position), (int)(end - start));
 			}
 		}
+	}
+	
+	private static long getScatteredPosition(BlockPermutation blockPermutation, long block, int blockSize)
+	{
+		return (block < blockPermutation.getBlocks() ? blockPermutation.permute(block) : block) * blockSize;
+	}
+	
+	private int getBlockSize()
+	{
+		return this.embeddingProfile.getBitsPerPixel() * SCATTER_BLOCK_PIXELS / 8;
+	}
+	
+	private BlockPermutation getBlockPermutation()
+	{
+		if (this.key == null)
+		{
+			throw new IllegalStateException("The hidden data is scattered with a key, which has to be given to read or write it.");
+		}
 		
-		byte[] bytes = bits.toByteArray();
+		long blocks = this.getRawCapacity() / this.getBlockSize();
+		
+		if (this.blockPermutation == null || this.blockPermutation.getBlocks() != blocks)
+		{
+			this.blockPermutation = new BlockPermutation(this.key, blocks);
+		}
+		
+		return this.blockPermutation;
+	}
+	
+	private long getPixels(long length)
+	{
+		int bitsPerPixel = this.embeddingProfile.getBitsPerPixel();
+		
+		return (length * 8 + bitsPerPixel - 1) / bitsPerPixel;
+	}
+	
+	public byte[] decode()
+	{
+		long capacity = this.getRawCapacity();
+		
+		if (capacity > Integer.MAX_VALUE)
+		{
+			throw new IllegalStateException("The " + capacity + " bytes of the image do not fit into an array and have to be read in parts with decode(position, length).");
+		}
+		
+		return this.decode(0, (int)capacity);
+	}
+	
+	public byte[] decode(long position, int length)
+	{
+		if (length < 0)
+		{
+			return null;
+		}
+		
+		byte[] bytes = new byte[length];
+		
+		if (!this.decode(position, bytes, 0, length))
+		{
+			return null;
+		}
 		
 		return bytes;
 	}
 	
+	public boolean decode(long position, byte[] bytes, int offset, int length)
+	{
+		if (position < 0 || length < 0 || length > this.getRawCapacity() - position)
+		{
+			return false;
+		}
+		
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.DECODE);
+		
+		this.transfer(false, position, bytes, offset, length);
+		
+		stageTimer.stop(length, this.getPixels(length));
+		
+		return true;
+	}
+	
 	public void save(File file) throws IOException
 	{
 		String fileExtension = "";
@@ -191,17 +828,171 @@ public class RawByteEncoder
 			file = new File(file.getPath() + ".png");
 		}
 		
-		BufferedImage bufferedImage;
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.SAVE);
+		
+		if (this.mappedBitmap != null && fileExtension.equals("bmp"))
+		{
+			this.mappedBitmap.force();
+			
+			if (!file.getCanonicalFile().equals(this.mappedBitmap.getFile().getCanonicalFile()))
+			{
+				Files.copy(this.mappedBitmap.getFile().toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		else if (fileExtension.equals("png"))
+		{
+			try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), OUTPUT_BUFFER_SIZE))
+			{
+				this.pngWriter.write(this.getImage(), outputStream);
+			}
+		}
+		else if (!ImageIO.write(this.getBufferedImageToSave(fileExtension), fileExtension, file))
+		{
+			throw new IOException("The image format \"" + fileExtension + "\" is not supported.");
+		}
+		
+		stageTimer.stop(file.length(), (long)this.getWidth() * this.getHeight());
+	}
+	
+	public void save(OutputStream outputStream, String fileExtension) throws IOException
+	{
+		Instrumentation.StageTimer stageTimer = Instrumentation.start(ProcessingStage.SAVE);
+		
+		if (this.mappedBitmap != null && fileExtension.equals("bmp"))
+		{
+			this.mappedBitmap.force();
+			
+			Files.copy(this.mappedBitmap.getFile().toPath(), outputStream);
+		}
+		else if (fileExtension.equals("png"))
+		{
+			this.pngWriter.write(this.getImage(), outputStream);
+		}
+		else if (!ImageIO.write(this.getBufferedImageToSave(fileExtension), fileExtension, outputStream))
+		{
+			throw new IOException("The image format \"" + fileExtension + "\" is not supported.");
+		}
+		
+		stageTimer.stop(0, (long)this.getWidth() * this.getHeight());
+	}
+	
+	private BufferedImage getBufferedImageToSave(String fileExtension) throws IOException
+	{
+		BufferedImage bufferedImage = this.getImage();
 		
 		if (fileExtension.equals("bmp"))
 		{
-			bufferedImage = this.cloneBufferedImage(this.bufferedImage, true);
+			if (this.embeddingProfile.isAlpha())
+			{
+				throw new IOException("The alpha channel can not be stored in a bitmap.");
+			}
+			
+			if (bufferedImage.getColorModel().hasAlpha())
+			{
+				bufferedImage = cloneBufferedImage(bufferedImage, true, this.embeddingProfile.getBitsPerChannel());
+			}
 		}
-		else
+		
+		return bufferedImage;
+	}
+	
+	private BufferedImage getImage()
+	{
+		return this.mappedBitmap != null ? this.mappedBitmap.toBufferedImage() : this.bufferedImage;
+	}
+	
+	private static class Checkpoint
+	{
+		private Checkpoint previous;
+		
+		private BufferedImage bufferedImage;
+		
+		private boolean shared;
+		
+		private EmbeddingProfile embeddingProfile;
+		
+		private PayloadCodec payloadCodec;
+		
+		private boolean profileHeader;
+		
+		private int dirtyFirstRow;
+		
+		private int dirtyLastRow;
+		
+		public Checkpoint(RawByteEncoder rawByteEncoder)
+		{
+			this.previous = rawByteEncoder.checkpoint;
+			
+			this.bufferedImage = rawByteEncoder.bufferedImage;
+			
+			this.shared = rawByteEncoder.shared;
+			
+			this.embeddingProfile = rawByteEncoder.embeddingProfile;
+			
+			this.payloadCodec = rawByteEncoder.payloadCodec;
+			
+			this.profileHeader = rawByteEncoder.lsbRaster != rawByteEncoder.profileRaster;
+			
+			this.dirtyFirstRow = rawByteEncoder.dirtyFirstRow;
+			
+			this.dirtyLastRow = rawByteEncoder.dirtyLastRow;
+		}
+	}
+	
+	private class ScatterTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private boolean write;
+		
+		private BlockPermutation blockPermutation;
+		
+		private long position;
+		
+		private byte[] bytes;
+		
+		private int offset;
+		
+		private int length;
+		
+		private long fromBlock;
+		
+		private long toBlock;
+		
+		public ScatterTask(boolean write, BlockPermutation blockPermutation, long position, byte[] bytes, int offset, int length, long fromBlock, long toBlock)
 		{
-			bufferedImage = this.bufferedImage;
+			this.write = write;
+			
+			this.blockPermutation = blockPermutation;
+			
+			this.position = position;
+			
+			this.bytes = bytes;
+			
+			this.offset = offset;
+			
+			this.length = length;
+			
+			this.fromBlock = fromBlock;
+			
+			this.toBlock = toBlock;
 		}
 		
-		ImageIO.write(bufferedImage, fileExtension, file);
+		@Override
+		protected void compute()
+		{
+			long blocks = this.toBlock - this.fromBlock;
+			
+			if (blocks > 1 && blocks * RawByteEncoder.this.getBlockSize() > SCATTER_TASK_SIZE)
+			{
+				long middleBlock = this.fromBlock + blocks / 2;
+				
+				invokeAll(new ScatterTask(this.write, this.blockPermutation, this.position, this.bytes, this.offset, this.length, this.fromBlock, middleBlock), new ScatterTask(this.write, this.blockPermutation, this.position, this.bytes, this.offset, this.length, middleBlock, this.toBlock));
+			}
+			else
+			{
+				RawByteEncoder.this.scatter(this.write, this.blockPermutation, this.position, this.bytes, this.offset, this.length, this.fromBlock, this.toBlock);
+			}
+		}
 	}
 }
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.io.File;
+
+public class ScanResult
+{
+	private File file;
+	
+	private boolean hidden;
+	
+	private boolean shard;
+	
+	private String name;
+	
+	private long size;
+	
+	private EmbeddingProfile embeddingProfile;
+	
+	private PayloadCodec payloadCodec;
+	
+	private String error;
+	
+	public ScanResult(File file, boolean hidden, boolean shard, String name, long size, EmbeddingProfile embeddingProfile, PayloadCodec payloadCodec)
+	{
+		this.file = file;
+		
+		this.hidden = hidden;
+		
+		this.shard = shard;
+		
+		this.name = name;
+		
+		this.size = size;
+		
+		this.embeddingProfile = embeddingProfile;
+		
+		this.payloadCodec = payloadCodec;
+		
+		this.error = null;
+	}
+	
+	public ScanResult(File file, String error)
+	{
+		this(file, false, false, "", 0, EmbeddingProfile.DEFAULT, PayloadCodec.NONE);
+		
+		this.error = error;
+	}
+	
+	public File getFile()
+	{
+		return this.file;
+	}
+	
+	public boolean isHidden()
+	{
+		return this.hidden;
+	}
+	
+	public boolean isShard()
+	{
+		return this.shard;
+	}
+	
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	public long getSize()
+	{
+		return this.size;
+	}
+	
+	public EmbeddingProfile getEmbeddingProfile()
+	{
+		return this.embeddingProfile;
+	}
+	
+	public PayloadCodec getPayloadCodec()
+	{
+		return this.payloadCodec;
+	}
+	
+	public String getError()
+	{
+		return this.error;
+	}
+}
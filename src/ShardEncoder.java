@@ -0,0 +1,536 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ShardEncoder
+{
+	private static final byte[] SHARD_MAGIC = { (byte)0x89, 'S', 'H', 'A', 'R', 'D', '\r', '\n' };
+	
+	private static final int SHARD_HEADER_SIZE = SHARD_MAGIC.length + 8 + 4 + 4 + 8 + 8;
+	
+	private List<FileEncoder> fileEncoders;
+	
+	private ForkJoinPool forkJoinPool;
+	
+	public ShardEncoder(List<FileEncoder> fileEncoders)
+	{
+		this.fileEncoders = new ArrayList<>(fileEncoders);
+		
+		this.forkJoinPool = ForkJoinPool.commonPool();
+	}
+	
+	public List<FileEncoder> getFileEncoders()
+	{
+		return Collections.unmodifiableList(this.fileEncoders);
+	}
+	
+	public ForkJoinPool getForkJoinPool()
+	{
+		return this.forkJoinPool;
+	}
+	
+	public void setForkJoinPool(ForkJoinPool forkJoinPool)
+	{
+		this.forkJoinPool = forkJoinPool;
+	}
+	
+	public long getCapacity()
+	{
+		return this.getCapacity(this.fileEncoders, new BinaryFile((byte[])null, ""));
+	}
+	
+	private long getCapacity(List<FileEncoder> fileEncoders, BinaryFile binaryFile)
+	{
+		long capacity = 0;
+		
+		for (FileEncoder fileEncoder : fileEncoders)
+		{
+			capacity = capacity + this.getShardCapacity(fileEncoder, binaryFile);
+		}
+		
+		return capacity;
+	}
+	
+	private long getShardCapacity(FileEncoder fileEncoder, BinaryFile binaryFile)
+	{
+		return Math.max(fileEncoder.getCapacity() - binaryFile.getNullTerminatedName().length - SHARD_HEADER_SIZE, 0);
+	}
+	
+	public List<FileEncoder> plan(BinaryFile binaryFile)
+	{
+		long size = binaryFile.isEmpty() ? 0 : binaryFile.getSize();
+		
+		List<FileEncoder> candidates = new ArrayList<>();
+		
+		for (FileEncoder fileEncoder : this.fileEncoders)
+		{
+			if (this.getShardCapacity(fileEncoder, binaryFile) > 0 || size == 0)
+			{
+				candidates.add(fileEncoder);
+			}
+		}
+		
+		Comparator<FileEncoder> comparator = Comparator.comparingLong((FileEncoder fileEncoder) -> this.getShardCapacity(fileEncoder, binaryFile)).reversed();
+		
+		candidates.sort(comparator);
+		
+		List<FileEncoder> selection = new ArrayList<>();
+		
+		long capacity = 0;
+		
+		while (!candidates.isEmpty() && (capacity < size || selection.isEmpty()))
+		{
+			FileEncoder fileEncoder = candidates.remove(0);
+			
+			selection.add(fileEncoder);
+			
+			capacity = capacity + this.getShardCapacity(fileEncoder, binaryFile);
+		}
+		
+		if (capacity < size || selection.isEmpty())
+		{
+			return null;
+		}
+		
+		for (int i = 0; i < selection.size(); i++)
+		{
+			long shardCapacity = this.getShardCapacity(selection.get(i), binaryFile);
+			
+			for (int j = candidates.size() - 1; j >= 0; j--)
+			{
+				long candidateCapacity = this.getShardCapacity(candidates.get(j), binaryFile);
+				
+				if (candidateCapacity < shardCapacity && capacity - shardCapacity + candidateCapacity >= size)
+				{
+					FileEncoder fileEncoder = selection.set(i, candidates.remove(j));
+					
+					candidates.add(fileEncoder);
+					
+					candidates.sort(comparator);
+					
+					capacity = capacity - shardCapacity + candidateCapacity;
+					
+					break;
+				}
+			}
+		}
+		
+		return selection;
+	}
+	
+	public List<FileEncoder> encode(BinaryFile binaryFile) throws IOException
+	{
+		List<FileEncoder> selection = this.plan(binaryFile);
+		
+		if (selection == null)
+		{
+			return null;
+		}
+		
+		long size = binaryFile.isEmpty() ? 0 : binaryFile.getSize();
+		
+		long payloadId = ThreadLocalRandom.current().nextLong();
+		
+		List<Callable<Boolean>> tasks = new ArrayList<>();
+		
+		long offset = 0;
+		
+		for (int i = 0; i < selection.size(); i++)
+		{
+			FileEncoder fileEncoder = selection.get(i);
+			
+			long length = Math.min(this.getShardCapacity(fileEncoder, binaryFile), size - offset);
+			
+			byte[] header = encodeHeader(payloadId, i, selection.size(), offset, size);
+			
+			long start = offset;
+			
+			PayloadSource payloadSource = () -> new SequenceInputStream(new ByteArrayInputStream(header), openSlice(binaryFile, start, length));
+			
+			BinaryFile shard = new BinaryFile(payloadSource, header.length + length, binaryFile.getName());
+			
+			tasks.add(() -> fileEncoder.encode(shard));
+			
+			offset = offset + length;
+		}
+		
+		boolean encoded = false;
+		
+		for (FileEncoder fileEncoder : selection)
+		{
+			fileEncoder.beginChanges();
+		}
+		
+		try
+		{
+			boolean complete = true;
+			
+			for (Future<Boolean> future : this.forkJoinPool.invokeAll(tasks))
+			{
+				try
+				{
+					complete = future.get() && complete;
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					
+					throw new IOException("The encoding was interrupted.", e);
+				}
+				catch (ExecutionException e)
+				{
+					if (e.getCause() instanceof IOException)
+					{
+						throw (IOException)e.getCause();
+					}
+					
+					throw new IOException("Failed to encode a part of the file.", e.getCause());
+				}
+			}
+			
+			encoded = complete;
+		}
+		finally
+		{
+			for (FileEncoder fileEncoder : selection)
+			{
+				fileEncoder.endChanges(encoded);
+			}
+		}
+		
+		return encoded ? selection : null;
+	}
+	
+	public BinaryFile decode() throws IOException
+	{
+		Map<Long, BinaryFile[]> payloads = new LinkedHashMap<>();
+		
+		Map<Long, long[]> offsets = new LinkedHashMap<>();
+		
+		long[] header = new long[5];
+		
+		for (FileEncoder fileEncoder : this.fileEncoders)
+		{
+			BinaryFile shard = fileEncoder.decode();
+			
+			if (shard.isEmpty() || shard.getSize() < SHARD_HEADER_SIZE || !decodeHeader(shard, header))
+			{
+				continue;
+			}
+			
+			long payloadId = header[0];
+			
+			int sequence = (int)header[1];
+			
+			int count = (int)header[2];
+			
+			if (count <= 0 || sequence < 0 || sequence >= count)
+			{
+				continue;
+			}
+			
+			BinaryFile[] shards = payloads.computeIfAbsent(payloadId, key -> new BinaryFile[count]);
+			
+			long[] shardOffsets = offsets.computeIfAbsent(payloadId, key -> new long[count + 1]);
+			
+			if (shards.length == count)
+			{
+				shards[sequence] = shard;
+				
+				shardOffsets[sequence] = header[3];
+				
+				shardOffsets[count] = header[4];
+			}
+		}
+		
+		int found = 0;
+		
+		int expected = 0;
+		
+		for (Map.Entry<Long, BinaryFile[]> entry : payloads.entrySet())
+		{
+			BinaryFile[] shards = entry.getValue();
+			
+			long[] shardOffsets = offsets.get(entry.getKey());
+			
+			boolean complete = true;
+			
+			long offset = 0;
+			
+			int count = 0;
+			
+			for (int i = 0; i < shards.length; i++)
+			{
+				if (shards[i] == null)
+				{
+					complete = false;
+				}
+				else
+				{
+					complete = complete && shardOffsets[i] == offset;
+					
+					offset = offset + shards[i].getSize() - SHARD_HEADER_SIZE;
+					
+					count++;
+				}
+			}
+			
+			if (complete && offset == shardOffsets[shards.length])
+			{
+				PayloadSource payloadSource = () -> 
+				{
+					Vector<InputStream> inputStreams = new Vector<>();
+					
+					for (BinaryFile shard : shards)
+					{
+						InputStream inputStream = shard.openInputStream();
+						
+						if (inputStream.skip(SHARD_HEADER_SIZE) != SHARD_HEADER_SIZE)
+						{
+							throw new IOException("The hidden data has changed.");
+						}
+						
+						inputStreams.add(inputStream);
+					}
+					
+					return new SequenceInputStream(inputStreams.elements());
+				};
+				
+				return new BinaryFile(payloadSource, offset, shards[0].getName());
+			}
+			
+			if (count > found)
+			{
+				found = count;
+				
+				expected = shards.length;
+			}
+		}
+		
+		if (found > 0)
+		{
+			throw new IOException("Only " + found + " of " + expected + " parts of the hidden file were found.");
+		}
+		
+		return new BinaryFile((byte[])null);
+	}
+	
+	public static boolean isShard(BinaryFile binaryFile) throws IOException
+	{
+		return !binaryFile.isEmpty() && binaryFile.getSize() >= SHARD_HEADER_SIZE && decodeHeader(binaryFile, new long[5]);
+	}
+	
+	static InputStream openSlice(BinaryFile binaryFile, long offset, long length) throws IOException
+	{
+		InputStream inputStream = binaryFile.openInputStream();
+		
+		if (inputStream == null)
+		{
+			return new ByteArrayInputStream(new byte[0]);
+		}
+		
+		long skipped = 0;
+		
+		while (skipped < offset)
+		{
+			long count = inputStream.skip(offset - skipped);
+			
+			if (count <= 0)
+			{
+				if (inputStream.read() < 0)
+				{
+					inputStream.close();
+					
+					throw new IOException("Unexpected end of the data.");
+				}
+				
+				count = 1;
+			}
+			
+			skipped = skipped + count;
+		}
+		
+		return new SliceInputStream(inputStream, length);
+	}
+	
+	private static byte[] encodeHeader(long payloadId, int sequence, int count, long offset, long size)
+	{
+		byte[] header = new byte[SHARD_HEADER_SIZE];
+		
+		System.arraycopy(SHARD_MAGIC, 0, header, 0, SHARD_MAGIC.length);
+		
+		int position = SHARD_MAGIC.length;
+		
+		position = encodeValue(header, position, payloadId, 8);
+		position = encodeValue(header, position, sequence, 4);
+		position = encodeValue(header, position, count, 4);
+		position = encodeValue(header, position, offset, 8);
+		encodeValue(header, position, size, 8);
+		
+		return header;
+	}
+	
+	private static boolean decodeHeader(BinaryFile binaryFile, long[] values) throws IOException
+	{
+		byte[] header = new byte[SHARD_HEADER_SIZE];
+		
+		try (InputStream inputStream = binaryFile.openInputStream())
+		{
+			int length = 0;
+			
+			while (length < header.length)
+			{
+				int count = inputStream.read(header, length, header.length - length);
+				
+				if (count < 0)
+				{
+					return false;
+				}
+				
+				length = length + count;
+			}
+		}
+		
+		for (int i = 0; i < SHARD_MAGIC.length; i++)
+		{
+			if (header[i] != SHARD_MAGIC[i])
+			{
+				return false;
+			}
+		}
+		
+		int position = SHARD_MAGIC.length;
+		
+		values[0] = decodeValue(header, position, 8);
+		values[1] = decodeValue(header, position + 8, 4);
+		values[2] = decodeValue(header, position + 12, 4);
+		values[3] = decodeValue(header, position + 16, 8);
+		values[4] = decodeValue(header, position + 24, 8);
+		
+		return true;
+	}
+	
+	private static int encodeValue(byte[] bytes, int position, long value, int size)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			bytes[position + i] = (byte)((value >> (8 * i)) & 0xFF);
+		}
+		
+		return position + size;
+	}
+	
+	private static long decodeValue(byte[] bytes, int position, int size)
+	{
+		long value = 0;
+		
+		for (int i = 0; i < size; i++)
+		{
+			value = value | ((long)(((int)(bytes[position + i]) + 256) % 256) << (8 * i));
+		}
+		
+		return value;
+	}
+	
+	static class SliceInputStream extends FilterInputStream
+	{
+		private long remaining;
+		
+		public SliceInputStream(InputStream inputStream, long length)
+		{
+			super(inputStream);
+			
+			this.remaining = length;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (length == 0)
+			{
+				return 0;
+			}
+			
+			if (this.remaining <= 0)
+			{
+				return -1;
+			}
+			
+			int count = this.in.read(bytes, offset, (int)Math.min(length, this.remaining));
+			
+			if (count > 0)
+			{
+				this.remaining = this.remaining - count;
+			}
+			
+			return count;
+		}
+		
+		@Override
+		public long skip(long n) throws IOException
+		{
+			long count = this.in.skip(Math.max(Math.min(n, this.remaining), 0));
+			
+			this.remaining = this.remaining - count;
+			
+			return count;
+		}
+		
+		@Override
+		public int available() throws IOException
+		{
+			return (int)Math.min(this.in.available(), this.remaining);
+		}
+	}
+}
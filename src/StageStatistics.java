@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class StageStatistics implements StageListener
+{
+	private Map<ProcessingStage, long[]> totals;
+	
+	public StageStatistics()
+	{
+		this.totals = new EnumMap<>(ProcessingStage.class);
+	}
+	
+	@Override
+	public synchronized void stageCompleted(ProcessingStage stage, long nanos, long bytes, long pixels, long allocatedBytes)
+	{
+		long[] total = this.totals.computeIfAbsent(stage, key -> new long[5]);
+		
+		total[0]++;
+		total[1] = total[1] + nanos;
+		total[2] = total[2] + bytes;
+		total[3] = total[3] + pixels;
+		total[4] = total[4] + allocatedBytes;
+	}
+	
+	public synchronized long getCount(ProcessingStage stage)
+	{
+		return this.getTotal(stage, 0);
+	}
+	
+	public synchronized long getNanos(ProcessingStage stage)
+	{
+		return this.getTotal(stage, 1);
+	}
+	
+	public synchronized long getBytes(ProcessingStage stage)
+	{
+		return this.getTotal(stage, 2);
+	}
+	
+	public synchronized long getPixels(ProcessingStage stage)
+	{
+		return this.getTotal(stage, 3);
+	}
+	
+	public synchronized long getAllocatedBytes(ProcessingStage stage)
+	{
+		return this.getTotal(stage, 4);
+	}
+	
+	public synchronized double getBytesPerSecond(ProcessingStage stage)
+	{
+		long nanos = this.getNanos(stage);
+		
+		return nanos > 0 ? this.getBytes(stage) * 1e9 / nanos : 0;
+	}
+	
+	public synchronized void reset()
+	{
+		this.totals.clear();
+	}
+	
+	private long getTotal(ProcessingStage stage, int index)
+	{
+		long[] total = this.totals.get(stage);
+		
+		return total != null ? total[index] : 0;
+	}
+}
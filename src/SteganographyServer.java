@@ -0,0 +1,625 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.zip.Deflater;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class SteganographyServer
+{
+	public static final int DEFAULT_PORT = 8080;
+	
+	public static final String CARRIER_LENGTH_HEADER = "X-Carrier-Length";
+	
+	public static final String FILE_NAME_HEADER = "X-File-Name";
+	
+	public static final String KEY_HEADER = "X-Embedding-Key";
+	
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+	
+	private static final int OUTPUT_BUFFER_SIZE = 256 * 1024;
+	
+	private static final int STATUS_TOO_MANY_REQUESTS = 429;
+	
+	private HttpServer httpServer;
+	
+	private ExecutorService executorService;
+	
+	private boolean virtualThreads;
+	
+	private int maxConcurrency;
+	
+	private Semaphore semaphore;
+	
+	private CarrierCache carrierCache;
+	
+	private File carrierDirectory;
+	
+	private ThreadLocal<StageStatistics> requestStatistics;
+	
+	private StageListener stageListener;
+	
+	public SteganographyServer(InetSocketAddress address, int maxConcurrency) throws IOException
+	{
+		if (maxConcurrency < 1)
+		{
+			throw new IllegalArgumentException("The server must process at least one request at a time.");
+		}
+		
+		this.maxConcurrency = maxConcurrency;
+		
+		this.semaphore = new Semaphore(maxConcurrency);
+		
+		this.carrierCache = new CarrierCache();
+		
+		this.requestStatistics = new ThreadLocal<>();
+		
+		this.stageListener = new StageListener()
+		{
+			@Override
+			public boolean isEnabled()
+			{
+				return SteganographyServer.this.requestStatistics.get() != null;
+			}
+			
+			@Override
+			public void stageCompleted(ProcessingStage stage, long nanos, long bytes, long pixels, long allocatedBytes)
+			{
+				StageStatistics stageStatistics = SteganographyServer.this.requestStatistics.get();
+				
+				if (stageStatistics != null)
+				{
+					stageStatistics.stageCompleted(stage, nanos, bytes, pixels, allocatedBytes);
+				}
+			}
+		};
+		
+		this.executorService = newVirtualThreadExecutor();
+		
+		this.virtualThreads = this.executorService != null;
+		
+		if (this.executorService == null)
+		{
+			this.executorService = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "SteganographyServer"));
+		}
+		
+		this.httpServer = HttpServer.create(address, 0);
+		
+		this.httpServer.setExecutor(this.executorService);
+		
+		this.httpServer.createContext("/", this::handle);
+	}
+	
+	private static ExecutorService newVirtualThreadExecutor()
+	{
+		try
+		{
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException e)
+		{
+			return null;
+		}
+	}
+	
+	public InetSocketAddress getAddress()
+	{
+		return this.httpServer.getAddress();
+	}
+	
+	public int getMaxConcurrency()
+	{
+		return this.maxConcurrency;
+	}
+	
+	public boolean isVirtualThreads()
+	{
+		return this.virtualThreads;
+	}
+	
+	public CarrierCache getCarrierCache()
+	{
+		return this.carrierCache;
+	}
+	
+	public File getCarrierDirectory()
+	{
+		return this.carrierDirectory;
+	}
+	
+	public void setCarrierDirectory(File carrierDirectory)
+	{
+		this.carrierDirectory = carrierDirectory;
+	}
+	
+	public void start()
+	{
+		Instrumentation.addStageListener(this.stageListener);
+		
+		this.httpServer.start();
+	}
+	
+	public void stop(int delay)
+	{
+		this.httpServer.stop(delay);
+		
+		this.executorService.shutdown();
+		
+		Instrumentation.removeStageListener(this.stageListener);
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			if (!this.semaphore.tryAcquire())
+			{
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				
+				this.sendError(exchange, STATUS_TOO_MANY_REQUESTS, "Too many requests are processed at the moment.");
+				
+				return;
+			}
+			
+			StageStatistics stageStatistics = new StageStatistics();
+			
+			this.requestStatistics.set(stageStatistics);
+			
+			try
+			{
+				Map<String, String> parameters = getParameters(exchange.getRequestURI().getRawQuery());
+				
+				switch (exchange.getRequestURI().getPath())
+				{
+					case "/embed":
+						this.embed(exchange, parameters, stageStatistics);
+						break;
+					case "/extract":
+						this.extract(exchange, parameters, stageStatistics);
+						break;
+					case "/capacity":
+						this.capacity(exchange, parameters, stageStatistics);
+						break;
+					default:
+						throw new RequestException(404, "Unknown path \"" + exchange.getRequestURI().getPath() + "\".");
+				}
+			}
+			catch (RequestException e)
+			{
+				this.sendError(exchange, e.getStatus(), e.getMessage());
+			}
+			catch (CorruptedDataException e)
+			{
+				this.sendError(exchange, 422, e.getMessage());
+			}
+			catch (IllegalArgumentException | IllegalStateException e)
+			{
+				this.sendError(exchange, 400, e.getMessage() != null ? e.getMessage() : e.toString());
+			}
+			catch (IOException e)
+			{
+				this.sendError(exchange, 500, e.getMessage() != null ? e.getMessage() : e.toString());
+			}
+			catch (RuntimeException e)
+			{
+				this.sendError(exchange, 500, "The request failed with " + e + ".");
+			}
+			finally
+			{
+				this.requestStatistics.remove();
+				
+				this.semaphore.release();
+			}
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+	
+	private void embed(HttpExchange exchange, Map<String, String> parameters, StageStatistics stageStatistics) throws IOException
+	{
+		long startNanos = System.nanoTime();
+		
+		requireMethod(exchange, "POST");
+		
+		String format = parameters.getOrDefault("format", "png").toLowerCase(Locale.ROOT);
+		
+		if (!format.equals("png") && !format.equals("bmp"))
+		{
+			throw new RequestException(400, "The parameter format requires png or bmp.");
+		}
+		
+		InputStream inputStream = exchange.getRequestBody();
+		
+		FileEncoder fileEncoder = this.openCarrier(exchange, parameters);
+		
+		configure(fileEncoder, exchange, parameters);
+		
+		fileEncoder.setCompressionLevel(getInt(parameters, "level", Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_COMPRESSION));
+		
+		PngFilter pngFilter = PngFilter.fromName(parameters.getOrDefault("filter", PngFilter.ADAPTIVE.name()));
+		
+		if (pngFilter == null)
+		{
+			throw new RequestException(400, "The parameter filter requires none, sub, up, average, paeth or adaptive.");
+		}
+		
+		fileEncoder.setPngFilter(pngFilter);
+		
+		boolean encoded;
+		
+		try
+		{
+			encoded = fileEncoder.encode(inputStream, parameters.getOrDefault("name", ""));
+		}
+		catch (IOException e)
+		{
+			throw toRequestException(e);
+		}
+		
+		if (!encoded)
+		{
+			throw new RequestException(413, "The file is too big to be hidden in the image.");
+		}
+		
+		exchange.getResponseHeaders().set("Content-Type", "image/" + format);
+		
+		exchange.getResponseHeaders().set("Server-Timing", getServerTiming(stageStatistics, startNanos, "Excludes writing the " + format + " response"));
+		
+		exchange.sendResponseHeaders(200, 0);
+		
+		try (OutputStream outputStream = new BufferedOutputStream(exchange.getResponseBody(), OUTPUT_BUFFER_SIZE))
+		{
+			fileEncoder.save(outputStream, format);
+		}
+	}
+	
+	private void extract(HttpExchange exchange, Map<String, String> parameters, StageStatistics stageStatistics) throws IOException
+	{
+		long startNanos = System.nanoTime();
+		
+		requireMethod(exchange, "POST");
+		
+		FileEncoder fileEncoder = this.openCarrier(exchange, parameters);
+		
+		fileEncoder.setKey(exchange.getRequestHeaders().getFirst(KEY_HEADER));
+		
+		BinaryFile binaryFile;
+		
+		byte[] bytes;
+		
+		try
+		{
+			binaryFile = fileEncoder.decode();
+			
+			bytes = binaryFile.getBytes();
+		}
+		catch (IOException e)
+		{
+			throw toRequestException(e);
+		}
+		
+		if (binaryFile.isEmpty())
+		{
+			throw new RequestException(404, "Nothing was hidden in the image.");
+		}
+		
+		exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+		
+		exchange.getResponseHeaders().set(FILE_NAME_HEADER, URLEncoder.encode(binaryFile.getName(), "UTF-8").replace("+", "%20"));
+		
+		exchange.getResponseHeaders().set("Server-Timing", getServerTiming(stageStatistics, startNanos, null));
+		
+		exchange.sendResponseHeaders(200, bytes.length > 0 ? bytes.length : -1);
+		
+		try (OutputStream outputStream = exchange.getResponseBody())
+		{
+			outputStream.write(bytes);
+		}
+	}
+	
+	private void capacity(HttpExchange exchange, Map<String, String> parameters, StageStatistics stageStatistics) throws IOException
+	{
+		long startNanos = System.nanoTime();
+		
+		FileEncoder fileEncoder = this.openCarrier(exchange, parameters);
+		
+		configure(fileEncoder, exchange, parameters);
+		
+		byte[] bytes = ("{\"capacity\":" + fileEncoder.getCapacity() + "}\n").getBytes(StandardCharsets.UTF_8);
+		
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		
+		exchange.getResponseHeaders().set("Server-Timing", getServerTiming(stageStatistics, startNanos, null));
+		
+		exchange.sendResponseHeaders(200, bytes.length);
+		
+		try (OutputStream outputStream = exchange.getResponseBody())
+		{
+			outputStream.write(bytes);
+		}
+	}
+	
+	private FileEncoder openCarrier(HttpExchange exchange, Map<String, String> parameters) throws IOException
+	{
+		String carrier = parameters.get("carrier");
+		
+		if (carrier != null)
+		{
+			if (this.carrierDirectory == null)
+			{
+				throw new RequestException(400, "The server has no carrier directory.");
+			}
+			
+			File directory = this.carrierDirectory.getCanonicalFile();
+			
+			File file = new File(directory, carrier).getCanonicalFile();
+			
+			if (!file.getPath().startsWith(directory.getPath() + File.separator) || !file.isFile())
+			{
+				throw new RequestException(404, "The carrier \"" + carrier + "\" does not exist.");
+			}
+			
+			try
+			{
+				return this.carrierCache.open(file);
+			}
+			catch (FileNotFoundException e)
+			{
+				throw new RequestException(404, "The carrier \"" + carrier + "\" does not exist.");
+			}
+		}
+		
+		InputStream inputStream = exchange.getRequestBody();
+		
+		String carrierLength = exchange.getRequestHeaders().getFirst(CARRIER_LENGTH_HEADER);
+		
+		if (carrierLength == null)
+		{
+			if (exchange.getRequestURI().getPath().equals("/embed"))
+			{
+				throw new RequestException(400, "The parameter carrier or the header " + CARRIER_LENGTH_HEADER + " is required.");
+			}
+			
+			try
+			{
+				return new FileEncoder(inputStream);
+			}
+			catch (IOException e)
+			{
+				throw toRequestException(e);
+			}
+		}
+		
+		long length;
+		
+		try
+		{
+			length = Long.parseLong(carrierLength);
+		}
+		catch (NumberFormatException e)
+		{
+			length = -1;
+		}
+		
+		if (length < 0)
+		{
+			throw new RequestException(400, "The header " + CARRIER_LENGTH_HEADER + " requires a number.");
+		}
+		
+		InputStream carrierInputStream = new ShardEncoder.SliceInputStream(inputStream, length);
+		
+		try
+		{
+			FileEncoder fileEncoder = new FileEncoder(carrierInputStream);
+			
+			byte[] buffer = new byte[INPUT_BUFFER_SIZE];
+			
+			int count = carrierInputStream.read(buffer);
+			
+			while (count >= 0)
+			{
+				count = carrierInputStream.read(buffer);
+			}
+			
+			return fileEncoder;
+		}
+		catch (IOException e)
+		{
+			throw toRequestException(e);
+		}
+	}
+	
+	private static IOException toRequestException(IOException e)
+	{
+		if (e instanceof RequestException || e instanceof CorruptedDataException)
+		{
+			return e;
+		}
+		
+		return new RequestException(400, e.getMessage() != null ? e.getMessage() : e.toString());
+	}
+	
+	private static void configure(FileEncoder fileEncoder, HttpExchange exchange, Map<String, String> parameters) throws RequestException
+	{
+		int bitsPerChannel = getInt(parameters, "bits", 1, 1, EmbeddingProfile.MAX_BITS_PER_CHANNEL);
+		
+		String key = exchange.getRequestHeaders().getFirst(KEY_HEADER);
+		
+		fileEncoder.setEmbeddingProfile(new EmbeddingProfile(bitsPerChannel, Boolean.parseBoolean(parameters.getOrDefault("alpha", "false")), key != null));
+		
+		fileEncoder.setKey(key);
+		
+		fileEncoder.setPayloadCodec(Boolean.parseBoolean(parameters.getOrDefault("compress", "false")) ? PayloadCodec.DEFLATE : PayloadCodec.NONE);
+		
+		int chunkSize = Boolean.parseBoolean(parameters.getOrDefault("chunked", "false")) ? ByteEncoder.DEFAULT_CHUNK_SIZE : 0;
+		
+		if (parameters.containsKey("chunk-size"))
+		{
+			chunkSize = getInt(parameters, "chunk-size", chunkSize, ByteEncoder.MIN_CHUNK_SIZE, ByteEncoder.MAX_CHUNK_SIZE);
+		}
+		
+		fileEncoder.setChunkSize(chunkSize);
+	}
+	
+	private static int getInt(Map<String, String> parameters, String name, int defaultValue, int min, int max) throws RequestException
+	{
+		if (!parameters.containsKey(name))
+		{
+			return defaultValue;
+		}
+		
+		try
+		{
+			int value = Integer.parseInt(parameters.get(name));
+			
+			if (value >= min && value <= max)
+			{
+				return value;
+			}
+		}
+		catch (NumberFormatException e)
+		{
+		}
+		
+		throw new RequestException(400, "The parameter " + name + " requires a number between " + min + " and " + max + ".");
+	}
+	
+	private static void requireMethod(HttpExchange exchange, String method) throws RequestException
+	{
+		if (!exchange.getRequestMethod().equalsIgnoreCase(method))
+		{
+			exchange.getResponseHeaders().set("Allow", method);
+			
+			throw new RequestException(405, "The path " + exchange.getRequestURI().getPath() + " requires the method " + method + ".");
+		}
+	}
+	
+	private static Map<String, String> getParameters(String query) throws UnsupportedEncodingException
+	{
+		Map<String, String> parameters = new HashMap<>();
+		
+		if (query != null)
+		{
+			for (String parameter : query.split("&"))
+			{
+				if (!parameter.isEmpty())
+				{
+					int index = parameter.indexOf('=');
+					
+					String name = URLDecoder.decode(index >= 0 ? parameter.substring(0, index) : parameter, "UTF-8");
+					
+					String value = index >= 0 ? URLDecoder.decode(parameter.substring(index + 1), "UTF-8") : "true";
+					
+					parameters.put(name, value);
+				}
+			}
+		}
+		
+		return parameters;
+	}
+	
+	private static String getServerTiming(StageStatistics stageStatistics, long startNanos, String description)
+	{
+		StringBuilder serverTiming = new StringBuilder();
+		
+		for (ProcessingStage stage : ProcessingStage.values())
+		{
+			if (stageStatistics.getCount(stage) > 0)
+			{
+				serverTiming.append(stage.name().toLowerCase(Locale.ROOT)).append(";dur=").append(formatMillis(stageStatistics.getNanos(stage))).append(", ");
+			}
+		}
+		
+		serverTiming.append("total;dur=").append(formatMillis(System.nanoTime() - startNanos));
+		
+		if (description != null)
+		{
+			serverTiming.append(";desc=\"").append(description).append('"');
+		}
+		
+		return serverTiming.toString();
+	}
+	
+	private static String formatMillis(long nanos)
+	{
+		return String.valueOf(Math.round(nanos / 1e3) / 1e3);
+	}
+	
+	private void sendError(HttpExchange exchange, int status, String message) throws IOException
+	{
+		if (exchange.getResponseCode() != -1)
+		{
+			return;
+		}
+		
+		byte[] bytes = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		
+		exchange.sendResponseHeaders(status, bytes.length);
+		
+		try (OutputStream outputStream = exchange.getResponseBody())
+		{
+			outputStream.write(bytes);
+		}
+	}
+	
+	private static class RequestException extends IOException
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private int status;
+		
+		public RequestException(int status, String message)
+		{
+			super(message);
+			
+			this.status = status;
+		}
+		
+		public int getStatus()
+		{
+			return this.status;
+		}
+	}
+}
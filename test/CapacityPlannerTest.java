@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+
+public class CapacityPlannerTest
+{
+	public static void main(String[] args) throws IOException
+	{
+		File directory = Files.createTempDirectory("planner").toFile();
+		
+		try
+		{
+			testLargestCarrierFirst(directory);
+			
+			testSmallestCarrierForLoneFile(directory);
+			
+			testExactCapacity(directory);
+		}
+		finally
+		{
+			for (File file : directory.listFiles())
+			{
+				file.delete();
+			}
+			
+			directory.delete();
+		}
+		
+		System.out.println("CapacityPlannerTest passed");
+	}
+	
+	private static void testLargestCarrierFirst(File directory) throws IOException
+	{
+		CapacityPlanner capacityPlanner = createPlanner();
+		
+		List<File> carriers = Arrays.asList(createCarrier(directory, 64, 40), createCarrier(directory, 80, 64), createCarrier(directory, 128, 64), createCarrier(directory, 48, 48));
+		
+		List<BinaryFile> binaryFiles = createFiles(2500, 1800, 1200, 900, 700, 400, 300, 120, 60, 5);
+		
+		Map<File, List<BinaryFile>> plan = capacityPlanner.plan(binaryFiles, carriers);
+		
+		check(plan != null, "The files have to fit into the carriers.");
+		
+		checkPlan(capacityPlanner, plan, binaryFiles);
+		
+		check(plan.size() == 2, "The files have to be planned onto 2 instead of " + plan.size() + " carriers.");
+	}
+	
+	private static void testSmallestCarrierForLoneFile(File directory) throws IOException
+	{
+		CapacityPlanner capacityPlanner = createPlanner();
+		
+		File smallCarrier = createCarrier(directory, 48, 48);
+		
+		List<File> carriers = Arrays.asList(createCarrier(directory, 128, 64), smallCarrier, createCarrier(directory, 80, 64));
+		
+		List<BinaryFile> binaryFiles = createFiles(1000);
+		
+		Map<File, List<BinaryFile>> plan = capacityPlanner.plan(binaryFiles, carriers);
+		
+		check(plan != null, "The file has to fit into the carriers.");
+		
+		checkPlan(capacityPlanner, plan, binaryFiles);
+		
+		check(plan.keySet().equals(Collections.singleton(smallCarrier)), "A lone file has to be planned onto the smallest carrier it fits.");
+	}
+	
+	private static void testExactCapacity(File directory) throws IOException
+	{
+		CapacityPlanner capacityPlanner = createPlanner();
+		
+		File carrier = createCarrier(directory, 48, 48);
+		
+		long capacity = capacityPlanner.getCapacity(carrier);
+		
+		BinaryFile emptyFile = new BinaryFile(new byte[0], "f0");
+		
+		int size = (int)(capacity - emptyFile.getRequiredSpace());
+		
+		check(capacityPlanner.plan(createFiles(size), Arrays.asList(carrier)) != null, "A file of exactly the capacity has to fit.");
+		
+		check(capacityPlanner.plan(createFiles(size + 1), Arrays.asList(carrier)) == null, "A file beyond the capacity must not fit.");
+	}
+	
+	private static CapacityPlanner createPlanner()
+	{
+		CapacityPlanner capacityPlanner = new CapacityPlanner();
+		
+		capacityPlanner.setEmbeddingProfile(new EmbeddingProfile(2, false));
+		
+		capacityPlanner.setChunkSize(ByteEncoder.DEFAULT_CHUNK_SIZE);
+		
+		return capacityPlanner;
+	}
+	
+	private static void checkPlan(CapacityPlanner capacityPlanner, Map<File, List<BinaryFile>> plan, List<BinaryFile> binaryFiles) throws IOException
+	{
+		List<BinaryFile> plannedFiles = new ArrayList<>();
+		
+		for (Map.Entry<File, List<BinaryFile>> entry : plan.entrySet())
+		{
+			check(CapacityPlanner.getRequiredSpace(entry.getValue()) <= capacityPlanner.getCapacity(entry.getKey()), "The files planned onto " + entry.getKey().getName() + " exceed its capacity.");
+			
+			plannedFiles.addAll(entry.getValue());
+		}
+		
+		check(plannedFiles.size() == binaryFiles.size() && plannedFiles.containsAll(binaryFiles), "Every file has to be planned exactly once.");
+	}
+	
+	private static File createCarrier(File directory, int width, int height) throws IOException
+	{
+		File file = new File(directory, width + "x" + height + ".png");
+		
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file);
+		
+		return file;
+	}
+	
+	private static List<BinaryFile> createFiles(int... sizes)
+	{
+		List<BinaryFile> binaryFiles = new ArrayList<>();
+		
+		for (int i = 0; i < sizes.length; i++)
+		{
+			binaryFiles.add(new BinaryFile(new byte[sizes[i]], "f" + i));
+		}
+		
+		return binaryFiles;
+	}
+	
+	private static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			throw new AssertionError(message);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class FileEncoderTest
+{
+	private static final long SEED = 0x5EED;
+	
+	public static void main(String[] args) throws IOException
+	{
+		testCodecHeaderAcrossChunks();
+		
+		testCorruptedChunk();
+		
+		System.out.println("FileEncoderTest passed");
+	}
+	
+	private static void testCodecHeaderAcrossChunks() throws IOException
+	{
+		Random random = new Random(SEED);
+		
+		byte[] data = new byte[3000];
+		
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (byte)('a' + random.nextInt(4));
+		}
+		
+		int chunkSize = ByteEncoder.MIN_CHUNK_SIZE;
+		
+		int headerSize = PayloadCodec.getHeaderSize();
+		
+		for (int nameLength = chunkSize - headerSize - 4; nameLength <= chunkSize + 2; nameLength++)
+		{
+			char[] name = new char[nameLength];
+			
+			Arrays.fill(name, 'n');
+			
+			FileEncoder fileEncoder = new FileEncoder(createImage(200, 200, random));
+			
+			fileEncoder.setChunkSize(chunkSize);
+			
+			fileEncoder.setPayloadCodec(PayloadCodec.DEFLATE);
+			
+			check(fileEncoder.encode(new BinaryFile(data, new String(name))), "The file has to fit into the image.");
+			
+			BinaryFile binaryFile = new FileEncoder(fileEncoder.getBufferedImage()).decode();
+			
+			check(!binaryFile.isEmpty(), "The file with a name of " + nameLength + " bytes was not found.");
+			
+			check(binaryFile.getName().equals(new String(name)), "The name of " + nameLength + " bytes differs.");
+			
+			check(Arrays.equals(binaryFile.getBytes(), data), "The data behind a name of " + nameLength + " bytes differs.");
+		}
+	}
+	
+	private static void testCorruptedChunk() throws IOException
+	{
+		Random random = new Random(SEED);
+		
+		byte[] data = new byte[3000];
+		
+		random.nextBytes(data);
+		
+		FileEncoder fileEncoder = new FileEncoder(createImage(200, 200, random));
+		
+		fileEncoder.setChunkSize(ByteEncoder.MIN_CHUNK_SIZE);
+		
+		check(fileEncoder.encode(new BinaryFile(data, "data.bin")), "The file has to fit into the image.");
+		
+		BufferedImage image = fileEncoder.getBufferedImage();
+		
+		int pixel = (ByteEncoder.getChunkedHeaderSize() + 3 * ByteEncoder.MIN_CHUNK_SIZE) * 8 / 3;
+		
+		image.setRGB(pixel % image.getWidth(), pixel / image.getWidth(), image.getRGB(pixel % image.getWidth(), pixel / image.getWidth()) ^ 0x010000);
+		
+		BinaryFile binaryFile = new FileEncoder(image).decode();
+		
+		check(!binaryFile.isEmpty(), "A corrupted chunk must not hide the file.");
+		
+		try
+		{
+			binaryFile.getBytes();
+			
+			throw new AssertionError("Reading a corrupted chunk has to fail.");
+		}
+		catch (CorruptedDataException e)
+		{
+		}
+		
+		try
+		{
+			new ByteEncoder(image).decode();
+			
+			throw new AssertionError("Decoding a corrupted chunk has to fail.");
+		}
+		catch (UncheckedIOException e)
+		{
+			check(e.getCause() instanceof CorruptedDataException, "Decoding a corrupted chunk has to report the corruption.");
+		}
+	}
+	
+	private static BufferedImage createImage(int width, int height, Random random)
+	{
+		BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				bufferedImage.setRGB(x, y, random.nextInt());
+			}
+		}
+		
+		return bufferedImage;
+	}
+	
+	private static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			throw new AssertionError(message);
+		}
+	}
+}
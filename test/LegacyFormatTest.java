@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+public class LegacyFormatTest
+{
+	private static final long SEED = 0x5EED;
+	
+	private static final String NAME = "legacy.bin";
+	
+	public static void main(String[] args) throws IOException
+	{
+		int[] imageTypes = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR };
+		
+		for (int imageType : imageTypes)
+		{
+			testEncode(imageType);
+			
+			testDecode(imageType);
+		}
+		
+		System.out.println("LegacyFormatTest passed");
+	}
+	
+	private static void testEncode(int imageType) throws IOException
+	{
+		Random random = new Random(SEED);
+		
+		BufferedImage bufferedImage = createImage(123, 77, imageType, random);
+		
+		int prefixSize = 4 + NAME.length() + 1;
+		
+		for (int length = 8 - prefixSize % 8; length < 3000; length = length + 8 * (1 + random.nextInt(40)))
+		{
+			byte[] data = new byte[length];
+			
+			random.nextBytes(data);
+			
+			data[length - 1] = (byte)(data[length - 1] | 1);
+			
+			BufferedImage legacyImage = copyImage(bufferedImage);
+			
+			encodeLegacy(legacyImage, createLegacyData(data));
+			
+			FileEncoder fileEncoder = new FileEncoder(copyImage(bufferedImage));
+			
+			check(fileEncoder.encode(new BinaryFile(data, NAME)), "The file of " + length + " bytes has to fit into the image.");
+			
+			check(Arrays.equals(getPixels(fileEncoder.getBufferedImage()), getPixels(legacyImage)), "The image with " + length + " bytes differs from the legacy layout.");
+		}
+	}
+	
+	private static void testDecode(int imageType) throws IOException
+	{
+		Random random = new Random(SEED);
+		
+		BufferedImage bufferedImage = createImage(123, 77, imageType, random);
+		
+		for (int length = 1; length < 3000; length = length + 1 + random.nextInt(300))
+		{
+			byte[] data = new byte[length];
+			
+			random.nextBytes(data);
+			
+			BufferedImage legacyImage = copyImage(bufferedImage);
+			
+			encodeLegacy(legacyImage, createLegacyData(data));
+			
+			BinaryFile binaryFile = new FileEncoder(legacyImage).decode();
+			
+			check(!binaryFile.isEmpty() && binaryFile.getName().equals(NAME), "The legacy file of " + length + " bytes was not found.");
+			
+			check(Arrays.equals(binaryFile.getBytes(), data), "The legacy file of " + length + " bytes differs.");
+		}
+	}
+	
+	private static byte[] createLegacyData(byte[] data)
+	{
+		byte[] name = NAME.getBytes(StandardCharsets.UTF_8);
+		
+		int size = name.length + 1 + data.length;
+		
+		byte[] legacyData = new byte[4 + size];
+		
+		for (int i = 0; i < 4; i++)
+		{
+			legacyData[i] = (byte)(size >> (8 * i));
+		}
+		
+		System.arraycopy(name, 0, legacyData, 4, name.length);
+		
+		System.arraycopy(data, 0, legacyData, 4 + name.length + 1, data.length);
+		
+		return legacyData;
+	}
+	
+	private static void encodeLegacy(BufferedImage bufferedImage, byte[] bytes)
+	{
+		BitSet bits = BitSet.valueOf(bytes);
+		
+		int width = bufferedImage.getWidth();
+		
+		for (int i = 0; i < bits.size(); i++)
+		{
+			int x = i / 3 % width;
+			
+			int y = i / 3 / width;
+			
+			int c = i % 3;
+			
+			int color = bufferedImage.getRGB(x, y);
+			
+			int value = (color >> (8 * c)) & 0x000000FF;
+			
+			color = color & ~(0x000000FF << (8 * c));
+			
+			value = (value & 0b11111110) | (bits.get(i) ? 0b00000001 : 0b00000000);
+			
+			color = color | ((value & 0x000000FF) << (8 * c));
+			
+			bufferedImage.setRGB(x, y, color);
+		}
+	}
+	
+	private static BufferedImage createImage(int width, int height, int imageType, Random random)
+	{
+		BufferedImage bufferedImage = new BufferedImage(width, height, imageType);
+		
+		for (int y = 0; y < height; y++)
+		{
+			for (int x = 0; x < width; x++)
+			{
+				bufferedImage.setRGB(x, y, random.nextInt() | 0xFF000000);
+			}
+		}
+		
+		return bufferedImage;
+	}
+	
+	private static BufferedImage copyImage(BufferedImage bufferedImage)
+	{
+		BufferedImage copy = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), bufferedImage.getType());
+		
+		copy.setData(bufferedImage.getRaster());
+		
+		return copy;
+	}
+	
+	private static int[] getPixels(BufferedImage bufferedImage)
+	{
+		return bufferedImage.getRGB(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight(), null, 0, bufferedImage.getWidth());
+	}
+	
+	private static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			throw new AssertionError(message);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class LsbRasterTest
+{
+	private static final long SEED = 0x5EED;
+	
+	private static final int STRIPE_BYTES = (1 << 22) / 8;
+	
+	public static void main(String[] args)
+	{
+		testStripes();
+		
+		testGroups();
+		
+		System.out.println("LsbRasterTest passed" + (LsbRaster.isVectorized() ? " with the vector kernel" : ""));
+	}
+	
+	private static void testStripes()
+	{
+		ForkJoinPool sequentialPool = new ForkJoinPool(1);
+		
+		ForkJoinPool parallelPool = new ForkJoinPool(4);
+		
+		try
+		{
+			Random random = new Random(SEED);
+			
+			EmbeddingProfile[] embeddingProfiles = { EmbeddingProfile.DEFAULT, new EmbeddingProfile(2, false), new EmbeddingProfile(3, true) };
+			
+			for (EmbeddingProfile embeddingProfile : embeddingProfiles)
+			{
+				int type = embeddingProfile.isAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+				
+				BufferedImage image = createImage(2531, 1777, type, random);
+				
+				int firstPixel = embeddingProfile.isDefault() ? 0 : 16;
+				
+				long capacity = new LsbRaster(image, embeddingProfile, firstPixel).getBitCapacity() / 8;
+				
+				long rowBytes = (long)image.getWidth() * embeddingProfile.getBitsPerPixel() / 8;
+				
+				long[] positions = { 0, 1, 12345, rowBytes - 1, rowBytes, 7 * rowBytes + 1, capacity / 2 - 3 * STRIPE_BYTES / 2 };
+				
+				for (long position : positions)
+				{
+					int length = (int)Math.min(capacity - position, 5L * STRIPE_BYTES / 2 + 7);
+					
+					check(length >= 2 * STRIPE_BYTES, "The payload has to be big enough to be written in stripes.");
+					
+					byte[] payload = new byte[length];
+					
+					random.nextBytes(payload);
+					
+					BufferedImage sequentialImage = copyImage(image);
+					
+					BufferedImage parallelImage = copyImage(image);
+					
+					LsbRaster sequentialRaster = new LsbRaster(sequentialImage, embeddingProfile, firstPixel);
+					
+					LsbRaster parallelRaster = new LsbRaster(parallelImage, embeddingProfile, firstPixel);
+					
+					sequentialRaster.write(position * 8, payload, 0, length, sequentialPool);
+					
+					parallelRaster.write(position * 8, payload, 0, length, parallelPool);
+					
+					check(Arrays.equals(getPixels(sequentialImage), getPixels(parallelImage)), "Parallel writing differs at " + position + " with " + embeddingProfile + ".");
+					
+					byte[] sequentialBytes = new byte[length];
+					
+					byte[] parallelBytes = new byte[length];
+					
+					sequentialRaster.read(position * 8, sequentialBytes, 0, length, sequentialPool);
+					
+					parallelRaster.read(position * 8, parallelBytes, 0, length, parallelPool);
+					
+					check(Arrays.equals(sequentialBytes, payload), "Sequential reading differs at " + position + " with " + embeddingProfile + ".");
+					
+					check(Arrays.equals(parallelBytes, payload), "Parallel reading differs at " + position + " with " + embeddingProfile + ".");
+				}
+			}
+		}
+		finally
+		{
+			sequentialPool.shutdown();
+			
+			parallelPool.shutdown();
+		}
+	}
+	
+	private static void testGroups()
+	{
+		Random random = new Random(SEED);
+		
+		int[] types = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB };
+		
+		for (int type : types)
+		{
+			for (int bitsPerChannel = 1; bitsPerChannel <= 4; bitsPerChannel++)
+			{
+				for (boolean alpha : new boolean[] { false, true })
+				{
+					if (alpha && type != BufferedImage.TYPE_INT_ARGB)
+					{
+						continue;
+					}
+					
+					EmbeddingProfile embeddingProfile = new EmbeddingProfile(bitsPerChannel, alpha);
+					
+					int groupBytes = embeddingProfile.getBitsPerPixel();
+					
+					int[] lengths = { 1, groupBytes - 1, groupBytes, groupBytes + 1, 2 * groupBytes - 1, 5 * groupBytes + groupBytes / 2 + 1, 1000 };
+					
+					for (int firstPixel : new int[] { 0, 16 })
+					{
+						BufferedImage image = createImage(97, 61, type, random);
+						
+						for (int position = 0; position <= 2 * groupBytes + 1; position++)
+						{
+							for (int length : lengths)
+							{
+								byte[] payload = new byte[length];
+								
+								random.nextBytes(payload);
+								
+								BufferedImage groupImage = copyImage(image);
+								
+								BufferedImage pixelImage = copyImage(image);
+								
+								LsbRaster groupRaster = new LsbRaster(groupImage, embeddingProfile, firstPixel);
+								
+								LsbRaster pixelRaster = new LsbRaster(pixelImage, embeddingProfile, firstPixel);
+								
+								long bitOffset = position * 8L;
+								
+								groupRaster.write(bitOffset, payload, 0, length);
+								
+								for (int i = 0; i < length; i++)
+								{
+									pixelRaster.write(bitOffset, payload, 0, i * 8L, i * 8L + 8);
+								}
+								
+								String context = " at " + position + " with " + length + " bytes, " + embeddingProfile + ", first pixel " + firstPixel + " and type " + type + ".";
+								
+								check(Arrays.equals(getPixels(groupImage), getPixels(pixelImage)), "Group writing differs from pixel writing" + context);
+								
+								byte[] groupResult = new byte[length];
+								
+								byte[] pixelResult = new byte[length];
+								
+								groupRaster.read(bitOffset, groupResult, 0, length);
+								
+								for (int i = 0; i < length; i++)
+								{
+									pixelRaster.read(bitOffset + i * 8L, pixelResult, i, 1);
+								}
+								
+								check(Arrays.equals(groupResult, payload), "Group reading differs" + context);
+								
+								check(Arrays.equals(pixelResult, payload), "Pixel reading differs" + context);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	private static BufferedImage createImage(int width, int height, int type, Random random)
+	{
+		BufferedImage bufferedImage = new BufferedImage(width, height, type);
+		
+		int[] pixels = getPixels(bufferedImage);
+		
+		for (int i = 0; i < pixels.length; i++)
+		{
+			pixels[i] = random.nextInt();
+		}
+		
+		if (type == BufferedImage.TYPE_INT_RGB)
+		{
+			for (int i = 0; i < pixels.length; i++)
+			{
+				pixels[i] = pixels[i] & 0xFFFFFF;
+			}
+		}
+		
+		return bufferedImage;
+	}
+	
+	private static BufferedImage copyImage(BufferedImage bufferedImage)
+	{
+		BufferedImage copy = new BufferedImage(bufferedImage.getWidth(), bufferedImage.getHeight(), bufferedImage.getType());
+		
+		System.arraycopy(getPixels(bufferedImage), 0, getPixels(copy), 0, getPixels(copy).length);
+		
+		return copy;
+	}
+	
+	private static int[] getPixels(BufferedImage bufferedImage)
+	{
+		return ((DataBufferInt)bufferedImage.getRaster().getDataBuffer()).getData();
+	}
+	
+	private static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			throw new AssertionError(message);
+		}
+	}
+}
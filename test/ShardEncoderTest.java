@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ShardEncoderTest
+{
+	private static final long SEED = 0x5EED;
+	
+	public static void main(String[] args) throws IOException
+	{
+		for (PayloadCodec payloadCodec : PayloadCodec.values())
+		{
+			testFailedShard(payloadCodec);
+			
+			testRoundTrip(payloadCodec);
+		}
+		
+		System.out.println("ShardEncoderTest passed");
+	}
+	
+	private static void testFailedShard(PayloadCodec payloadCodec) throws IOException
+	{
+		Random random = new Random(SEED);
+		
+		List<FileEncoder> fileEncoders = createCarriers(random, payloadCodec);
+		
+		List<int[]> pixels = new ArrayList<>();
+		
+		for (FileEncoder fileEncoder : fileEncoders)
+		{
+			pixels.add(getPixels(fileEncoder));
+		}
+		
+		ShardEncoder shardEncoder = new ShardEncoder(fileEncoders);
+		
+		byte[] data = new byte[(int)(shardEncoder.getCapacity() * 9 / 10)];
+		
+		random.nextBytes(data);
+		
+		int failure = data.length - 100;
+		
+		BinaryFile binaryFile = new BinaryFile(() -> new FailingInputStream(data, failure), data.length, "data.bin");
+		
+		try
+		{
+			shardEncoder.encode(binaryFile);
+			
+			throw new AssertionError("Encoding a file that can not be read has to fail.");
+		}
+		catch (IOException e)
+		{
+		}
+		
+		for (int i = 0; i < fileEncoders.size(); i++)
+		{
+			check(Arrays.equals(getPixels(fileEncoders.get(i)), pixels.get(i)), "The carrier " + i + " was changed by a failed " + payloadCodec + " encoding.");
+		}
+	}
+	
+	private static void testRoundTrip(PayloadCodec payloadCodec) throws IOException
+	{
+		Random random = new Random(SEED);
+		
+		List<FileEncoder> fileEncoders = createCarriers(random, payloadCodec);
+		
+		ShardEncoder shardEncoder = new ShardEncoder(fileEncoders);
+		
+		byte[] data = new byte[(int)(shardEncoder.getCapacity() * 9 / 10)];
+		
+		random.nextBytes(data);
+		
+		List<FileEncoder> selection = shardEncoder.encode(new BinaryFile(data, "data.bin"));
+		
+		check(selection != null && selection.size() == fileEncoders.size(), "The file has to be split across all carriers.");
+		
+		List<FileEncoder> decoders = new ArrayList<>();
+		
+		for (FileEncoder fileEncoder : selection)
+		{
+			decoders.add(new FileEncoder(fileEncoder.getBufferedImage()));
+		}
+		
+		BinaryFile binaryFile = new ShardEncoder(decoders).decode();
+		
+		check(Arrays.equals(binaryFile.getBytes(), data), "The joined " + payloadCodec + " file differs.");
+	}
+	
+	private static List<FileEncoder> createCarriers(Random random, PayloadCodec payloadCodec) throws IOException
+	{
+		List<FileEncoder> fileEncoders = new ArrayList<>();
+		
+		for (int i = 0; i < 3; i++)
+		{
+			BufferedImage bufferedImage = new BufferedImage(100 + 10 * i, 100, BufferedImage.TYPE_INT_RGB);
+			
+			for (int y = 0; y < bufferedImage.getHeight(); y++)
+			{
+				for (int x = 0; x < bufferedImage.getWidth(); x++)
+				{
+					bufferedImage.setRGB(x, y, random.nextInt());
+				}
+			}
+			
+			FileEncoder fileEncoder = new FileEncoder(bufferedImage);
+			
+			fileEncoder.setPayloadCodec(payloadCodec);
+			
+			fileEncoders.add(fileEncoder);
+		}
+		
+		return fileEncoders;
+	}
+	
+	private static int[] getPixels(FileEncoder fileEncoder)
+	{
+		BufferedImage bufferedImage = fileEncoder.getBufferedImage();
+		
+		return bufferedImage.getRGB(0, 0, bufferedImage.getWidth(), bufferedImage.getHeight(), null, 0, bufferedImage.getWidth());
+	}
+	
+	private static void check(boolean condition, String message)
+	{
+		if (!condition)
+		{
+			throw new AssertionError(message);
+		}
+	}
+	
+	private static class FailingInputStream extends InputStream
+	{
+		private InputStream inputStream;
+		
+		private long remaining;
+		
+		public FailingInputStream(byte[] bytes, long failure)
+		{
+			this.inputStream = new ByteArrayInputStream(bytes);
+			
+			this.remaining = failure;
+		}
+		
+		@Override
+		public int read() throws IOException
+		{
+			byte[] bytes = new byte[1];
+			
+			if (this.read(bytes, 0, bytes.length) < 0)
+			{
+				return -1;
+			}
+			
+			return ((int)(bytes[0]) + 256) % 256;
+		}
+		
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException
+		{
+			if (this.remaining <= 0)
+			{
+				throw new IOException("The file can not be read any further.");
+			}
+			
+			int count = this.inputStream.read(bytes, offset, (int)Math.min(length, this.remaining));
+			
+			if (count > 0)
+			{
+				this.remaining = this.remaining - count;
+			}
+			
+			return count;
+		}
+	}
+}
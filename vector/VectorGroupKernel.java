@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ * 
+ * Copyright (c) 2018 Phil Badura
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorGroupKernel implements GroupKernel
+{
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_256;
+	
+	private static final int GROUP_PIXELS = 8;
+	
+	private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	private int bitsPerChannel;
+	
+	private int channels;
+	
+	private int bitsPerPixel;
+	
+	private int wordCount;
+	
+	private int clearMask;
+	
+	private IntVector[] leftShifts;
+	
+	private IntVector[] leftMasks;
+	
+	private IntVector[] rightShifts;
+	
+	private IntVector[] rightMasks;
+	
+	public VectorGroupKernel(int bitsPerChannel, int channels)
+	{
+		this.bitsPerChannel = bitsPerChannel;
+		
+		this.channels = channels;
+		
+		this.bitsPerPixel = bitsPerChannel * channels;
+		
+		this.wordCount = (GROUP_PIXELS * this.bitsPerPixel + 31) / 32;
+		
+		int channelMask = (1 << bitsPerChannel) - 1;
+		
+		this.clearMask = -1;
+		
+		for (int channel = 0; channel < channels; channel++)
+		{
+			this.clearMask = this.clearMask & ~(channelMask << (8 * channel));
+		}
+		
+		this.leftShifts = new IntVector[this.wordCount];
+		
+		this.leftMasks = new IntVector[this.wordCount];
+		
+		this.rightShifts = new IntVector[this.wordCount];
+		
+		this.rightMasks = new IntVector[this.wordCount];
+		
+		for (int word = 0; word < this.wordCount; word++)
+		{
+			int[] leftShifts = new int[GROUP_PIXELS];
+			
+			int[] leftMasks = new int[GROUP_PIXELS];
+			
+			int[] rightShifts = new int[GROUP_PIXELS];
+			
+			int[] rightMasks = new int[GROUP_PIXELS];
+			
+			for (int i = 0; i < GROUP_PIXELS; i++)
+			{
+				int shift = i * this.bitsPerPixel - 32 * word;
+				
+				if (shift >= 0 && shift < 32)
+				{
+					leftShifts[i] = shift;
+					
+					leftMasks[i] = -1;
+				}
+				else if (shift < 0 && shift > -this.bitsPerPixel)
+				{
+					rightShifts[i] = -shift;
+					
+					rightMasks[i] = -1;
+				}
+			}
+			
+			this.leftShifts[word] = IntVector.fromArray(SPECIES, leftShifts, 0);
+			
+			this.leftMasks[word] = IntVector.fromArray(SPECIES, leftMasks, 0);
+			
+			this.rightShifts[word] = IntVector.fromArray(SPECIES, rightShifts, 0);
+			
+			this.rightMasks[word] = IntVector.fromArray(SPECIES, rightMasks, 0);
+		}
+	}
+	
+	public static boolean isAccelerated()
+	{
+		return IntVector.SPECIES_PREFERRED.vectorBitSize() >= SPECIES.vectorBitSize();
+	}
+	
+	@Override
+	public void writeGroups(int[] pixels, int pixel, int groups, byte[] bytes, int index)
+	{
+		int bitsPerChannel = this.bitsPerChannel;
+		
+		int bitsPerPixel = this.bitsPerPixel;
+		
+		int channelMask = (1 << bitsPerChannel) - 1;
+		
+		int pixelMask = (1 << bitsPerPixel) - 1;
+		
+		int[] words = new int[this.wordCount];
+		
+		for (int group = 0; group < groups; group++)
+		{
+			if (index + 4 * this.wordCount <= bytes.length)
+			{
+				for (int word = 0; word < this.wordCount; word++)
+				{
+					words[word] = (int)INT_VIEW.get(bytes, index + 4 * word);
+				}
+			}
+			else
+			{
+				for (int word = 0; word < this.wordCount; word++)
+				{
+					words[word] = 0;
+				}
+				
+				for (int i = 0; i < bitsPerPixel; i++)
+				{
+					words[i >>> 2] = words[i >>> 2] | ((bytes[index + i] & 0xFF) << (8 * (i & 3)));
+				}
+			}
+			
+			IntVector value = IntVector.zero(SPECIES);
+			
+			for (int word = 0; word < this.wordCount; word++)
+			{
+				IntVector bits = IntVector.broadcast(SPECIES, words[word]);
+				
+				value = value.or(bits.lanewise(VectorOperators.LSHR, this.leftShifts[word]).and(this.leftMasks[word])).or(bits.lanewise(VectorOperators.LSHL, this.rightShifts[word]).and(this.rightMasks[word]));
+			}
+			
+			value = value.and(pixelMask);
+			
+			IntVector color = value.and(channelMask);
+			
+			for (int channel = 1; channel < this.channels; channel++)
+			{
+				color = color.or(value.lanewise(VectorOperators.LSHR, channel * bitsPerChannel).and(channelMask).lanewise(VectorOperators.LSHL, 8 * channel));
+			}
+			
+			IntVector.fromArray(SPECIES, pixels, pixel).and(this.clearMask).or(color).intoArray(pixels, pixel);
+			
+			pixel = pixel + GROUP_PIXELS;
+			
+			index = index + bitsPerPixel;
+		}
+	}
+	
+	@Override
+	public void readGroups(int[] pixels, int pixel, int groups, byte[] bytes, int index)
+	{
+		int bitsPerChannel = this.bitsPerChannel;
+		
+		int bitsPerPixel = this.bitsPerPixel;
+		
+		int channelMask = (1 << bitsPerChannel) - 1;
+		
+		for (int group = 0; group < groups; group++)
+		{
+			IntVector color = IntVector.fromArray(SPECIES, pixels, pixel);
+			
+			IntVector value = color.and(channelMask);
+			
+			for (int channel = 1; channel < this.channels; channel++)
+			{
+				value = value.or(color.lanewise(VectorOperators.LSHR, 8 * channel - channel * bitsPerChannel).and(channelMask << (channel * bitsPerChannel)));
+			}
+			
+			for (int word = 0; word < this.wordCount; word++)
+			{
+				IntVector left = value.lanewise(VectorOperators.LSHL, this.leftShifts[word]).and(this.leftMasks[word]);
+				
+				IntVector right = value.lanewise(VectorOperators.LSHR, this.rightShifts[word]).and(this.rightMasks[word]);
+				
+				int bits = left.or(right).reduceLanes(VectorOperators.OR);
+				
+				int count = Math.min(4, bitsPerPixel - 4 * word);
+				
+				for (int i = 0; i < count; i++)
+				{
+					bytes[index + 4 * word + i] = (byte)(bits >>> (8 * i));
+				}
+			}
+			
+			pixel = pixel + GROUP_PIXELS;
+			
+			index = index + bitsPerPixel;
+		}
+	}
+}